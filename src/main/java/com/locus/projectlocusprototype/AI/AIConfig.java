@@ -1,18 +1,39 @@
 package com.locus.projectlocusprototype.AI;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 
 
 @Configuration
+@Profile("!" + LocalFlashcardProvider.PROFILE)
+@EnableConfigurationProperties(GeminiClientProperties.class)
 public class AIConfig {
     @Value("${locus.ai.api-key}")
     private String API_KEY;
+    @Value("${locus.ai.client.connect-timeout-ms:5000}")
+    private int connectTimeoutMillis;
+    @Value("${locus.ai.client.response-timeout-ms:30000}")
+    private long responseTimeoutMillis;
+    @Value("${locus.ai.client.max-connections:50}")
+    private int maxConnections;
+    @Value("${locus.ai.client.pending-acquire-timeout-ms:10000}")
+    private long pendingAcquireTimeoutMillis;
+    @Value("${locus.ai.client.max-idle-ms:30000}")
+    private long maxIdleMillis;
+
     @Bean
     public WebClient geminiWebClient(WebClient.Builder builder){
         // In order to send a proper request to the Gemini model, we need the following things:
@@ -23,9 +44,39 @@ public class AIConfig {
         //THIS GENERATES A BARE-BONES WebClient THAT ONLY HAS THE CONTENT_TYPE AND API_KEY
         // WHEN CALLS ARE MADE TO THE GEMINI API, THAT IS WHEN THE REQUEST BODY WILL BE FILLED.
         return builder
+                .clientConnector(connector("gemini"))
                 .baseUrl("https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash-lite:generateContent?key="+API_KEY)
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .defaultHeader("X-goog-api-key",API_KEY)
                 .build();
     }
+
+    // Same model through the streaming endpoint; alt=sse makes Gemini answer with Server-Sent Events
+    @Bean
+    public WebClient geminiStreamWebClient(WebClient.Builder builder){
+        return builder
+                .clientConnector(connector("gemini-stream"))
+                .baseUrl("https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash-lite:streamGenerateContent?alt=sse")
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .defaultHeader("X-goog-api-key",API_KEY)
+                .build();
+    }
+
+    // Connect and response timeouts plus a bounded connection pool, so a slow or hanging upstream can't hold
+    // connections (and the threads waiting on them) indefinitely. The response timeout is the longest gap
+    // allowed between two reads, which also bounds how long a stalled stream can sit idle.
+    // Pool metrics are published under reactor.netty.connection.provider.*
+    private ReactorClientHttpConnector connector(String poolName) {
+        ConnectionProvider pool = ConnectionProvider.builder(poolName)
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMillis))
+                .maxIdleTime(Duration.ofMillis(maxIdleMillis))
+                .evictInBackground(Duration.ofMillis(maxIdleMillis))
+                .metrics(true)
+                .build();
+        HttpClient httpClient = HttpClient.create(pool)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMillis));
+        return new ReactorClientHttpConnector(httpClient);
+    }
 }
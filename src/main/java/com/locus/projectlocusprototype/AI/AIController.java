@@ -4,26 +4,67 @@ import com.locus.projectlocusprototype.Flashcard.FlashcardResponse;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
-
-import java.util.List;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
 
 @RestController
 @RequestMapping("/api/ai")
 public class AIController {
     private final AIService aIService;
+    private final GenerationJobService generationJobService;
 
-    public AIController(AIService aIService) {
+    public AIController(AIService aIService, GenerationJobService generationJobService) {
         this.aIService = aIService;
+        this.generationJobService = generationJobService;
     }
 
+    //  POST with an optional Idempotency-Key header: a retry with the same key returns the original flashcards
     @PostMapping()
-    public ResponseEntity<List<FlashcardResponse>> generate(@RequestBody  AIRequest request,
+    public ResponseEntity<AIGenerationResponse> generate(@RequestBody  AIRequest request,
+                                                            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
                                                             Authentication authentication){
-        List<FlashcardResponse> response = aIService.generateFlashcards(request,authentication);
+        AIGenerationResponse response = aIService.generateFlashcards(request,authentication,idempotencyKey);
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
+
+    //  POST that streams each flashcard as a "flashcard" Server-Sent Event as soon as it is generated and saved
+    @PostMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<FlashcardResponse>> stream(@RequestBody AIRequest request,
+                                                          Authentication authentication){
+        return aIService.streamFlashcards(request,authentication)
+                .map(flashcard -> ServerSentEvent.builder(flashcard).event("flashcard").build());
+    }
+
+    //  POST to queue a generation job, returns the job id right away (poll it or subscribe to its events)
+    @PostMapping("/jobs")
+    public ResponseEntity<GenerationJobResponse> submitJob(@RequestBody AIRequest request,
+                                                           Authentication authentication){
+        GenerationJobResponse response = generationJobService.submit(request,authentication);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    //  POST to queue a regeneration of the note's changed sections (also queued automatically when a note is edited)
+    @PostMapping("/notes/{noteId}/regenerate")
+    public ResponseEntity<GenerationJobResponse> regenerate(@PathVariable Long noteId,
+                                                            Authentication authentication){
+        GenerationJobResponse response = generationJobService.submitRegeneration(noteId,authentication);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    //  GET the status (and, once finished, the flashcards) of a generation job
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<GenerationJobResponse> job(@PathVariable Long jobId,
+                                                     Authentication authentication){
+        GenerationJobResponse response = generationJobService.getJob(jobId,authentication);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    //  GET a Server-Sent Events stream of "status" events for a generation job
+    @GetMapping(path = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter jobEvents(@PathVariable Long jobId, Authentication authentication){
+        return generationJobService.subscribe(jobId,authentication);
+    }
 }
@@ -0,0 +1,15 @@
+package com.locus.projectlocusprototype.AI;
+
+import com.locus.projectlocusprototype.Flashcard.FlashcardResponse;
+
+import java.util.List;
+
+//  duplicatesSkipped counts generated cards that were not saved because the note already had a
+//  near-identical card (or an earlier card of the same generation was near-identical).
+//  cardsRetired counts generated cards deleted because their note section no longer exists (regeneration only).
+public record AIGenerationResponse(
+        List<FlashcardResponse> flashcards,
+        int duplicatesSkipped,
+        int cardsRetired
+) {
+}
@@ -5,149 +5,345 @@ import com.locus.projectlocusprototype.Auth.User;
 import com.locus.projectlocusprototype.Exceptions.InvalidAIRequestException;
 import com.locus.projectlocusprototype.Flashcard.*;
 import com.locus.projectlocusprototype.Note.*;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.ResourceLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
-import tools.jackson.core.type.TypeReference;
-import tools.jackson.databind.ObjectMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.IOException;
-import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
 
 // The functionality of the AIService is the following
-//  1. Construct the request body going to the Gemini API
+//  1. Ask the configured FlashcardGenerationProvider for cards (Gemini by default)
 //  2. Return the contents to other  services using AIService
 
-// The Gemini API expects 3 main objects in the request body:
-//  1. A generationConfig object
-//  2. A system_instruction object
-//  3. A contents object
-
 
 
 @Service
 public class AIService {
-    private final WebClient geminiClient; // Provides the connection and minimum requirements (content_type and api_key)
+    private static final Logger log = LoggerFactory.getLogger(AIService.class);
+    private final FlashcardGenerationProvider generationProvider; // Gemini, or the local provider under the "local-ai" profile
     private final AuthService authService;
     private final NoteRepository noteRepository;
     private final FlashcardRepository flashcardRepository;
     private final FlashcardService flashcardService;
-    private String systemPrompt;
-    private final ObjectMapper objectMapper;
-
+    private final GenerationCache generationCache;
+    private final NoteChunker noteChunker;
+    private final GenerationRequestCoalescer requestCoalescer;
+    private final IdempotencyStore idempotencyStore;
+    private final FlashcardSimilarityIndex similarityIndex;
+    private final DeckStatsService deckStatsService;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxRegeneratedCards;
+    private final ExecutorService chunkExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
-    public AIService(@Qualifier("geminiWebClient") WebClient geminiClient, ResourceLoader resourceLoader, ObjectMapper objectMapper, AuthService authService, NoteRepository noteRepository, FlashcardRepository flashcardRepository, FlashcardService flashcardService) {
-        // initialize gemini client:
-        this.geminiClient = geminiClient;
-        this.objectMapper = objectMapper;
 
-        // initialize system prompt:
-        Resource systemPromptFile = resourceLoader.getResource("classpath:static/system-prompt.txt");
-        try {
-            this.systemPrompt = systemPromptFile.getContentAsString(Charset.defaultCharset());
-        } catch (IOException e) {
-            this.systemPrompt = "ERROR: System prompt was not found. If reading this, return 'ERROR'";
-            throw new RuntimeException(e);
-        }
+    public AIService(FlashcardGenerationProvider generationProvider, AuthService authService, NoteRepository noteRepository, FlashcardRepository flashcardRepository, FlashcardService flashcardService, GenerationCache generationCache, NoteChunker noteChunker, GenerationRequestCoalescer requestCoalescer, IdempotencyStore idempotencyStore, FlashcardSimilarityIndex similarityIndex, DeckStatsService deckStatsService,
+                     PlatformTransactionManager transactionManager,
+                     @Value("${locus.ai.regeneration.max-cards:30}") int maxRegeneratedCards) {
+        this.generationProvider = generationProvider;
         this.authService = authService;
         this.noteRepository = noteRepository;
         this.flashcardRepository = flashcardRepository;
         this.flashcardService = flashcardService;
+        this.generationCache = generationCache;
+        this.noteChunker = noteChunker;
+        this.requestCoalescer = requestCoalescer;
+        this.idempotencyStore = idempotencyStore;
+        this.similarityIndex = similarityIndex;
+        this.deckStatsService = deckStatsService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxRegeneratedCards = maxRegeneratedCards;
     }
 
 
     //  PUBLIC METHODS:
 
-    public List<FlashcardResponse> generateFlashcards(AIRequest request, Authentication authentication) {
-        //  Get user
-        User user = authService.getUserFromAuthenticationObject(authentication);
+    //  idempotencyKey is optional; when present a retried request gets the original response back
+    public AIGenerationResponse generateFlashcards(AIRequest request, Authentication authentication, String idempotencyKey) {
+        //  Get user id
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return generateFlashcardsForUser(userId, request);
+        }
+        validateRequest(request);
+        return idempotencyStore.execute(userId, idempotencyKey.strip(), request, () -> generateFlashcardsForUser(userId, request));
+    }
 
-        //  Get note
-        Note note = noteRepository.findNoteById(request.noteId()).orElseThrow(
-                ()-> new InvalidAIRequestException("ERROR: Note with ID" + request.noteId() + " does not exist")
+    public Flux<FlashcardResponse> streamFlashcards(AIRequest request, Authentication authentication) {
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        return streamFlashcardsForUser(userId, request);
+    }
+
+    //  Generates and saves flashcards for a note owned by userId (also used by background generation jobs).
+    //  Identical concurrent requests (same user, note and count) share a single generation and its result.
+    public AIGenerationResponse generateFlashcardsForUser(Long userId, AIRequest request) {
+        validateRequest(request);
+        GenerationRequestCoalescer.Key key = new GenerationRequestCoalescer.Key(userId, request.noteId(), request.count());
+        return requestCoalescer.execute(key, () -> generateAndSave(userId, request));
+    }
+
+    //  Brings the AI generated cards of a note in line with its edited content: cards whose section no longer
+    //  exists are retired and only new or changed sections are sent to the model, each asking for about as many
+    //  cards as earlier sections got on average. Cards the user wrote or edited are never touched.
+    //  A note that never had cards generated is left alone. The model is called outside of any transaction, the
+    //  changes to the cards and the note are then written in one.
+    public AIGenerationResponse regenerateChangedSections(Long userId, Long noteId) {
+        Note note = noteRepository.findNoteByIdAndUserId(noteId, userId).orElseThrow(
+                ()-> new InvalidAIRequestException("ERROR: Note with ID" + noteId + " does not exist")
         );
+        Set<String> generatedSections = note.getGeneratedSections();
+        if (generatedSections.isEmpty()) {
+            return new AIGenerationResponse(List.of(), 0, 0);
+        }
+        User user = authService.getUserReference(userId);
+        List<NoteSection> sections = noteChunker.sections(note.getContent());
+        Set<String> current = fingerprints(sections);
 
-        // Check if this user owns this note
-        if (!note.getUser().equals(user)){
-            throw new InvalidAIRequestException("ERROR: Note with ID" + request.noteId() + " does not exist");
+        // 1. Find the generated cards whose source section is gone
+        List<Flashcard> generatedCards = flashcardRepository.findFlashcardsByNoteIdAndUserId(noteId, userId).stream()
+                .filter(flashcard -> flashcard.getSourceSection() != null)
+                .toList();
+        List<Flashcard> retired = generatedCards.stream()
+                .filter(flashcard -> !current.contains(flashcard.getSourceSection()))
+                .toList();
+
+        // 2. Ask the model about new and changed sections only
+        List<NoteSection> changed = sections.stream()
+                .filter(section -> !generatedSections.contains(section.fingerprint()))
+                .toList();
+        Map<NoteSection, List<FlashcardDTO>> generated = Map.of();
+        if (!changed.isEmpty()) {
+            long cardsPerSection = Math.max(1, Math.round((double) generatedCards.size() / generatedSections.size()));
+            int count = (int) Math.min(maxRegeneratedCards, cardsPerSection * changed.size());
+            generated = generateForSections(note.getTitle(), changed, count);
         }
 
+        // 3. Retire the old cards, save the new ones and remember which sections are covered now
+        return saveGenerated(note, user, sections, generated, retired);
+    }
 
-        String promptText = String.format(
-                "Generate %d flashcards for the topic '%s'.\n\nSOURCE CONTENT:\n%s",
-                request.count(), note.getTitle(), note.getContent()
+    //  True when the note had cards generated and its sections changed since, i.e. regenerateChangedSections has work to do
+    public boolean hasChangedSections(Long userId, Long noteId) {
+        Note note = noteRepository.findNoteByIdAndUserId(noteId, userId).orElse(null);
+        if (note == null || note.getGeneratedSections().isEmpty()) {
+            return false;
+        }
+        return !note.getGeneratedSections().equals(fingerprints(noteChunker.sections(note.getContent())));
+    }
+
+    //  Streaming variant: cards are saved and emitted one by one as the model produces them.
+    //  A cached result is replayed instead of calling the model; a completed stream fills the cache.
+    public Flux<FlashcardResponse> streamFlashcardsForUser(Long userId, AIRequest request) {
+        validateRequest(request);
+        Note note = noteRepository.findNoteByIdAndUserId(request.noteId(), userId).orElseThrow(
+                ()-> new InvalidAIRequestException("ERROR: Note with ID" + request.noteId() + " does not exist")
         );
-        // 2. Build the request structure
-        Map<String, Object> requestBody = Map.of(
-                "contents", List.of(
-                        Map.of("parts", List.of(
-                                Map.of("text", promptText)
-                        ))
-                ),
-                "systemInstruction",Map.of(
-                        "parts", Map.of(
-                                "text",systemPrompt
-                        )
-                ),
-                "generationConfig", Map.of(
-                        "responseMimeType","application/json"//,
-                )
+        User user = authService.getUserReference(userId);
+
+        String cacheKey = generationCache.key(generationProvider.promptVersion(), note.getTitle(), note.getContent(), request.count());
+        List<FlashcardDTO> cached = generationCache.get(cacheKey);
+        Flux<FlashcardDTO> cards;
+        if (cached != null) {
+            cards = Flux.fromIterable(cached);
+        } else {
+            cards = Flux.defer(() -> {
+                List<FlashcardDTO> received = new ArrayList<>();
+                return generationProvider.stream(note.getTitle(), note.getContent(), request.count())
+                        .doOnNext(received::add)
+                        .doOnComplete(() -> generationCache.put(cacheKey, received));
+            });
+        }
+
+        Set<String> seen = new HashSet<>();
+        List<FlashcardSimilarityIndex.Signature> streamedSignatures = new ArrayList<>();
+        return cards
+                .filter(dto -> dto.front() != null && dto.back() != null && seen.add(normalizeQuestion(dto.front())))
+                // saving (and loading the note's similarity index) is blocking JDBC work, keep it off the HTTP client's event loop
+                .publishOn(Schedulers.boundedElastic())
+                .handle((dto, sink) -> {
+                    FlashcardSimilarityIndex.Signature signature = FlashcardSimilarityIndex.signature(dto.front(), dto.back());
+                    if (isNearDuplicate(note.getId(), signature, streamedSignatures, Set.of())) {
+                        return;
+                    }
+                    streamedSignatures.add(signature);
+                    Flashcard flashcard = new Flashcard(note, user, dto.back(), dto.front());
+                    flashcardRepository.save(flashcard);
+                    similarityIndex.add(note.getId(), flashcard.getId(), signature);
+                    deckStatsService.cardsAdded(List.of(flashcard));
+                    sink.next(flashcardService.flashcardToResponse(flashcard));
+                });
+    }
+
+    //  Returns the provider's cards for this title/content/count, served from the GenerationCache when the
+    //  same input (including the prompt version) was already generated
+    public List<FlashcardDTO> requestFlashcards(String title, String content, int count) {
+        String cacheKey = generationCache.key(generationProvider.promptVersion(), title, content, count);
+        List<FlashcardDTO> cached = generationCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        List<FlashcardDTO> generated = generationProvider.generate(title, content, count);
+        generationCache.put(cacheKey, generated);
+        return generated;
+    }
+
+
+    //  PRIVATE METHODS:
 
+    private AIGenerationResponse generateAndSave(Long userId, AIRequest request) {
+        //  Get note, the query only matches notes owned by this user
+        Note note = noteRepository.findNoteByIdAndUserId(request.noteId(), userId).orElseThrow(
+                ()-> new InvalidAIRequestException("ERROR: Note with ID" + request.noteId() + " does not exist")
         );
+        User user = authService.getUserReference(userId);
+        List<NoteSection> sections = noteChunker.sections(note.getContent());
 
-        try {
-            //System.out.println("DEBUG: Sending request to Gemini...");
-            //System.out.println("DEBUG: Request Body: " + objectMapper.writeValueAsString(requestBody));
+        // 1. Get the cards, one model call per section of the note (all sections run concurrently)
+        Map<NoteSection, List<FlashcardDTO>> generated = generateForSections(note.getTitle(), sections, request.count());
 
-            // 3. Convert to GeminiResponse object to make parsing easier
-            GeminiResponse geminiResponse = geminiClient.post()
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(GeminiResponse.class)
-                    .block();
+        // 2. Save them, tagged with their section, and remember which sections have cards now
+        return saveGenerated(note, user, sections, generated, List.of());
+    }
 
-            //4. Get the actual JSON text from the response
-            assert geminiResponse != null;
-            String jsonData = geminiResponse.extractText();
+    //  Spreads count over the sections and asks the model for every section concurrently.
+    //  Wall-clock time is roughly that of the slowest section. A section that failed only loses its own cards
+    //  and is left out of the result (so it is retried by the next regeneration), the call fails only if
+    //  every section failed. Sections that got no cards are in the result with an empty list.
+    private Map<NoteSection, List<FlashcardDTO>> generateForSections(String title, List<NoteSection> sections, int count) {
+        int[] allocation = noteChunker.distribute(sections.stream().map(NoteSection::text).toList(), count);
 
-            // 5. Convert to FlashcardDTO objects
-            List<FlashcardDTO> extractedCards = objectMapper.readValue(jsonData, new TypeReference<>() {
-            });
+        Map<NoteSection, List<FlashcardDTO>> generated = new LinkedHashMap<>();
+        Map<NoteSection, CompletableFuture<List<FlashcardDTO>>> futures = new LinkedHashMap<>();
+        for (int i = 0; i < sections.size(); i++) {
+            NoteSection section = sections.get(i);
+            int sectionCount = allocation[i];
+            if (sectionCount == 0) {
+                generated.putIfAbsent(section, List.of());
+                continue;
+            }
+            futures.putIfAbsent(section, CompletableFuture.supplyAsync(
+                    () -> requestFlashcards(title, section.text(), sectionCount), chunkExecutor));
+        }
 
-            //System.out.println("DEBUG: Raw Response from Google: " + rawResponse);
+        RuntimeException firstFailure = null;
+        int failures = 0;
+        for (Map.Entry<NoteSection, CompletableFuture<List<FlashcardDTO>>> entry : futures.entrySet()) {
+            try {
+                generated.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException e) {
+                failures++;
+                generated.remove(entry.getKey());
+                if (firstFailure == null) {
+                    firstFailure = e.getCause() instanceof RuntimeException cause ? cause : e;
+                }
+            }
+        }
+        if (failures == futures.size() && firstFailure != null) {
+            throw firstFailure;
+        }
+        if (failures > 0) {
+            log.warn("{} of {} sections failed while generating flashcards for '{}'", failures, futures.size(), title);
+        }
+        return generated;
+    }
 
-            // 6. Save Flashcards and generate the list of FlashcardResponse objects
-            List<FlashcardResponse> responses = new ArrayList<>();
-            for (FlashcardDTO dto: extractedCards){
-                Flashcard flashcard = new Flashcard( note, user, dto.back(), dto.front());
-                flashcardRepository.save(flashcard);
-                //  Add the flashcard to its associated note's hashset
-                note.getFlashcards().add(flashcard);
-                responses.add(flashcardService.flashcardToResponse(flashcard));
+    //  Saves the generated cards tagged with their section. Cards repeating an earlier question are dropped,
+    //  cards near-identical to one the note already has (or to an earlier card of this batch) are skipped.
+    //  Deleting the retired cards, saving the new ones and recording the covered sections is one transaction, so
+    //  a failure leaves the note as it was and the next regeneration does the same work again
+    private AIGenerationResponse saveGenerated(Note note, User user, List<NoteSection> sections,
+                                               Map<NoteSection, List<FlashcardDTO>> generated, List<Flashcard> retired) {
+        Set<Long> retiredIds = new HashSet<>();
+        retired.forEach(flashcard -> retiredIds.add(flashcard.getId()));
+        Set<String> questions = new HashSet<>();
+        List<Flashcard> flashcards = new ArrayList<>();
+        List<FlashcardSimilarityIndex.Signature> signatures = new ArrayList<>();
+        int duplicatesSkipped = 0;
+        for (Map.Entry<NoteSection, List<FlashcardDTO>> entry : generated.entrySet()) {
+            for (FlashcardDTO dto : entry.getValue()) {
+                if (dto == null || dto.front() == null || dto.back() == null || !questions.add(normalizeQuestion(dto.front()))) {
+                    continue;
+                }
+                FlashcardSimilarityIndex.Signature signature = FlashcardSimilarityIndex.signature(dto.front(), dto.back());
+                if (isNearDuplicate(note.getId(), signature, signatures, retiredIds)) {
+                    duplicatesSkipped++;
+                    continue;
+                }
+                signatures.add(signature);
+                Flashcard flashcard = new Flashcard(note, user, dto.back(), dto.front());
+                flashcard.setSourceSection(entry.getKey().fingerprint());
+                flashcards.add(flashcard);
             }
-            //  Update flashcard collection
-            noteRepository.save(note);
+        }
 
+        //  The new ids come from one sequence block (pooled-lo) and the INSERTs are sent as JDBC batches at the
+        //  single flush on commit. The similarity index only sees the changes once they are committed
+        List<FlashcardResponse> responses = transactionTemplate.execute(status -> {
+            if (!retired.isEmpty()) {
+                flashcardRepository.deleteFlashcardsByIdInAndUserId(retiredIds, user.getId());
+                retired.forEach(flashcard -> similarityIndex.remove(flashcard.getId()));
+                deckStatsService.cardsRemoved(retired);
+            }
+            flashcardRepository.saveAll(flashcards);
+            for (int i = 0; i < flashcards.size(); i++) {
+                similarityIndex.add(note.getId(), flashcards.get(i).getId(), signatures.get(i));
+            }
+            deckStatsService.cardsAdded(flashcards);
+            recordGeneratedSections(note, sections, generated.keySet());
+            return flashcards.stream().map(flashcardService::flashcardToResponse).toList();
+        });
+        return new AIGenerationResponse(responses, duplicatesSkipped, retired.size());
+    }
 
-            // Return empty list for now just to stop the 500 error while we debug logs
-            return responses;
-        } catch (WebClientResponseException e) {
-            System.err.println("DEBUG: Google API Error: " + e.getStatusCode());
-            System.err.println("DEBUG: Error Body: " + e.getResponseBodyAsString());
-            throw new RuntimeException("AI Error: " + e.getResponseBodyAsString());
-        } catch (Exception e) {
-            System.err.println("DEBUG: General Error: " + e.getMessage());
-            throw new RuntimeException(e);
+    //  A section counts as generated once the model answered for it; sections no longer in the note are forgotten
+    private void recordGeneratedSections(Note note, List<NoteSection> sections, Set<NoteSection> done) {
+        Set<String> previous = note.getGeneratedSections();
+        Set<String> covered = new LinkedHashSet<>();
+        for (NoteSection section : sections) {
+            if (previous.contains(section.fingerprint()) || done.contains(section)) {
+                covered.add(section.fingerprint());
+            }
+        }
+        noteRepository.updateGeneratedSections(note.getId(), covered);
+    }
+
+    private static Set<String> fingerprints(List<NoteSection> sections) {
+        Set<String> fingerprints = new LinkedHashSet<>();
+        for (NoteSection section : sections) {
+            fingerprints.add(section.fingerprint());
         }
+        return fingerprints;
     }
 
+    //  Cards in ignoredIds (about to be retired) don't count as existing ones
+    private boolean isNearDuplicate(Long noteId, FlashcardSimilarityIndex.Signature signature,
+                                    List<FlashcardSimilarityIndex.Signature> acceptedSignatures, Set<Long> ignoredIds) {
+        for (FlashcardSimilarityIndex.Signature accepted : acceptedSignatures) {
+            if (similarityIndex.isNearDuplicate(signature, accepted)) {
+                return true;
+            }
+        }
+        return similarityIndex.findDuplicate(noteId, signature, ignoredIds).isPresent();
+    }
+
+    private static String normalizeQuestion(String front) {
+        return front.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").strip();
+    }
+
+    public void validateRequest(AIRequest request) throws InvalidAIRequestException {
+        if (request.noteId() == null) {
+            throw new InvalidAIRequestException("ERROR: noteId is required");
+        }
+        if (request.count() == null || request.count() < 1) {
+            throw new InvalidAIRequestException("ERROR: count must be at least 1");
+        }
+    }
 
     // Internal DTO for parsing the AI's JSON output
     public record FlashcardDTO(String front, String back) {}
@@ -0,0 +1,108 @@
+package com.locus.projectlocusprototype.AI;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// AIMD (additive increase, multiplicative decrease) limit on concurrent calls to an upstream service.
+// Every call that finishes quickly while the limit is actually in use raises the limit by about one per
+// "round" of calls; a throttled, failed or slow call cuts it by backoffRatio. The limit therefore settles
+// just below the concurrency at which the upstream starts pushing back, and shrinks fast when it degrades.
+public class AdaptiveConcurrencyLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos; // calls slower than this count as congestion
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, int initialLimit, double backoffRatio, long latencyThresholdMillis) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.clamp(initialLimit, this.minLimit, this.maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+    }
+
+    // Waits up to timeout for a free slot, false if none became available
+    public boolean acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The call succeeded, latency decides whether it still counts as a sign of congestion
+    public void onSuccess(long latencyNanos) {
+        if (latencyNanos > latencyThresholdNanos) {
+            onDropped();
+            return;
+        }
+        lock.lock();
+        try {
+            // only grow while the current limit is actually being used, otherwise it drifts up unchecked
+            if (inFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The upstream throttled, timed out or failed
+    public void onDropped() {
+        lock.lock();
+        try {
+            limit = Math.max(minLimit, limit * backoffRatio);
+            release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The call ended without saying anything about upstream capacity (e.g. a rejected request)
+    public void onIgnored() {
+        lock.lock();
+        try {
+            release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        inFlight = Math.max(0, inFlight - 1);
+        released.signalAll();
+    }
+}
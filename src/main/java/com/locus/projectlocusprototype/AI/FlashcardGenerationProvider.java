@@ -0,0 +1,25 @@
+package com.locus.projectlocusprototype.AI;
+
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+// Something that can turn a note (or a chunk of one) into flashcards.
+// AIService owns everything around it (ownership checks, chunking, caching, de-duplication, persistence),
+// so an implementation only has to answer "generate count cards for this title and content".
+// GeminiFlashcardProvider is the default; LocalFlashcardProvider (profile "local-ai") generates
+// deterministic cards offline for load tests and CI.
+public interface FlashcardGenerationProvider {
+
+    //  Blocking call, may throw AIUnavailableException / ServiceOverloadedException when the provider can't serve it
+    List<AIService.FlashcardDTO> generate(String title, String content, int count);
+
+    //  Cards as they are produced. Providers without a streaming API can rely on this default
+    default Flux<AIService.FlashcardDTO> stream(String title, String content, int count) {
+        return Flux.defer(() -> Flux.fromIterable(generate(title, content, count)));
+    }
+
+    //  Identifies the prompt (or generator version) in cache keys, so cached cards are never served
+    //  for a different prompt or a different provider
+    String promptVersion();
+}
@@ -0,0 +1,72 @@
+package com.locus.projectlocusprototype.AI;
+
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Incremental parser for the model's JSON array of {"front": ..., "back": ...} objects.
+// Text arrives in arbitrary fragments (a fragment may end in the middle of a string or an escape);
+// every call to feed() returns the objects that were completed by that fragment, so each card can be
+// handled as soon as its closing brace arrives instead of after the whole array.
+// One instance per stream, not thread-safe.
+public class FlashcardStreamParser {
+    private final ObjectMapper objectMapper;
+    private final StringBuilder current = new StringBuilder();
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private boolean capturing;
+
+    public FlashcardStreamParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public List<AIService.FlashcardDTO> feed(String fragment) {
+        List<AIService.FlashcardDTO> completed = new ArrayList<>();
+        if (fragment == null) {
+            return completed;
+        }
+        for (int i = 0; i < fragment.length(); i++) {
+            char c = fragment.charAt(i);
+            if (capturing) {
+                current.append(c);
+            }
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> inString = true;
+                case '[' -> depth++;
+                case '{' -> {
+                    depth++;
+                    // an object directly inside the top-level array is one card
+                    if (depth == 2 && !capturing) {
+                        capturing = true;
+                        current.setLength(0);
+                        current.append(c);
+                    }
+                }
+                case ']' -> depth = Math.max(0, depth - 1);
+                case '}' -> {
+                    depth = Math.max(0, depth - 1);
+                    if (depth == 1 && capturing) {
+                        capturing = false;
+                        completed.add(objectMapper.readValue(current.toString(), AIService.FlashcardDTO.class));
+                        current.setLength(0);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return completed;
+    }
+}
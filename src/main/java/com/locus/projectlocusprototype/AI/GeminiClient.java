@@ -0,0 +1,332 @@
+package com.locus.projectlocusprototype.AI;
+
+import com.locus.projectlocusprototype.Auth.TokenBucket;
+import com.locus.projectlocusprototype.Exceptions.AIUnavailableException;
+import com.locus.projectlocusprototype.Exceptions.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Every call to the Gemini API goes through here. In front of the HTTP call sit, in this order:
+//  1. a circuit breaker that fails fast (503) while the upstream keeps failing,
+//  2. a requests-per-minute token bucket matched to our API quota (callers wait for a token, up to a limit),
+//  3. an AIMD adaptive concurrency limit that shrinks when Gemini throttles or slows down.
+// 429, 5xx, connection errors and timeouts are retried with exponential backoff and full jitter.
+// Connect/response timeouts and the connection pool are configured on the WebClients in AIConfig.
+@Component
+@Profile("!" + LocalFlashcardProvider.PROFILE)
+public class GeminiClient {
+    private static final Logger log = LoggerFactory.getLogger(GeminiClient.class);
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_STRING = new ParameterizedTypeReference<>() {};
+
+    private final WebClient geminiClient;
+    private final WebClient streamClient;
+    private final ObjectMapper objectMapper;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final CircuitBreaker circuitBreaker;
+    private final TokenBucket quota;
+    private final Duration callTimeout;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long maxWaitMillis;
+    private final MeterRegistry meterRegistry;
+    private final Counter retries;
+    private final Timer quotaWait;
+
+    public GeminiClient(@Qualifier("geminiWebClient") WebClient geminiClient,
+                        @Qualifier("geminiStreamWebClient") WebClient streamClient,
+                        ObjectMapper objectMapper,
+                        GeminiClientProperties properties,
+                        MeterRegistry meterRegistry) {
+        GeminiClientProperties.Client client = properties.client();
+        GeminiClientProperties.Retry retry = properties.retry();
+        GeminiClientProperties.Limiter limit = properties.limiter();
+        GeminiClientProperties.Circuit circuit = properties.circuit();
+        this.geminiClient = geminiClient;
+        this.streamClient = streamClient;
+        this.objectMapper = objectMapper;
+        this.callTimeout = Duration.ofMillis(client.callTimeoutMs());
+        this.maxWaitMillis = client.maxWaitMs();
+        this.maxAttempts = Math.max(1, retry.maxAttempts());
+        this.baseBackoffMillis = retry.baseBackoffMs();
+        this.maxBackoffMillis = retry.maxBackoffMs();
+        this.limiter = new AdaptiveConcurrencyLimiter(limit.minLimit(), properties.maxConcurrentCalls(), limit.initialLimit(),
+                limit.backoffRatio(), limit.latencyThresholdMs());
+        this.circuitBreaker = new CircuitBreaker(circuit.windowSize(), circuit.minimumCalls(), circuit.failureRateThreshold(),
+                circuit.openDurationMs());
+        this.quota = new TokenBucket(properties.quota().requestsPerMinute(), properties.quota().burst());
+        //  A response timeout at or below the call timeout always fires first, the call timeout would never apply
+        if (client.callTimeoutMs() >= client.responseTimeoutMs()) {
+            log.warn("locus.ai.client.call-timeout-ms ({}) is not below response-timeout-ms ({}), calls end at the response timeout",
+                    client.callTimeoutMs(), client.responseTimeoutMs());
+        }
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("locus.ai.client.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit for Gemini calls")
+                .register(meterRegistry);
+        Gauge.builder("locus.ai.client.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight).register(meterRegistry);
+        Gauge.builder("locus.ai.client.circuit.state", circuitBreaker, c -> c.getState().ordinal())
+                .description("0 = closed, 1 = half-open, 2 = open")
+                .register(meterRegistry);
+        FunctionCounter.builder("locus.ai.client.circuit.opened", circuitBreaker, CircuitBreaker::getTimesOpened).register(meterRegistry);
+        this.retries = Counter.builder("locus.ai.client.retries").register(meterRegistry);
+        this.quotaWait = Timer.builder("locus.ai.client.quota.wait")
+                .description("Time spent waiting for a requests-per-minute token")
+                .register(meterRegistry);
+    }
+
+    //  PUBLIC METHODS
+
+    //  Blocking generateContent call, retried on 429/5xx/timeouts. Throws AIUnavailableException when the
+    //  circuit is open or every attempt failed, ServiceOverloadedException when no slot/token came up in time,
+    //  and the original WebClientResponseException for other (non-retryable) HTTP errors.
+    public GeminiResponse generate(Map<String, Object> requestBody) {
+        for (int attempt = 1; ; attempt++) {
+            Permit permit = admit();
+            try {
+                GeminiResponse response = geminiClient.post()
+                        .bodyValue(requestBody)
+                        .retrieve()
+                        .bodyToMono(GeminiResponse.class)
+                        .timeout(callTimeout)
+                        .block();
+                permit.succeeded();
+                return response;
+            } catch (RuntimeException e) {
+                Throwable failure = Exceptions.unwrap(e);
+                permit.failed(failure);
+                if (!isRetryable(failure)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    throw new AIUnavailableException("AI model is unavailable, please try again later", failure);
+                }
+                retries.increment();
+                sleep(backoffMillis(attempt, failure));
+            }
+        }
+    }
+
+    //  streamGenerateContent call, one GeminiResponse per streamed chunk. Admission happens on subscription
+    //  (on a boundedElastic thread, it may wait for a token or a slot). A stream is only retried if it failed
+    //  before its first chunk arrived, chunks that were already delivered are never replayed.
+    public Flux<GeminiResponse> stream(Map<String, Object> requestBody) {
+        return Flux.defer(() -> {
+                    Permit permit = admit();
+                    AtomicBoolean emitted = new AtomicBoolean();
+                    return streamClient.post()
+                            .accept(MediaType.TEXT_EVENT_STREAM)
+                            .bodyValue(requestBody)
+                            .retrieve()
+                            .bodyToFlux(SSE_STRING)
+                            .mapNotNull(ServerSentEvent::data)
+                            .map(data -> objectMapper.readValue(data, GeminiResponse.class))
+                            .doOnNext(chunk -> {
+                                if (emitted.compareAndSet(false, true)) {
+                                    permit.firstChunk();
+                                }
+                            })
+                            .doOnComplete(permit::succeeded)
+                            .doOnError(permit::failed)
+                            .doOnCancel(permit::ignored)
+                            .onErrorMap(e -> emitted.get() && isRetryable(e),
+                                    e -> new AIUnavailableException("AI model stream was interrupted", e));
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                    Throwable failure = signal.failure();
+                    if (!isRetryable(failure)) {
+                        return Flux.error(failure);
+                    }
+                    if (signal.totalRetries() + 1 >= maxAttempts) {
+                        return Flux.error(new AIUnavailableException("AI model is unavailable, please try again later", failure));
+                    }
+                    retries.increment();
+                    return Flux.just(signal.totalRetries())
+                            .delayElements(Duration.ofMillis(backoffMillis((int) signal.totalRetries() + 1, failure)));
+                })));
+    }
+
+    //  PRIVATE METHODS
+
+    //  Runs the three gates; whatever was granted is handed back if a later gate refuses, including the quota
+    //  token, so a call that never reaches Gemini doesn't use up the requests-per-minute budget
+    private Permit admit() {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            rejected("circuit-open");
+            throw new AIUnavailableException("AI model is temporarily unavailable, please try again later");
+        }
+        try {
+            awaitQuota();
+            boolean acquired = false;
+            try {
+                acquired = limiter.acquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+            } finally {
+                if (!acquired) {
+                    quota.release();
+                }
+            }
+            if (!acquired) {
+                rejected("concurrency");
+                throw new ServiceOverloadedException("Too many AI requests in progress, please try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.release();
+            throw new IllegalStateException("Interrupted while waiting to call the AI model", e);
+        } catch (RuntimeException e) {
+            circuitBreaker.release();
+            throw e;
+        }
+        return new Permit();
+    }
+
+    private void awaitQuota() throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        while (!quota.tryAcquire()) {
+            long now = System.nanoTime();
+            long wait = Math.max(quota.nanosUntilAvailable(now), TimeUnit.MILLISECONDS.toNanos(1));
+            if (now + wait - deadline > 0) {
+                rejected("quota");
+                throw new ServiceOverloadedException("AI request quota reached, please try again later");
+            }
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        quotaWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void rejected(String reason) {
+        meterRegistry.counter("locus.ai.client.rejections", "reason", reason).increment();
+    }
+
+    private static boolean isRetryable(Throwable failure) {
+        if (failure instanceof WebClientResponseException e) {
+            return e.getStatusCode().value() == 429 || e.getStatusCode().is5xxServerError();
+        }
+        return failure instanceof WebClientRequestException || failure instanceof TimeoutException;
+    }
+
+    //  Full jitter: a random delay between 0 and the exponential backoff for this attempt.
+    //  A Retry-After header from a 429/503 is used as the lower bound.
+    private long backoffMillis(int attempt, Throwable failure) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if (failure instanceof WebClientResponseException e) {
+            String retryAfter = e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+            if (retryAfter != null) {
+                try {
+                    delay = Math.max(delay, Math.min(maxBackoffMillis, TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.strip()))));
+                } catch (NumberFormatException ignored) {
+                    // HTTP-date form, fall back to the computed delay
+                }
+            }
+        }
+        return delay;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry the AI model", e);
+        }
+    }
+
+    private static String outcome(Throwable failure) {
+        if (failure == null) {
+            return "success";
+        }
+        if (failure instanceof WebClientResponseException e) {
+            if (e.getStatusCode().value() == 429) {
+                return "throttled";
+            }
+            return e.getStatusCode().is5xxServerError() ? "server-error" : "client-error";
+        }
+        if (failure instanceof TimeoutException) {
+            return "timeout";
+        }
+        return failure instanceof WebClientRequestException ? "connection-error" : "error";
+    }
+
+    //  One admitted call; reports its outcome to the limiter, the circuit breaker and the call timer exactly once
+    private final class Permit {
+        private final long start = System.nanoTime();
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile long latencyNanos = -1; // time to first chunk for streams
+
+        void firstChunk() {
+            latencyNanos = System.nanoTime() - start;
+        }
+
+        void succeeded() {
+            if (done.compareAndSet(false, true)) {
+                long elapsed = System.nanoTime() - start;
+                limiter.onSuccess(latencyNanos >= 0 ? latencyNanos : elapsed);
+                circuitBreaker.onSuccess();
+                record(elapsed, null);
+            }
+        }
+
+        void failed(Throwable failure) {
+            if (done.compareAndSet(false, true)) {
+                if (isRetryable(failure)) {
+                    // throttling, 5xx, timeouts and connection errors all mean the upstream is struggling
+                    limiter.onDropped();
+                    circuitBreaker.onFailure();
+                } else {
+                    // the upstream answered (e.g. 400) or the response could not be read: not a capacity signal
+                    limiter.onIgnored();
+                    circuitBreaker.onSuccess();
+                }
+                record(System.nanoTime() - start, failure);
+                if (isRetryable(failure)) {
+                    log.warn("Gemini call failed ({}): {}", outcome(failure), failure.getMessage());
+                }
+            }
+        }
+
+        void ignored() {
+            if (done.compareAndSet(false, true)) {
+                limiter.onIgnored();
+                circuitBreaker.release();
+            }
+        }
+
+        private void record(long elapsedNanos, Throwable failure) {
+            Timer.builder("locus.ai.client.calls")
+                    .tag("outcome", outcome(failure))
+                    .register(meterRegistry)
+                    .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.locus.projectlocusprototype.AI;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Settings of GeminiClient (locus.ai.*), what each one does is described in application.properties.
+// Other locus.ai.* properties (api key, connection pool, jobs, cache, ...) are read where they are used.
+@ConfigurationProperties(prefix = "locus.ai")
+public record GeminiClientProperties(@DefaultValue Client client,
+                                     @DefaultValue Retry retry,
+                                     @DefaultValue("8") int maxConcurrentCalls,
+                                     @DefaultValue Limiter limiter,
+                                     @DefaultValue Circuit circuit,
+                                     @DefaultValue Quota quota) {
+
+    //  responseTimeoutMs is applied by the connection (AIConfig), it is here so GeminiClient can check it against callTimeoutMs
+    public record Client(@DefaultValue("25000") long callTimeoutMs,
+                         @DefaultValue("30000") long responseTimeoutMs,
+                         @DefaultValue("30000") long maxWaitMs) {
+    }
+
+    public record Retry(@DefaultValue("3") int maxAttempts,
+                        @DefaultValue("500") long baseBackoffMs,
+                        @DefaultValue("8000") long maxBackoffMs) {
+    }
+
+    public record Limiter(@DefaultValue("1") int minLimit,
+                          @DefaultValue("4") int initialLimit,
+                          @DefaultValue("20000") long latencyThresholdMs,
+                          @DefaultValue("0.5") double backoffRatio) {
+    }
+
+    public record Circuit(@DefaultValue("20") int windowSize,
+                          @DefaultValue("10") int minimumCalls,
+                          @DefaultValue("0.5") double failureRateThreshold,
+                          @DefaultValue("30000") long openDurationMs) {
+    }
+
+    public record Quota(@DefaultValue("15") int requestsPerMinute,
+                        @DefaultValue("5") int burst) {
+    }
+}
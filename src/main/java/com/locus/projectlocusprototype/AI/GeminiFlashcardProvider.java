@@ -0,0 +1,116 @@
+package com.locus.projectlocusprototype.AI;
+
+import com.locus.projectlocusprototype.Exceptions.AIUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.List;
+import java.util.Map;
+
+// Generates flashcards with the Gemini API (the default provider, replaced by LocalFlashcardProvider under "local-ai")
+
+// The Gemini API expects 3 main objects in the request body:
+//  1. A generationConfig object
+//  2. A system_instruction object
+//  3. A contents object
+@Component
+@Profile("!" + LocalFlashcardProvider.PROFILE)
+public class GeminiFlashcardProvider implements FlashcardGenerationProvider {
+    private static final Logger log = LoggerFactory.getLogger(GeminiFlashcardProvider.class);
+    private final GeminiClient geminiClient; // Timeouts, limits, retries and circuit breaking around the Gemini API
+    private final GeminiStreamClient geminiStreamClient;
+    private final ObjectMapper objectMapper;
+    private final PromptBuilder promptBuilder; // system prompt, token budget and adaptive card count
+
+    public GeminiFlashcardProvider(GeminiClient geminiClient, GeminiStreamClient geminiStreamClient, ObjectMapper objectMapper, PromptBuilder promptBuilder) {
+        this.geminiClient = geminiClient;
+        this.geminiStreamClient = geminiStreamClient;
+        this.objectMapper = objectMapper;
+        this.promptBuilder = promptBuilder;
+    }
+
+    @Override
+    public List<AIService.FlashcardDTO> generate(String title, String content, int count) {
+        return callModel(title, content, count);
+    }
+
+    @Override
+    public Flux<AIService.FlashcardDTO> stream(String title, String content, int count) {
+        return Flux.defer(() -> {
+            PromptBuilder.BuiltPrompt prompt = promptBuilder.build(title, content, count);
+            return geminiStreamClient.streamFlashcards(buildRequestBody(prompt), usage -> promptBuilder.recordUsage(prompt, usage));
+        });
+    }
+
+    @Override
+    public String promptVersion() {
+        return promptBuilder.version();
+    }
+
+
+    //  PRIVATE METHODS:
+
+    private Map<String, Object> buildRequestBody(PromptBuilder.BuiltPrompt prompt) {
+        // Build the request structure
+        Map<String, Object> requestBody = Map.of(
+                "contents", List.of(
+                        Map.of("parts", List.of(
+                                Map.of("text", prompt.userPrompt())
+                        ))
+                ),
+                "systemInstruction",Map.of(
+                        "parts", Map.of(
+                                "text",prompt.systemPrompt()
+                        )
+                ),
+                "generationConfig", Map.of(
+                        "responseMimeType","application/json",
+                        "maxOutputTokens",promptBuilder.getMaxOutputTokens()
+                )
+
+        );
+        return requestBody;
+    }
+
+    private List<AIService.FlashcardDTO> callModel(String title, String content, int count) {
+        // 1. Fit the note into the token budget, this may also lower count
+        PromptBuilder.BuiltPrompt prompt = promptBuilder.build(title, content, count);
+        Map<String, Object> requestBody = buildRequestBody(prompt);
+
+        // 2. Call the model (4xx other than 429 are not retried and come back as WebClientResponseException)
+        GeminiResponse geminiResponse;
+        try {
+            geminiResponse = geminiClient.generate(requestBody);
+        } catch (WebClientResponseException e) {
+            //  The upstream body may describe our request or key, it is logged but never sent to the client
+            log.warn("Gemini rejected the request: {} {}", e.getStatusCode(), e.getResponseBodyAsString());
+            throw new AIUnavailableException("AI model rejected the request, please try again later", e);
+        }
+
+        // 3. Get the actual JSON text from the response
+        if (geminiResponse == null) {
+            throw new AIUnavailableException("AI model returned an empty response, please try again later");
+        }
+        promptBuilder.recordUsage(prompt, geminiResponse.usageMetadata());
+        String jsonData = geminiResponse.extractText();
+        if (jsonData.isBlank()) {
+            throw new AIUnavailableException("AI model returned an empty response, please try again later");
+        }
+
+        // 4. Convert to FlashcardDTO objects
+        try {
+            return objectMapper.readValue(jsonData, new TypeReference<>() {
+            });
+        } catch (JacksonException e) {
+            log.warn("Could not parse the flashcards returned by Gemini: {}", e.getOriginalMessage());
+            throw new AIUnavailableException("AI model returned malformed flashcards, please try again later", e);
+        }
+    }
+}
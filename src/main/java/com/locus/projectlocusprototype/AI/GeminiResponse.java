@@ -3,14 +3,21 @@ package com.locus.projectlocusprototype.AI;
 import java.util.List;
 
 // This matches the actual JSON structure returned by Google
-public record GeminiResponse(List<Candidate> candidates) {
+public record GeminiResponse(List<Candidate> candidates, UsageMetadata usageMetadata) {
     public record Candidate(Content content) {}
     public record Content(List<Part> parts) {}
     public record Part(String text) {}
+    // Token counts as billed; in a stream only the last chunk carries the final numbers
+    public record UsageMetadata(Integer promptTokenCount, Integer candidatesTokenCount, Integer totalTokenCount) {}
 
     public String extractText() {
+        // streamed responses may contain chunks without content (e.g. the final one only carries finishReason)
         if (candidates != null && !candidates.isEmpty()) {
-            return candidates.getFirst().content().parts().getFirst().text();
+            Content content = candidates.getFirst().content();
+            if (content != null && content.parts() != null && !content.parts().isEmpty()) {
+                String text = content.parts().getFirst().text();
+                return text == null ? "" : text;
+            }
         }
         return "";
     }
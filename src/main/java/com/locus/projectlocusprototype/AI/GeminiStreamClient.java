@@ -0,0 +1,46 @@
+package com.locus.projectlocusprototype.AI;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// Calls the model's streaming endpoint (Server-Sent Events, one partial GeminiResponse per event)
+// and turns the text fragments into flashcards as soon as each one is complete.
+@Component
+@Profile("!" + LocalFlashcardProvider.PROFILE)
+public class GeminiStreamClient {
+    private final GeminiClient geminiClient;
+    private final ObjectMapper objectMapper;
+
+    public GeminiStreamClient(GeminiClient geminiClient, ObjectMapper objectMapper) {
+        this.geminiClient = geminiClient;
+        this.objectMapper = objectMapper;
+    }
+
+    public Flux<AIService.FlashcardDTO> streamFlashcards(Map<String, Object> requestBody) {
+        return streamFlashcards(requestBody, usage -> { });
+    }
+
+    //  onUsage receives the token usage reported with the stream once it completes
+    public Flux<AIService.FlashcardDTO> streamFlashcards(Map<String, Object> requestBody, Consumer<GeminiResponse.UsageMetadata> onUsage) {
+        return Flux.defer(() -> {
+            // the parser keeps state between fragments, so every subscription gets its own
+            FlashcardStreamParser parser = new FlashcardStreamParser(objectMapper);
+            AtomicReference<GeminiResponse.UsageMetadata> usage = new AtomicReference<>();
+            return geminiClient.stream(requestBody)
+                    .doOnNext(chunk -> {
+                        if (chunk.usageMetadata() != null) {
+                            usage.set(chunk.usageMetadata());
+                        }
+                    })
+                    .doOnComplete(() -> onUsage.accept(usage.get()))
+                    .map(GeminiResponse::extractText)
+                    .concatMapIterable(parser::feed);
+        });
+    }
+}
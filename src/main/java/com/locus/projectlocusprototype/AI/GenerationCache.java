@@ -0,0 +1,217 @@
+package com.locus.projectlocusprototype.AI;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Content-addressed cache of parsed model output.
+// The key is a SHA-256 over everything that determines the model's answer (prompt version, note title,
+// note content and card count), so an unchanged note never goes back to the model.
+// Two tiers: a size- and age-bounded in-memory LRU, and an optional directory of JSON files that survives restarts.
+@Component
+public class GenerationCache {
+    private static final Logger log = LoggerFactory.getLogger(GenerationCache.class);
+    private static final TypeReference<List<AIService.FlashcardDTO>> CARD_LIST = new TypeReference<>() {};
+
+    private record Entry(List<AIService.FlashcardDTO> cards, Instant createdAt) {}
+
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+    private final Duration maxAge;
+    private final Path diskDirectory;
+    private final int maxDiskEntries;
+    private final Map<String, Entry> memory;
+    private final Counter memoryHits;
+    private final Counter diskHits;
+    private final Counter misses;
+
+    public GenerationCache(ObjectMapper objectMapper,
+                           @Value("${locus.ai.cache.max-entries:1000}") int maxEntries,
+                           @Value("${locus.ai.cache.max-age-hours:168}") long maxAgeHours,
+                           @Value("${locus.ai.cache.disk-dir:}") String diskDirectory,
+                           @Value("${locus.ai.cache.max-disk-entries:20000}") int maxDiskEntries,
+                           MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+        this.maxAge = Duration.ofHours(maxAgeHours);
+        this.diskDirectory = diskDirectory.isBlank() ? null : Path.of(diskDirectory);
+        this.maxDiskEntries = maxDiskEntries;
+        // access-ordered LinkedHashMap = LRU, guarded by synchronizing on it
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > GenerationCache.this.maxEntries;
+            }
+        };
+        if (this.diskDirectory != null) {
+            try {
+                Files.createDirectories(this.diskDirectory);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot create AI cache directory " + diskDirectory, e);
+            }
+        }
+
+        this.memoryHits = Counter.builder("locus.ai.cache.requests").tag("result", "hit").tag("tier", "memory").register(meterRegistry);
+        this.diskHits = Counter.builder("locus.ai.cache.requests").tag("result", "hit").tag("tier", "disk").register(meterRegistry);
+        this.misses = Counter.builder("locus.ai.cache.requests").tag("result", "miss").tag("tier", "none").register(meterRegistry);
+        Gauge.builder("locus.ai.cache.size", this, GenerationCache::memorySize).register(meterRegistry);
+    }
+
+    //  PUBLIC METHODS
+
+    public String key(String promptVersion, String title, String content, int count) {
+        MessageDigest digest = sha256();
+        for (String part : new String[]{promptVersion, title, content, Integer.toString(count)}) {
+            digest.update((part == null ? "" : part).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0); // separator so ("ab","c") and ("a","bc") differ
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Returns the cached cards for this key, or null if there are none (or they are too old)
+    public List<AIService.FlashcardDTO> get(String key) {
+        Instant now = Instant.now();
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                if (isFresh(entry.createdAt(), now)) {
+                    memoryHits.increment();
+                    return entry.cards();
+                }
+                memory.remove(key);
+            }
+        }
+
+        //  The entry keeps the file's age, so a disk hit doesn't extend its lifetime in memory
+        Entry fromDisk = readFromDisk(key, now);
+        if (fromDisk != null) {
+            synchronized (memory) {
+                memory.put(key, fromDisk);
+            }
+            diskHits.increment();
+            return fromDisk.cards();
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(String key, List<AIService.FlashcardDTO> cards) {
+        List<AIService.FlashcardDTO> copy = List.copyOf(cards);
+        synchronized (memory) {
+            memory.put(key, new Entry(copy, Instant.now()));
+        }
+        writeToDisk(key, copy);
+    }
+
+    public int memorySize() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    // Drop expired entries from both tiers and keep the disk tier under its size limit (oldest files go first)
+    @Scheduled(fixedDelayString = "${locus.ai.cache.sweep-ms:600000}")
+    public void evictExpired() {
+        Instant now = Instant.now();
+        synchronized (memory) {
+            memory.values().removeIf(entry -> !isFresh(entry.createdAt(), now));
+        }
+        if (diskDirectory == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(diskDirectory)) {
+            List<Path> byAge = files
+                    .filter(path -> path.toString().endsWith(".json"))
+                    .sorted(Comparator.comparing(GenerationCache::lastModified).reversed())
+                    .toList();
+            for (int i = 0; i < byAge.size(); i++) {
+                Path path = byAge.get(i);
+                if (i >= maxDiskEntries || !isFresh(lastModified(path), now)) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to sweep AI cache directory {}", diskDirectory, e);
+        }
+    }
+
+    //  PRIVATE METHODS
+
+    private boolean isFresh(Instant createdAt, Instant now) {
+        return createdAt.plus(maxAge).isAfter(now);
+    }
+
+    //  Created at is the file's last modification, i.e. when the cards were generated
+    private Entry readFromDisk(String key, Instant now) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        Path path = diskDirectory.resolve(key + ".json");
+        try {
+            if (!Files.exists(path)) {
+                return null;
+            }
+            Instant createdAt = lastModified(path);
+            if (!isFresh(createdAt, now)) {
+                return null;
+            }
+            return new Entry(List.copyOf(objectMapper.readValue(Files.readAllBytes(path), CARD_LIST)), createdAt);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable AI cache file {}", path, e);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, List<AIService.FlashcardDTO> cards) {
+        if (diskDirectory == null) {
+            return;
+        }
+        try {
+            // write to a temp file and move it into place so readers never see a partial file
+            Path temp = Files.createTempFile(diskDirectory, key, ".tmp");
+            Files.write(temp, objectMapper.writeValueAsBytes(cards));
+            Files.move(temp, diskDirectory.resolve(key + ".json"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to write AI cache entry {}", key, e);
+        }
+    }
+
+    private static Instant lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toInstant();
+        } catch (IOException e) {
+            return Instant.EPOCH;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.locus.projectlocusprototype.AI;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// A queued/running/finished AI flashcard generation, persisted so queued work survives restarts
+@Entity
+@Table(name = "ai_generation_jobs", indexes = {
+        @Index(name = "idx_ai_generation_jobs_status", columnList = "status")
+})
+public class GenerationJob {
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED;
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED;
+        }
+    }
+
+    public enum Kind {
+        GENERATE,   // cardCount cards for the whole note
+        REGENERATE  // cards for the sections that changed since the last generation (cardCount is unused)
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @SequenceGenerator(name = "ai_generation_jobs_id", sequenceName = "ai_generation_jobs_id", allocationSize = 1)
+    @Getter
+    private Long id;
+
+    @Column(nullable = false)
+    @Getter
+    private Long userId;
+
+    @Column(nullable = false)
+    @Getter
+    private Long noteId;
+
+    @Column(nullable = false)
+    @Getter
+    private Integer cardCount;
+
+    // Null for jobs created before regeneration existed, those are GENERATE jobs
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Kind kind;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    @Getter
+    @Setter
+    private Status status = Status.QUEUED;
+
+    @Column(length = 2000)
+    @Getter
+    @Setter
+    private String errorMessage;
+
+    // Generated cards that were skipped as near-duplicates of existing ones
+    @Getter
+    @Setter
+    private Integer duplicatesSkipped;
+
+    // Generated cards deleted because their note section no longer exists
+    @Getter
+    @Setter
+    private Integer cardsRetired;
+
+    // Comma separated ids of the flashcards the job created
+    @Column(columnDefinition = "text")
+    private String flashcardIds;
+
+    @CreationTimestamp
+    @Getter
+    private Timestamp createdAt;
+
+    @UpdateTimestamp
+    @Getter
+    private Timestamp updatedAt;
+
+    public GenerationJob(Long userId, Long noteId, Kind kind, Integer cardCount) {
+        this.userId = userId;
+        this.noteId = noteId;
+        this.kind = kind;
+        this.cardCount = cardCount;
+    }
+
+    public GenerationJob() {
+
+    }
+
+    public Kind getKind() {
+        return kind == null ? Kind.GENERATE : kind;
+    }
+
+    public List<Long> getFlashcardIds() {
+        if (flashcardIds == null || flashcardIds.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(flashcardIds.split(",")).map(Long::valueOf).toList();
+    }
+
+    public void setFlashcardIds(List<Long> ids) {
+        this.flashcardIds = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,31 @@
+package com.locus.projectlocusprototype.AI;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface GenerationJobRepository extends JpaRepository<GenerationJob, Long> {
+    Optional<GenerationJob> findGenerationJobByIdAndUserId(Long id, Long userId);
+
+    List<GenerationJob> findGenerationJobsByStatusInOrderByIdAsc(Collection<GenerationJob.Status> statuses);
+
+    Optional<GenerationJob> findFirstByNoteIdAndKindAndStatusOrderByIdAsc(Long noteId, GenerationJob.Kind kind, GenerationJob.Status status);
+
+    //  Moves a job from one status to another only if it still has the expected one, returns 0 when another
+    //  worker (or instance) got there first. The timestamp is set explicitly, bulk updates bypass @UpdateTimestamp
+    @Transactional
+    @Modifying
+    @Query("UPDATE GenerationJob j SET j.status = ?3, j.updatedAt = CURRENT_TIMESTAMP WHERE j.id = ?1 AND j.status = ?2")
+    int updateStatusIfCurrent(Long id, GenerationJob.Status current, GenerationJob.Status next);
+
+    @Query("SELECT j.id FROM GenerationJob j WHERE j.status = ?1 AND j.updatedAt < ?2 ORDER BY j.id ASC")
+    List<Long> findGenerationJobIdsByStatusUpdatedBefore(GenerationJob.Status status, Timestamp cutoff);
+}
@@ -0,0 +1,22 @@
+package com.locus.projectlocusprototype.AI;
+
+import com.locus.projectlocusprototype.Flashcard.FlashcardResponse;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+//  flashcards, duplicatesSkipped and cardsRetired are only filled in once the job has SUCCEEDED
+public record GenerationJobResponse(
+        Long jobId,
+        Long noteId,
+        GenerationJob.Kind kind,
+        Integer count,
+        GenerationJob.Status status,
+        String error,
+        List<FlashcardResponse> flashcards,
+        Integer duplicatesSkipped,
+        Integer cardsRetired,
+        Timestamp createdAt,
+        Timestamp updatedAt
+) {
+}
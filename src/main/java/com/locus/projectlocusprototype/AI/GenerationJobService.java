@@ -0,0 +1,316 @@
+package com.locus.projectlocusprototype.AI;
+
+import com.locus.projectlocusprototype.Auth.AuthService;
+import com.locus.projectlocusprototype.Exceptions.InvalidAIRequestException;
+import com.locus.projectlocusprototype.Exceptions.ResourceNotFoundException;
+import com.locus.projectlocusprototype.Flashcard.FlashcardRepository;
+import com.locus.projectlocusprototype.Flashcard.FlashcardResponse;
+import com.locus.projectlocusprototype.Flashcard.FlashcardService;
+import com.locus.projectlocusprototype.Note.NoteContentChangedEvent;
+import com.locus.projectlocusprototype.Note.NoteRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+
+// Runs AI flashcard generation in the background so the multi-second model call never holds a request thread.
+// Each job runs on its own virtual thread; a semaphore caps how many talk to the model at once and the rest
+// wait (cheaply) for a permit. Jobs are stored in the database: a worker claims a job by moving it from QUEUED
+// to RUNNING in one conditional update, so a job runs once even if several workers or instances pick it up.
+// QUEUED jobs are picked up again after a restart, RUNNING ones once they have not changed for stale-after-ms
+// (their worker is assumed dead). Clients poll GET /api/ai/jobs/{id} or subscribe to its Server-Sent Events stream.
+// Besides full generations there are REGENERATE jobs, queued when a note with generated cards is edited.
+@Service
+public class GenerationJobService {
+    private static final Logger log = LoggerFactory.getLogger(GenerationJobService.class);
+
+    private final GenerationJobRepository jobRepository;
+    private final AIService aiService;
+    private final AuthService authService;
+    private final NoteRepository noteRepository;
+    private final FlashcardRepository flashcardRepository;
+    private final FlashcardService flashcardService;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final long sseTimeoutMillis;
+    private final long staleAfterMillis;
+    private final boolean regenerateOnEdit;
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    //  Jobs this instance is running, never treated as stale here however long they take
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final Object regenerationLock = new Object();
+
+    public GenerationJobService(GenerationJobRepository jobRepository, AIService aiService, AuthService authService,
+                                NoteRepository noteRepository, FlashcardRepository flashcardRepository,
+                                FlashcardService flashcardService,
+                                @Value("${locus.ai.jobs.concurrency:4}") int concurrency,
+                                @Value("${locus.ai.jobs.sse-timeout-ms:120000}") long sseTimeoutMillis,
+                                @Value("${locus.ai.jobs.stale-after-ms:900000}") long staleAfterMillis,
+                                @Value("${locus.ai.regeneration.on-edit:true}") boolean regenerateOnEdit,
+                                MeterRegistry meterRegistry) {
+        this.jobRepository = jobRepository;
+        this.aiService = aiService;
+        this.authService = authService;
+        this.noteRepository = noteRepository;
+        this.flashcardRepository = flashcardRepository;
+        this.flashcardService = flashcardService;
+        this.permits = new Semaphore(concurrency, true);
+        this.sseTimeoutMillis = sseTimeoutMillis;
+        this.staleAfterMillis = staleAfterMillis;
+        this.regenerateOnEdit = regenerateOnEdit;
+
+        Gauge.builder("locus.ai.jobs.waiting", permits, Semaphore::getQueueLength).register(meterRegistry);
+        Gauge.builder("locus.ai.jobs.running", permits, p -> concurrency - p.availablePermits()).register(meterRegistry);
+    }
+
+    //  PUBLIC METHODS
+
+    //  Create a job for the authenticated user and start it, returns immediately
+    public GenerationJobResponse submit(AIRequest request, Authentication authentication) {
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        aiService.validateRequest(request);
+        if (!noteRepository.existsNoteByIdAndUserId(request.noteId(), userId)) {
+            throw new InvalidAIRequestException("ERROR: Note with ID" + request.noteId() + " does not exist");
+        }
+        GenerationJob job = jobRepository.save(new GenerationJob(userId, request.noteId(), GenerationJob.Kind.GENERATE, request.count()));
+        dispatch(job.getId());
+        return toResponse(job);
+    }
+
+    //  Queue a regeneration of the sections of a note that changed since its cards were generated
+    public GenerationJobResponse submitRegeneration(Long noteId, Authentication authentication) {
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        if (!noteRepository.existsNoteByIdAndUserId(noteId, userId)) {
+            throw new InvalidAIRequestException("ERROR: Note with ID" + noteId + " does not exist");
+        }
+        return toResponse(submitRegeneration(userId, noteId));
+    }
+
+    //  An edit that changed sections of a note with generated cards queues a regeneration job
+    @EventListener
+    public void onNoteContentChanged(NoteContentChangedEvent event) {
+        if (regenerateOnEdit && aiService.hasChangedSections(event.userId(), event.noteId())) {
+            submitRegeneration(event.userId(), event.noteId());
+        }
+    }
+
+    public GenerationJobResponse getJob(Long jobId, Authentication authentication) {
+        return toResponse(getOwnedJob(jobId, authentication));
+    }
+
+    //  Stream status changes of a job, the current status is sent right away and the stream ends with the job
+    public SseEmitter subscribe(Long jobId, Authentication authentication) {
+        GenerationJob job = getOwnedJob(jobId, authentication);
+        SseEmitter emitter = new SseEmitter(sseTimeoutMillis);
+        subscribers.compute(jobId, (id, emitters) -> {
+            List<SseEmitter> list = (emitters == null) ? new CopyOnWriteArrayList<>() : emitters;
+            list.add(emitter);
+            return list;
+        });
+        emitter.onCompletion(() -> unsubscribe(jobId, emitter));
+        emitter.onTimeout(() -> unsubscribe(jobId, emitter));
+        emitter.onError(e -> unsubscribe(jobId, emitter));
+
+        //  Re-read after registering, so a job finishing in between is not missed
+        GenerationJob current = jobRepository.findById(job.getId()).orElse(job);
+        send(emitter, toResponse(current));
+        if (current.getStatus().isFinished()) {
+            unsubscribe(jobId, emitter);
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    //  Pick up jobs that were queued when the application last stopped, and running ones whose worker is gone.
+    //  Jobs another live instance is running are left alone, and the claim in run() stops a job from running twice
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        List<GenerationJob> queued = jobRepository.findGenerationJobsByStatusInOrderByIdAsc(List.of(GenerationJob.Status.QUEUED));
+        queued.forEach(job -> dispatch(job.getId()));
+        int requeued = requeueStaleJobs();
+        if (!queued.isEmpty() || requeued > 0) {
+            log.info("Resumed {} queued and {} stale running AI generation jobs", queued.size(), requeued);
+        }
+    }
+
+    //  Also catches jobs that were still fresh at startup, and jobs orphaned by other instances
+    @Scheduled(fixedDelayString = "${locus.ai.jobs.sweep-ms:60000}", initialDelayString = "${locus.ai.jobs.sweep-ms:60000}")
+    public void sweepStaleJobs() {
+        requeueStaleJobs();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    //  PRIVATE METHODS
+
+    //  Put RUNNING jobs that have not changed for stale-after-ms back in the queue and start them again
+    private int requeueStaleJobs() {
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - staleAfterMillis);
+        int requeued = 0;
+        for (Long jobId : jobRepository.findGenerationJobIdsByStatusUpdatedBefore(GenerationJob.Status.RUNNING, cutoff)) {
+            if (inFlight.contains(jobId)) {
+                continue;
+            }
+            if (jobRepository.updateStatusIfCurrent(jobId, GenerationJob.Status.RUNNING, GenerationJob.Status.QUEUED) == 1) {
+                log.warn("AI generation job {} was RUNNING without progress since before {}, queued it again", jobId, cutoff);
+                dispatch(jobId);
+                requeued++;
+            }
+        }
+        return requeued;
+    }
+
+    //  Single-flight per note: a regeneration that is still QUEUED reads the note only when it starts, so it already
+    //  covers this edit and is returned instead of queueing another one (a burst of edits costs one model run).
+    //  The check and the insert are serialized here, the lock is held for two short queries at most
+    private GenerationJob submitRegeneration(Long userId, Long noteId) {
+        GenerationJob job;
+        synchronized (regenerationLock) {
+            Optional<GenerationJob> queued = jobRepository.findFirstByNoteIdAndKindAndStatusOrderByIdAsc(
+                    noteId, GenerationJob.Kind.REGENERATE, GenerationJob.Status.QUEUED);
+            if (queued.isPresent()) {
+                return queued.get();
+            }
+            job = jobRepository.save(new GenerationJob(userId, noteId, GenerationJob.Kind.REGENERATE, 0));
+        }
+        dispatch(job.getId());
+        return job;
+    }
+
+    private void dispatch(Long jobId) {
+        workers.execute(() -> run(jobId));
+    }
+
+    private void run(Long jobId) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            // shutting down, the job stays QUEUED and is resumed on the next start
+            Thread.currentThread().interrupt();
+            return;
+        }
+        inFlight.add(jobId);
+        try {
+            //  Only the worker that moves the job out of QUEUED runs it
+            if (jobRepository.updateStatusIfCurrent(jobId, GenerationJob.Status.QUEUED, GenerationJob.Status.RUNNING) == 0) {
+                return;
+            }
+            GenerationJob job = jobRepository.findById(jobId).orElse(null);
+            if (job == null) {
+                return;
+            }
+            publish(job);
+
+            try {
+                AIGenerationResponse created = switch (job.getKind()) {
+                    case GENERATE -> aiService.generateFlashcardsForUser(
+                            job.getUserId(), new AIRequest(job.getNoteId(), job.getCardCount()));
+                    case REGENERATE -> aiService.regenerateChangedSections(job.getUserId(), job.getNoteId());
+                };
+                job.setFlashcardIds(created.flashcards().stream().map(FlashcardResponse::id).toList());
+                job.setDuplicatesSkipped(created.duplicatesSkipped());
+                job.setCardsRetired(created.cardsRetired());
+                job.setStatus(GenerationJob.Status.SUCCEEDED);
+            } catch (RuntimeException e) {
+                log.warn("AI generation job {} failed", jobId, e);
+                job.setErrorMessage(truncate(e.getMessage()));
+                job.setStatus(GenerationJob.Status.FAILED);
+            }
+            job = jobRepository.save(job);
+            publish(job);
+        } finally {
+            inFlight.remove(jobId);
+            permits.release();
+        }
+    }
+
+    private GenerationJob getOwnedJob(Long jobId, Authentication authentication) {
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        return jobRepository.findGenerationJobByIdAndUserId(jobId, userId).orElseThrow(
+                () -> new ResourceNotFoundException("ERROR: Generation job with ID " + jobId + " does not exist"));
+    }
+
+    //  A finished job takes its subscribers with it, so the map only holds jobs that are still going
+    private void publish(GenerationJob job) {
+        boolean finished = job.getStatus().isFinished();
+        List<SseEmitter> emitters = finished ? subscribers.remove(job.getId()) : subscribers.get(job.getId());
+        if (emitters == null || emitters.isEmpty()) {
+            return;
+        }
+        GenerationJobResponse response = toResponse(job);
+        for (SseEmitter emitter : emitters) {
+            send(emitter, response);
+            if (finished) {
+                emitter.complete();
+            }
+        }
+    }
+
+    //  Drops the job's entry along with its last emitter
+    private void unsubscribe(Long jobId, SseEmitter emitter) {
+        subscribers.computeIfPresent(jobId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private void send(SseEmitter emitter, GenerationJobResponse response) {
+        try {
+            emitter.send(SseEmitter.event().name("status").data(response));
+        } catch (IOException | IllegalStateException e) {
+            // client went away
+            emitter.completeWithError(e);
+        }
+    }
+
+    private GenerationJobResponse toResponse(GenerationJob job) {
+        List<FlashcardResponse> flashcards = List.of();
+        if (job.getStatus() == GenerationJob.Status.SUCCEEDED && !job.getFlashcardIds().isEmpty()) {
+            flashcards = flashcardRepository.findFlashcardsByIdInAndUserId(job.getFlashcardIds(), job.getUserId())
+                    .stream()
+                    .map(flashcardService::flashcardToResponse)
+                    .sorted(Comparator.comparing(FlashcardResponse::id))
+                    .toList();
+        }
+        return new GenerationJobResponse(
+                job.getId(),
+                job.getNoteId(),
+                job.getKind(),
+                job.getCardCount(),
+                job.getStatus(),
+                job.getErrorMessage(),
+                flashcards,
+                job.getDuplicatesSkipped(),
+                job.getCardsRetired(),
+                job.getCreatedAt(),
+                job.getUpdatedAt()
+        );
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 2000 ? message : message.substring(0, 2000);
+    }
+}
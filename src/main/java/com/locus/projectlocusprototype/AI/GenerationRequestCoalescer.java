@@ -0,0 +1,66 @@
+package com.locus.projectlocusprototype.AI;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Single-flight for generation requests: while a generation for (user, note, count) is running, identical
+// requests (double-clicks, client retries, a job for the same note) wait for it and get the same flashcards
+// instead of calling the model again and saving a second set of cards.
+// Only in-flight work is shared; once it finishes the next identical request generates again.
+@Component
+public class GenerationRequestCoalescer {
+    public record Key(Long userId, Long noteId, int count) {}
+
+    private final Map<Key, CompletableFuture<AIGenerationResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public GenerationRequestCoalescer(MeterRegistry meterRegistry) {
+        this.coalesced = Counter.builder("locus.ai.single-flight.coalesced")
+                .description("Generation requests that joined an identical in-flight request")
+                .register(meterRegistry);
+        Gauge.builder("locus.ai.single-flight.in-flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    public AIGenerationResponse execute(Key key, Supplier<AIGenerationResponse> generate) {
+        CompletableFuture<AIGenerationResponse> mine = new CompletableFuture<>();
+        CompletableFuture<AIGenerationResponse> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+        try {
+            AIGenerationResponse result = generate.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            // waiting requests fail with the same error
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    //  Waits for a shared result, rethrowing the original exception instead of a CompletionException
+    static AIGenerationResponse await(CompletableFuture<AIGenerationResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
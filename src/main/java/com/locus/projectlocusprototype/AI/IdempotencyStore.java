@@ -0,0 +1,117 @@
+package com.locus.projectlocusprototype.AI;
+
+import com.locus.projectlocusprototype.Exceptions.InvalidAIRequestException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// Remembers the response of every POST /api/ai that carried an Idempotency-Key, per user, so a retried
+// request with the same key gets the original flashcards back instead of generating (and saving) new ones.
+// A retry that arrives while the first request is still running waits for it. Failed requests are forgotten,
+// so they can be retried with the same key. Reusing a key for a different note/count is rejected.
+// Bounded (least recently used entries go first) and expiring; entries live in memory only.
+@Component
+public class IdempotencyStore {
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private record Entry(String fingerprint, CompletableFuture<AIGenerationResponse> result, Instant createdAt) {}
+
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Map<String, Entry> entries;
+    private final Counter replays;
+
+    public IdempotencyStore(@Value("${locus.ai.idempotency.max-entries:10000}") int maxEntries,
+                            @Value("${locus.ai.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                            MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        // access-ordered LinkedHashMap = LRU, guarded by synchronizing on it
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > IdempotencyStore.this.maxEntries;
+            }
+        };
+        this.replays = Counter.builder("locus.ai.idempotency.replays")
+                .description("Requests answered with the stored response of an earlier request with the same Idempotency-Key")
+                .register(meterRegistry);
+        Gauge.builder("locus.ai.idempotency.size", this, IdempotencyStore::size).register(meterRegistry);
+    }
+
+    //  PUBLIC METHODS
+
+    public AIGenerationResponse execute(Long userId, String idempotencyKey, AIRequest request,
+                                           Supplier<AIGenerationResponse> generate) {
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidAIRequestException("ERROR: Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String key = userId + ":" + idempotencyKey;
+        String fingerprint = request.noteId() + ":" + request.count();
+        Instant now = Instant.now();
+
+        Entry mine = new Entry(fingerprint, new CompletableFuture<>(), now);
+        Entry existing;
+        synchronized (entries) {
+            existing = entries.get(key);
+            if (existing != null && !isFresh(existing, now)) {
+                entries.remove(key);
+                existing = null;
+            }
+            if (existing == null) {
+                entries.put(key, mine);
+            }
+        }
+
+        if (existing != null) {
+            if (!existing.fingerprint().equals(fingerprint)) {
+                throw new InvalidAIRequestException("ERROR: Idempotency-Key was already used for a different request");
+            }
+            replays.increment();
+            return GenerationRequestCoalescer.await(existing.result());
+        }
+
+        try {
+            AIGenerationResponse response = generate.get();
+            mine.result().complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            synchronized (entries) {
+                entries.remove(key, mine);
+            }
+            mine.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${locus.ai.idempotency.sweep-ms:600000}")
+    public void evictExpired() {
+        Instant now = Instant.now();
+        synchronized (entries) {
+            entries.values().removeIf(entry -> !isFresh(entry, now));
+        }
+    }
+
+    //  PRIVATE METHODS
+
+    //  Entries still running never expire, their callers are waiting on them
+    private boolean isFresh(Entry entry, Instant now) {
+        return !entry.result().isDone() || entry.createdAt().plus(ttl).isAfter(now);
+    }
+}
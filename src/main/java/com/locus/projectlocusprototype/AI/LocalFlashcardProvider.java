@@ -0,0 +1,140 @@
+package com.locus.projectlocusprototype.AI;
+
+import com.locus.projectlocusprototype.Exceptions.AIUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// Offline provider for load tests and CI, active under the "local-ai" profile (no API key or network needed).
+// Cards are derived deterministically from the note (one card per sentence, cycling when count is larger),
+// so the same note always yields the same cards. Latency and failures are simulated:
+//  latency.distribution = none | fixed | uniform | lognormal
+//    fixed: always median-ms, uniform: between 0 and 2 * median-ms, lognormal: median-ms * e^(sigma * N(0,1))
+//    every sample is capped at max-ms
+//  error-rate = share of calls that fail with AIUnavailableException (a 503, like a Gemini outage)
+//  seed = fixed seed for reproducible latency/error sequences, 0 = random
+@Component
+@Profile(LocalFlashcardProvider.PROFILE)
+public class LocalFlashcardProvider implements FlashcardGenerationProvider {
+    public static final String PROFILE = "local-ai";
+    private static final int FRONT_WORDS = 8;
+
+    public enum LatencyDistribution { NONE, FIXED, UNIFORM, LOGNORMAL }
+
+    private final LatencyDistribution distribution;
+    private final long medianMillis;
+    private final double sigma;
+    private final long maxMillis;
+    private final double errorRate;
+    private final Random random;
+    private final Counter simulatedErrors;
+
+    public LocalFlashcardProvider(@Value("${locus.ai.local.latency.distribution:lognormal}") String distribution,
+                                  @Value("${locus.ai.local.latency.median-ms:800}") long medianMillis,
+                                  @Value("${locus.ai.local.latency.sigma:0.5}") double sigma,
+                                  @Value("${locus.ai.local.latency.max-ms:10000}") long maxMillis,
+                                  @Value("${locus.ai.local.error-rate:0}") double errorRate,
+                                  @Value("${locus.ai.local.seed:0}") long seed,
+                                  MeterRegistry meterRegistry) {
+        this.distribution = LatencyDistribution.valueOf(distribution.strip().toUpperCase(Locale.ROOT));
+        this.medianMillis = Math.max(0, medianMillis);
+        this.sigma = sigma;
+        this.maxMillis = Math.max(0, maxMillis);
+        this.errorRate = errorRate;
+        this.random = seed == 0 ? new Random() : new Random(seed);
+        this.simulatedErrors = Counter.builder("locus.ai.local.simulated-errors").register(meterRegistry);
+    }
+
+    @Override
+    public List<AIService.FlashcardDTO> generate(String title, String content, int count) {
+        long latency = sampleLatencyMillis();
+        boolean fail = sampleFailure();
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while simulating AI latency", e);
+        }
+        if (fail) {
+            throw simulatedFailure();
+        }
+        return cardsFor(title, content, count);
+    }
+
+    //  The sampled latency is spread evenly over the cards, so streaming clients see them arrive one by one
+    @Override
+    public Flux<AIService.FlashcardDTO> stream(String title, String content, int count) {
+        return Flux.defer(() -> {
+            List<AIService.FlashcardDTO> cards = cardsFor(title, content, count);
+            Duration perCard = Duration.ofMillis(sampleLatencyMillis() / Math.max(1, cards.size()));
+            Flux<AIService.FlashcardDTO> emitted = Flux.fromIterable(cards).delayElements(perCard);
+            if (sampleFailure()) {
+                // fail half way through, after some cards were already delivered
+                return emitted.take(cards.size() / 2).concatWith(Flux.error(this::simulatedFailure));
+            }
+            return emitted;
+        });
+    }
+
+    @Override
+    public String promptVersion() {
+        return PROFILE;
+    }
+
+    //  Deterministic cards: the back is a sentence of the note, the front asks about its opening words
+    static List<AIService.FlashcardDTO> cardsFor(String title, String content, int count) {
+        List<String> sentences = Arrays.stream((content == null ? "" : content).split("(?<=[.!?])\\s+|\\R+"))
+                .map(String::strip)
+                .filter(sentence -> !sentence.isEmpty())
+                .toList();
+        if (sentences.isEmpty()) {
+            sentences = List.of(title);
+        }
+        List<AIService.FlashcardDTO> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String sentence = sentences.get(i % sentences.size());
+            int round = i / sentences.size();
+            String front = "What does '" + title + "' say about \"" + openingWords(sentence) + "\""
+                    + (round > 0 ? " (" + (round + 1) + ")" : "") + "?";
+            cards.add(new AIService.FlashcardDTO(front, sentence));
+        }
+        return cards;
+    }
+
+    private static String openingWords(String sentence) {
+        String[] words = sentence.split("\\s+");
+        if (words.length <= FRONT_WORDS) {
+            return sentence;
+        }
+        return String.join(" ", Arrays.copyOf(words, FRONT_WORDS)) + "...";
+    }
+
+    private long sampleLatencyMillis() {
+        double sample = switch (distribution) {
+            case NONE -> 0;
+            case FIXED -> medianMillis;
+            case UNIFORM -> random.nextDouble() * 2 * medianMillis;
+            case LOGNORMAL -> medianMillis * Math.exp(sigma * random.nextGaussian());
+        };
+        return Math.min(maxMillis, Math.round(sample));
+    }
+
+    private boolean sampleFailure() {
+        return errorRate > 0 && random.nextDouble() < errorRate;
+    }
+
+    private AIUnavailableException simulatedFailure() {
+        simulatedErrors.increment();
+        return new AIUnavailableException("Simulated AI provider failure");
+    }
+}
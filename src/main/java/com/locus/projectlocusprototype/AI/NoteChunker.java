@@ -0,0 +1,155 @@
+package com.locus.projectlocusprototype.AI;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// Splits note content into sections that can be sent to the model independently.
+// Sections follow the note's own structure: paragraphs (blank lines) and markdown headings are never split
+// unless a single paragraph is longer than the chunk size, in which case it is split at sentence ends.
+// A heading always starts a new section. Otherwise paragraphs are merged until the section holds at least
+// minSectionChars and a paragraph whose hash marks a boundary is reached (content-defined chunking), so that
+// editing one paragraph changes the fingerprint of its section (sometimes the next one too) instead of
+// shifting every section after it.
+@Component
+public class NoteChunker {
+    private static final Pattern PARAGRAPH_BREAK = Pattern.compile("\\n\\s*\\n");
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?])\\s+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int BOUNDARY_ONE_IN = 3;
+    private static final int FINGERPRINT_BYTES = 8; // 16 hex characters
+
+    private final int maxChunkChars;
+    private final int minSectionChars;
+
+    public NoteChunker(@Value("${locus.ai.chunking.max-chunk-chars:4000}") int maxChunkChars,
+                       @Value("${locus.ai.chunking.min-section-chars:1200}") int minSectionChars) {
+        this.maxChunkChars = maxChunkChars;
+        this.minSectionChars = Math.min(minSectionChars, maxChunkChars);
+    }
+
+    public List<NoteSection> sections(String content) {
+        List<NoteSection> sections = new ArrayList<>();
+        if (content == null || content.isBlank()) {
+            return sections;
+        }
+        StringBuilder current = new StringBuilder();
+        for (String paragraph : PARAGRAPH_BREAK.split(content.strip())) {
+            paragraph = paragraph.strip();
+            if (paragraph.isEmpty()) {
+                continue;
+            }
+            // a heading starts a new section
+            if (paragraph.startsWith("#")) {
+                flush(sections, current);
+            }
+            for (String piece : splitOversized(paragraph)) {
+                if (!current.isEmpty() && current.length() + 2 + piece.length() > maxChunkChars) {
+                    flush(sections, current);
+                }
+                if (!current.isEmpty()) {
+                    current.append("\n\n");
+                }
+                current.append(piece);
+                // boundaries depend on the paragraph itself rather than its offset, so an edit only moves
+                // nearby boundaries and sections further on keep their fingerprints
+                if (current.length() >= minSectionChars && isBoundary(piece)) {
+                    flush(sections, current);
+                }
+            }
+        }
+        flush(sections, current);
+        return sections;
+    }
+
+    //  Fingerprint of a section's text, whitespace is normalized so reflowing a paragraph doesn't change it
+    public static String fingerprint(String text) {
+        String normalized = WHITESPACE.matcher(text.strip()).replaceAll(" ");
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, FINGERPRINT_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Spread count cards over the chunks (section texts) in proportion to their length (largest remainder method).
+    // When there are fewer cards than chunks, the longest chunks get one card each and the rest get none.
+    public int[] distribute(List<String> chunks, int count) {
+        int[] allocation = new int[chunks.size()];
+        long totalLength = 0;
+        for (String chunk : chunks) {
+            totalLength += chunk.length();
+        }
+        if (chunks.isEmpty() || count <= 0 || totalLength == 0) {
+            return allocation;
+        }
+        double[] remainders = new double[chunks.size()];
+        int assigned = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            double exact = (double) count * chunks.get(i).length() / totalLength;
+            allocation[i] = (int) exact;
+            remainders[i] = exact - allocation[i];
+            assigned += allocation[i];
+        }
+        while (assigned < count) {
+            int best = 0;
+            for (int i = 1; i < remainders.length; i++) {
+                if (remainders[i] > remainders[best]) {
+                    best = i;
+                }
+            }
+            allocation[best]++;
+            remainders[best] = -1;
+            assigned++;
+        }
+        return allocation;
+    }
+
+    private List<String> splitOversized(String paragraph) {
+        if (paragraph.length() <= maxChunkChars) {
+            return List.of(paragraph);
+        }
+        List<String> pieces = new ArrayList<>();
+        StringBuilder piece = new StringBuilder();
+        for (String sentence : SENTENCE_END.split(paragraph)) {
+            if (!piece.isEmpty() && piece.length() + 1 + sentence.length() > maxChunkChars) {
+                pieces.add(piece.toString());
+                piece.setLength(0);
+            }
+            // a single sentence longer than a chunk is hard-split
+            while (sentence.length() > maxChunkChars) {
+                pieces.add(sentence.substring(0, maxChunkChars));
+                sentence = sentence.substring(maxChunkChars);
+            }
+            if (!piece.isEmpty()) {
+                piece.append(' ');
+            }
+            piece.append(sentence);
+        }
+        if (!piece.isEmpty()) {
+            pieces.add(piece.toString());
+        }
+        return pieces;
+    }
+
+    //  About one paragraph in BOUNDARY_ONE_IN ends a section (once the section is long enough)
+    private static boolean isBoundary(String paragraph) {
+        return Math.floorMod(WHITESPACE.matcher(paragraph).replaceAll(" ").hashCode(), BOUNDARY_ONE_IN) == 0;
+    }
+
+    private static void flush(List<NoteSection> sections, StringBuilder current) {
+        if (!current.isEmpty()) {
+            String text = current.toString();
+            sections.add(new NoteSection(fingerprint(text), text));
+            current.setLength(0);
+        }
+    }
+}
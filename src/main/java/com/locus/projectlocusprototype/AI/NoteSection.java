@@ -0,0 +1,9 @@
+package com.locus.projectlocusprototype.AI;
+
+//  One section of a note as sent to the model. fingerprint identifies the section's text (whitespace
+//  differences aside), a generated flashcard stores the fingerprint of the section it came from.
+public record NoteSection(
+        String fingerprint,
+        String text
+) {
+}
@@ -0,0 +1,197 @@
+package com.locus.projectlocusprototype.AI;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Builds the model prompt for one generation request under a token budget.
+//  1. The note content is compressed: markup is stripped, whitespace normalized and repeated lines dropped.
+//  2. If system prompt + instructions + content still exceed the input budget, the content is cut
+//     (at a paragraph or sentence boundary when there is one close to the limit).
+//  3. count is lowered when the remaining content is too short to support that many distinct cards, or when
+//     that many cards wouldn't fit in the output budget.
+// Token counts are estimated locally (TokenEstimator); the system prompt is estimated once at startup.
+// recordUsage() compares the estimate with the usage Gemini reports, both are published as metrics.
+@Component
+public class PromptBuilder {
+    private static final Logger log = LoggerFactory.getLogger(PromptBuilder.class);
+    private static final String INSTRUCTION = "Generate %d flashcards for the topic '%s'.\n\nSOURCE CONTENT:\n";
+    private static final Pattern HTML_TAG = Pattern.compile("<[^<>]{1,200}>");
+    private static final Pattern MARKDOWN_LINK = Pattern.compile("!?\\[([^\\]]*)]\\([^)]*\\)");
+    private static final Pattern MARKDOWN_EMPHASIS = Pattern.compile("(\\*\\*|__|~~|`+)");
+    private static final Pattern LINE_PREFIX = Pattern.compile("^\\s*(#{1,6}|>+)\\s*");
+    private static final Pattern SPACES = Pattern.compile("[ \\t\\u00A0\\f]+");
+
+    //  The prompt as sent, plus what was done to fit it into the budget
+    public record BuiltPrompt(
+            String systemPrompt,
+            String userPrompt,
+            int count,
+            int estimatedInputTokens,
+            boolean contentTrimmed
+    ) {
+    }
+
+    private final String systemPrompt;
+    private final int systemPromptTokens;
+    private final int maxInputTokens;
+    private final int maxOutputTokens;
+    private final int minContentTokensPerCard;
+    private final int outputTokensPerCard;
+    private final DistributionSummary estimatedInput;
+    private final DistributionSummary actualInput;
+    private final DistributionSummary actualOutput;
+    private final DistributionSummary estimateError;
+    private final Counter trimmed;
+    private final Counter countReduced;
+
+    public PromptBuilder(ResourceLoader resourceLoader,
+                         @Value("${locus.ai.prompt.max-input-tokens:8000}") int maxInputTokens,
+                         @Value("${locus.ai.prompt.max-output-tokens:4096}") int maxOutputTokens,
+                         @Value("${locus.ai.prompt.min-content-tokens-per-card:25}") int minContentTokensPerCard,
+                         @Value("${locus.ai.prompt.output-tokens-per-card:60}") int outputTokensPerCard,
+                         MeterRegistry meterRegistry) {
+        // initialize system prompt:
+        Resource systemPromptFile = resourceLoader.getResource("classpath:static/system-prompt.txt");
+        try {
+            this.systemPrompt = systemPromptFile.getContentAsString(Charset.defaultCharset());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.systemPromptTokens = TokenEstimator.estimate(systemPrompt);
+        this.maxInputTokens = maxInputTokens;
+        this.maxOutputTokens = maxOutputTokens;
+        this.minContentTokensPerCard = Math.max(1, minContentTokensPerCard);
+        this.outputTokensPerCard = Math.max(1, outputTokensPerCard);
+
+        this.estimatedInput = DistributionSummary.builder("locus.ai.tokens.input.estimated").baseUnit("tokens").register(meterRegistry);
+        this.actualInput = DistributionSummary.builder("locus.ai.tokens.input.actual").baseUnit("tokens").register(meterRegistry);
+        this.actualOutput = DistributionSummary.builder("locus.ai.tokens.output.actual").baseUnit("tokens").register(meterRegistry);
+        this.estimateError = DistributionSummary.builder("locus.ai.tokens.estimate.error")
+                .description("Absolute difference between estimated and reported input tokens, in percent of the reported count")
+                .baseUnit("percent")
+                .register(meterRegistry);
+        this.trimmed = Counter.builder("locus.ai.prompt.trimmed").register(meterRegistry);
+        this.countReduced = Counter.builder("locus.ai.prompt.count-reduced").register(meterRegistry);
+    }
+
+    //  PUBLIC METHODS
+
+    public BuiltPrompt build(String title, String content, int requestedCount) {
+        String compressed = compress(content);
+        int overhead = systemPromptTokens + TokenEstimator.estimate(INSTRUCTION.formatted(requestedCount, title));
+        int contentBudget = Math.max(0, maxInputTokens - overhead);
+
+        int contentTokens = TokenEstimator.estimate(compressed);
+        boolean contentTrimmed = contentTokens > contentBudget;
+        if (contentTrimmed) {
+            compressed = trimToBudget(compressed, contentBudget);
+            contentTokens = TokenEstimator.estimate(compressed);
+            trimmed.increment();
+        }
+
+        int count = Math.min(requestedCount, Math.max(1, contentTokens / minContentTokensPerCard));
+        count = Math.min(count, Math.max(1, maxOutputTokens / outputTokensPerCard));
+        if (count < requestedCount) {
+            countReduced.increment();
+        }
+
+        String userPrompt = INSTRUCTION.formatted(count, title) + compressed;
+        int estimated = systemPromptTokens + TokenEstimator.estimate(userPrompt);
+        estimatedInput.record(estimated);
+        return new BuiltPrompt(systemPrompt, userPrompt, count, estimated, contentTrimmed);
+    }
+
+    //  Upper bound for generationConfig.maxOutputTokens, keeps a runaway answer from dominating latency
+    public int getMaxOutputTokens() {
+        return maxOutputTokens;
+    }
+
+    //  Identifies everything that shapes the prompt, for cache keys
+    public String version() {
+        return systemPrompt + '\u0000' + maxInputTokens + ':' + minContentTokensPerCard + ':' + outputTokensPerCard;
+    }
+
+    public void recordUsage(BuiltPrompt prompt, GeminiResponse.UsageMetadata usage) {
+        if (usage == null || usage.promptTokenCount() == null) {
+            return;
+        }
+        int actual = usage.promptTokenCount();
+        actualInput.record(actual);
+        if (usage.candidatesTokenCount() != null) {
+            actualOutput.record(usage.candidatesTokenCount());
+        }
+        if (actual > 0) {
+            estimateError.record(100.0 * Math.abs(prompt.estimatedInputTokens() - actual) / actual);
+        }
+        log.debug("Gemini request: {} cards, ~{} input tokens estimated, {} reported, {} output tokens{}",
+                prompt.count(), prompt.estimatedInputTokens(), actual, usage.candidatesTokenCount(),
+                prompt.contentTrimmed() ? " (content trimmed)" : "");
+    }
+
+    //  Strips markup, normalizes whitespace and drops repeated lines (headers/footers pasted from slides, etc.)
+    static String compress(String content) {
+        if (content == null) {
+            return "";
+        }
+        String text = HTML_TAG.matcher(content).replaceAll(" ");
+        text = MARKDOWN_LINK.matcher(text).replaceAll("$1");
+        text = MARKDOWN_EMPHASIS.matcher(text).replaceAll("");
+
+        StringBuilder out = new StringBuilder(text.length());
+        Set<String> seen = new HashSet<>();
+        boolean previousBlank = true;
+        for (String line : text.split("\\R")) {
+            String normalized = SPACES.matcher(LINE_PREFIX.matcher(line).replaceFirst("")).replaceAll(" ").strip();
+            if (normalized.isEmpty()) {
+                if (!previousBlank) {
+                    out.append('\n');
+                    previousBlank = true;
+                }
+                continue;
+            }
+            if (!seen.add(normalized.toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+            out.append(normalized).append('\n');
+            previousBlank = false;
+        }
+        return out.toString().strip();
+    }
+
+    //  PRIVATE METHODS
+
+    //  Longest prefix within budget (binary search on the estimate), then back to a nearby paragraph/sentence end
+    private static String trimToBudget(String content, int budget) {
+        int low = 0;
+        int high = content.length();
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (TokenEstimator.estimate(content.substring(0, mid)) <= budget) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        String prefix = content.substring(0, low);
+        int boundary = Math.max(prefix.lastIndexOf('\n'), Math.max(prefix.lastIndexOf(". "), prefix.lastIndexOf(".\n")));
+        // only snap back if that loses at most a fifth of what fits
+        if (boundary > low * 4 / 5) {
+            prefix = prefix.substring(0, boundary + 1);
+        }
+        return prefix.strip();
+    }
+}
@@ -0,0 +1,37 @@
+package com.locus.projectlocusprototype.AI;
+
+// Local, dependency-free estimate of how many tokens a text costs, without calling the model's countTokens API.
+// Subword tokenizers average roughly four characters of English per token, short words are usually one token,
+// and punctuation/symbols mostly get a token each; whitespace is folded into the neighbouring tokens.
+// Good enough to budget a prompt (typically within 10-20% of the real count), not for billing.
+public final class TokenEstimator {
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int tokens = 0;
+        int wordLength = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                wordLength++;
+                continue;
+            }
+            tokens += wordTokens(wordLength);
+            wordLength = 0;
+            if (!Character.isWhitespace(c)) {
+                tokens++;
+            }
+        }
+        return tokens + wordTokens(wordLength);
+    }
+
+    private static int wordTokens(int length) {
+        return (length + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+}
@@ -1,8 +1,10 @@
 package com.locus.projectlocusprototype.Auth;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -14,17 +16,27 @@ public class AuthController {
         this.authService = authService;
     }
 
+    //  getRemoteAddr() is the client IP resolved through trusted proxies only (server.forward-headers-strategy=native),
+    //  so a client can't pick its own rate limit bucket with a forged X-Forwarded-For
+
     // POST method to create a user
     @PostMapping("/register")
-    public ResponseEntity<String> createUser(@Valid @RequestBody UserRequest request){
-        authService.createUser(request);
+    public ResponseEntity<String> createUser(@Valid @RequestBody UserRequest request, HttpServletRequest httpRequest){
+        authService.createUser(request, httpRequest.getRemoteAddr());
         return ResponseEntity.status(HttpStatus.CREATED).body("Successfully created user " + request.username());
     }
 
     //  POST method to log in a user returns a JWT
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> loginUser(@RequestBody UserRequest request) {
-        AuthResponse response = authService.processLoginRequest(request);
+    public ResponseEntity<AuthResponse> loginUser(@RequestBody UserRequest request, HttpServletRequest httpRequest) {
+        AuthResponse response = authService.processLoginRequest(request, httpRequest.getRemoteAddr());
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
+
+    //  POST method to revoke every JWT issued so far to the calling user (log out everywhere)
+    @PostMapping("/revoke")
+    public ResponseEntity<String> revokeTokens(Authentication authentication) {
+        authService.revokeTokens(authentication);
+        return ResponseEntity.status(HttpStatus.OK).body("Successfully revoked all tokens");
+    }
 }
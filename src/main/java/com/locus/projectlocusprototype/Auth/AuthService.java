@@ -1,28 +1,28 @@
 package com.locus.projectlocusprototype.Auth;
 
-import org.springframework.context.annotation.Lazy;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Optional;
 
 @Service
 public class AuthService {
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginRateLimiter loginRateLimiter;
     private final JwtService jwtService;
+    private final TokenEpochRegistry tokenEpochRegistry;
 
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, @Lazy AuthenticationManager authenticationManager, JwtService jwtService) {
+    public AuthService(UserRepository userRepository, PasswordHashingService passwordHashingService, LoginRateLimiter loginRateLimiter, JwtService jwtService, TokenEpochRegistry tokenEpochRegistry) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
-        this.authenticationManager = authenticationManager;
+        this.passwordHashingService = passwordHashingService;
+        this.loginRateLimiter = loginRateLimiter;
         this.jwtService = jwtService;
+        this.tokenEpochRegistry = tokenEpochRegistry;
     }
 
     public User getUserFromAuthenticationObject(Authentication authentication) throws UsernameNotFoundException {
@@ -35,25 +35,66 @@ public class AuthService {
         );
     }
 
-    public void createUser(UserRequest request){
+    //  Get the id-carrying principal without touching the database when the JWT already provided it
+    public UserPrincipal getPrincipalFromAuthenticationObject(Authentication authentication) throws UsernameNotFoundException {
+        if (authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal;
+        }
+        User user = getUserFromAuthenticationObject(authentication);
+        return new UserPrincipal(user.getId(), user.getUsername(), null, List.of("USER"), user.getTokenEpoch());
+    }
+
+    //  A lazy reference to a user, used to set foreign keys without loading the row
+    public User getUserReference(Long userId) {
+        return userRepository.getReferenceById(userId);
+    }
+
+    public void createUser(UserRequest request, String clientIp){
+        loginRateLimiter.checkIp(clientIp);
         Optional<User> u = userRepository.findUserByUsername(request.username());
         if(u.isPresent()){
             throw new IllegalStateException("User with username: " + request.username() + " already exists");
         }
         User user = new User();
         user.setUsername(request.username());
-        user.setPassword(passwordEncoder.encode(request.password()));
+        user.setPassword(passwordHashingService.encode(request.password()));
         user.setEmail(request.email());
         userRepository.save(user);
     }
 
 
 
-    public AuthResponse processLoginRequest(UserRequest request) {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.username(),request.password())
-        );
-        String jwt  = jwtService.generateToken(request.username());
+    public AuthResponse processLoginRequest(UserRequest request, String clientIp) {
+        //  Shed abusive traffic before doing any expensive work
+        loginRateLimiter.checkIp(clientIp);
+        loginRateLimiter.checkUsername(request.username());
+
+        //  Check the password on the hashing executor (unknown users cost the same as wrong passwords)
+        Optional<User> found = userRepository.findUserByUsername(request.username());
+        boolean matches = found.isPresent()
+                ? passwordHashingService.matches(request.password(), found.get().getPassword())
+                : passwordHashingService.matchesUnknownUser(request.password());
+        if (!matches) {
+            throw new BadCredentialsException("ERROR: Invalid username or password");
+        }
+        User user = found.get();
+
+        //  Transparently upgrade hashes made with an older (lower) bcrypt cost
+        if (passwordHashingService.needsRehash(user.getPassword())) {
+            userRepository.updatePassword(user.getId(), passwordHashingService.encode(request.password()));
+        }
+
+        //  The user id and token epoch go into the JWT so later requests don't need to load the user
+        UserPrincipal principal = new UserPrincipal(user.getId(), user.getUsername(), null, List.of("USER"), user.getTokenEpoch());
+        String jwt  = jwtService.generateToken(principal);
         return new AuthResponse(jwt);
     }
+
+    //  Revokes every token issued so far to the authenticated user
+    public void revokeTokens(Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal principal)) {
+            throw new BadCredentialsException("ERROR: A valid JWT is required to revoke tokens");
+        }
+        tokenEpochRegistry.revokeAll(principal.getId());
+    }
 }
@@ -6,6 +6,8 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
     private final UserRepository userRepository;
@@ -17,12 +19,12 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Override
     public UserDetails loadUserByUsername(@NonNull String username) throws UsernameNotFoundException {
         return userRepository.findUserByUsername(username)
-                .map(user -> org.springframework.security.core.userdetails.User
-                        .withUsername(user.getUsername())
-                        .password(user.getPassword())
-                        .authorities("USER")
-                        .build()
-
-                ).orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+                .map(user -> new UserPrincipal(
+                        user.getId(),
+                        user.getUsername(),
+                        user.getPassword(),
+                        List.of("USER"),
+                        user.getTokenEpoch()
+                )).orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
     }
 }
@@ -4,6 +4,7 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -13,14 +14,24 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.time.Instant;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
     private final CustomUserDetailsService userDetailsService;
-    public JwtAuthenticationFilter(JwtService jwtService, CustomUserDetailsService userDetailsService) {
+    private final TokenEpochRegistry tokenEpochRegistry;
+    // When true, tokens carrying principal claims are trusted without loading the user from the database
+    private final boolean statelessPrincipal;
+
+    public JwtAuthenticationFilter(JwtService jwtService,
+                                   CustomUserDetailsService userDetailsService,
+                                   TokenEpochRegistry tokenEpochRegistry,
+                                   @Value("${locus.jwt.stateless-principal:true}") boolean statelessPrincipal) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.tokenEpochRegistry = tokenEpochRegistry;
+        this.statelessPrincipal = statelessPrincipal;
     }
 
     @Override
@@ -36,18 +47,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             filterChain.doFilter(request, response);
             return;
         }
-        // Parse the JWT
+        // Parse and verify the JWT once, the result is reused for every check below
         jwt = jwt.substring(7); // remove "Bearer "
-        String username = jwtService.extractUsername(jwt);
+        VerifiedToken verifiedToken = jwtService.verifyToken(jwt);
+        String username = verifiedToken.username();
 
         // If the user is not already authenticated...
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            // Get the user's details
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // Reject tokens issued before the user's last revocation
+            if (verifiedToken.hasPrincipalClaims()
+                    && !tokenEpochRegistry.isCurrent(verifiedToken.userId(), verifiedToken.tokenEpoch())) {
+                throw new BadCredentialsException("ERROR: Invalid JWT");
+            }
+
+            // Get the user's details, straight from the token claims when possible
+            UserDetails userDetails = (statelessPrincipal && verifiedToken.hasPrincipalClaims())
+                    ? UserPrincipal.fromToken(verifiedToken)
+                    : userDetailsService.loadUserByUsername(username);
 
             // Validate the JWT against the UserDetails
-            if (jwtService.isTokenValid(jwt, userDetails.getUsername())) {
+            if (username.equals(userDetails.getUsername()) && !verifiedToken.isExpired(Instant.now())) {
 
                 // JWT is valid, create an authentication token
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
@@ -1,25 +1,52 @@
 package com.locus.projectlocusprototype.Auth;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.security.Key;
+import javax.crypto.SecretKey;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
 
 @Service
 public class JwtService {
-    @Value("${locus.jwt.secret}")
-    private String SECRET_KEY;
+    //  Claims used to build a principal without loading the user from the database
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String AUTHORITIES_CLAIM = "roles";
+    public static final String TOKEN_EPOCH_CLAIM = "epoch";
+
+    // The signing key and parser are immutable and thread-safe, so they are built once at startup
+    private final SecretKey signInKey;
+    private final JwtParser jwtParser;
+    private final VerifiedTokenCache tokenCache;
+
+    public JwtService(@Value("${locus.jwt.secret}") String secretKey, VerifiedTokenCache tokenCache) {
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.jwtParser = Jwts.parser()
+                .verifyWith(signInKey)
+                .build();
+        this.tokenCache = tokenCache;
+    }
 
 
     // 1. GENERATE TOKEN
+    // Embeds the user id, authorities and token epoch so the auth filter can trust the token alone
+    public String generateToken(UserPrincipal principal) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, principal.getId());
+        claims.put(AUTHORITIES_CLAIM, principal.getAuthorityNames());
+        claims.put(TOKEN_EPOCH_CLAIM, principal.getTokenEpoch());
+        return generateToken(claims, principal.getUsername());
+    }
+
     public String generateToken(String username) {
         return generateToken(new HashMap<>(), username);
     }
@@ -30,44 +57,49 @@ public class JwtService {
                 .subject(username)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24)) // 24 hours valid
-                .signWith(this.getSignInKey())
+                .signWith(signInKey)
                 .compact();
     }
 
-    // 2. VALIDATE TOKEN
+    // 2. VERIFY TOKEN
+    // Parses and verifies the token exactly once, throws a JwtException if the signature is invalid or it expired
+    public VerifiedToken verifyToken(String token) {
+        VerifiedToken cached = tokenCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+        Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+        VerifiedToken verified = new VerifiedToken(
+                claims.getSubject(),
+                claims.get(USER_ID_CLAIM, Long.class),
+                extractAuthorities(claims),
+                claims.get(TOKEN_EPOCH_CLAIM, Integer.class),
+                toInstant(claims.getIssuedAt()),
+                toInstant(claims.getExpiration())
+        );
+        tokenCache.put(token, verified);
+        return verified;
+    }
+
     public boolean isTokenValid(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username)) && !isTokenExpired(token);
+        VerifiedToken verified = verifyToken(token);
+        return verified.username().equals(username) && !verified.isExpired(Instant.now());
     }
 
     // 3. EXTRACT CLAIMS
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
-
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return verifyToken(token).username();
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private static List<String> extractAuthorities(Claims claims) {
+        Object authorities = claims.get(AUTHORITIES_CLAIM);
+        if (authorities instanceof Collection<?> collection) {
+            return collection.stream().map(String::valueOf).toList();
+        }
+        return List.of();
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static Instant toInstant(Date date) {
+        return date == null ? null : date.toInstant();
     }
 }
@@ -0,0 +1,71 @@
+package com.locus.projectlocusprototype.Auth;
+
+import com.locus.projectlocusprototype.Exceptions.RateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-username and per-IP admission control for /login and /register.
+// Requests over the limit are rejected before any password hashing happens,
+// which is what keeps credential-stuffing traffic off the bcrypt executor.
+@Component
+public class LoginRateLimiter {
+    private final ConcurrentHashMap<String, TokenBucket> usernameBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenBucket> ipBuckets = new ConcurrentHashMap<>();
+    private final int usernamePerMinute;
+    private final int usernameBurst;
+    private final int ipPerMinute;
+    private final int ipBurst;
+    private final Counter usernameRejections;
+    private final Counter ipRejections;
+
+    public LoginRateLimiter(@Value("${locus.auth.rate-limit.username.per-minute:10}") int usernamePerMinute,
+                            @Value("${locus.auth.rate-limit.username.burst:5}") int usernameBurst,
+                            @Value("${locus.auth.rate-limit.ip.per-minute:60}") int ipPerMinute,
+                            @Value("${locus.auth.rate-limit.ip.burst:20}") int ipBurst,
+                            MeterRegistry meterRegistry) {
+        this.usernamePerMinute = usernamePerMinute;
+        this.usernameBurst = usernameBurst;
+        this.ipPerMinute = ipPerMinute;
+        this.ipBurst = ipBurst;
+        this.usernameRejections = Counter.builder("locus.auth.rate-limit.rejections").tag("key", "username").register(meterRegistry);
+        this.ipRejections = Counter.builder("locus.auth.rate-limit.rejections").tag("key", "ip").register(meterRegistry);
+        Gauge.builder("locus.auth.rate-limit.buckets", this, limiter -> limiter.usernameBuckets.size() + limiter.ipBuckets.size())
+                .register(meterRegistry);
+    }
+
+    //  Throws a RateLimitExceededException if this IP has used up its allowance
+    public void checkIp(String clientIp) {
+        if (clientIp != null && !bucket(ipBuckets, clientIp, ipPerMinute, ipBurst).tryAcquire()) {
+            ipRejections.increment();
+            throw new RateLimitExceededException("ERROR: Too many requests, try again later");
+        }
+    }
+
+    //  Throws a RateLimitExceededException if this username has used up its allowance
+    public void checkUsername(String username) {
+        if (username != null && !bucket(usernameBuckets, username.toLowerCase(Locale.ROOT), usernamePerMinute, usernameBurst).tryAcquire()) {
+            usernameRejections.increment();
+            throw new RateLimitExceededException("ERROR: Too many login attempts for this account, try again later");
+        }
+    }
+
+    // Buckets that have fully refilled behave exactly like new ones, so they can be dropped to bound memory
+    @Scheduled(fixedDelayString = "${locus.auth.rate-limit.cleanup-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        usernameBuckets.values().removeIf(bucket -> bucket.isIdle(now));
+        ipBuckets.values().removeIf(bucket -> bucket.isIdle(now));
+    }
+
+    private static TokenBucket bucket(ConcurrentHashMap<String, TokenBucket> buckets, String key, int perMinute, int burst) {
+        TokenBucket bucket = buckets.get(key);
+        return bucket != null ? bucket : buckets.computeIfAbsent(key, k -> new TokenBucket(perMinute, burst));
+    }
+}
@@ -1,5 +1,7 @@
 package com.locus.projectlocusprototype.Auth;
 
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -42,6 +44,8 @@ public class SecurityConfig {
                                                 "/error"                 // ALLOWS 404s TO SHOW INSTEAD OF 403s
                                         )
                                         .permitAll()
+                                        // async dispatches (SSE streams) were already authorized on the original request
+                                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                         .anyRequest().authenticated()
                 )
                 // turn off states
@@ -55,9 +59,10 @@ public class SecurityConfig {
     }
 
     // used to encrypt passwords when a user signs up and also when they try to log in
+    // (raising the strength makes existing hashes get upgraded on their next successful login)
     @Bean
-    public PasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${locus.auth.bcrypt-strength:10}") int strength){
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
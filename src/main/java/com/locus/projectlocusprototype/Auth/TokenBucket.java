@@ -0,0 +1,56 @@
+package com.locus.projectlocusprototype.Auth;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free token bucket implemented as a generic cell rate algorithm (GCRA).
+// The whole bucket state is a single "theoretical arrival time" updated with CAS,
+// which is equivalent to a bucket refilling at ratePerMinute with room for burst tokens.
+public class TokenBucket {
+    private final long emissionIntervalNanos; // time it takes to refill one token
+    private final long burstToleranceNanos;   // how far ahead of "now" the bucket may be drawn down
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    public TokenBucket(int ratePerMinute, int burst) {
+        this.emissionIntervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, ratePerMinute);
+        this.burstToleranceNanos = emissionIntervalNanos * Math.max(0, burst - 1);
+    }
+
+    // Takes one token if available, never blocks
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    public boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long tat = (current == Long.MIN_VALUE || current - nowNanos < 0) ? nowNanos : current;
+            if (tat - nowNanos > burstToleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(current, tat + emissionIntervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    // Gives back a token taken with tryAcquire that ended up unused
+    public void release() {
+        theoreticalArrival.getAndUpdate(current -> current == Long.MIN_VALUE ? current : current - emissionIntervalNanos);
+    }
+
+    // How long until tryAcquire can succeed again, 0 if a token is available now
+    public long nanosUntilAvailable(long nowNanos) {
+        long current = theoreticalArrival.get();
+        if (current == Long.MIN_VALUE) {
+            return 0;
+        }
+        return Math.max(0, current - nowNanos - burstToleranceNanos);
+    }
+
+    // True once the bucket has refilled completely, i.e. it carries no state worth keeping
+    public boolean isIdle(long nowNanos) {
+        long current = theoreticalArrival.get();
+        return current == Long.MIN_VALUE || current - nowNanos <= 0;
+    }
+}
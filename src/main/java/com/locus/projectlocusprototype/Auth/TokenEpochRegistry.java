@@ -0,0 +1,44 @@
+package com.locus.projectlocusprototype.Auth;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory table of per-user token epochs used to revoke stateless JWTs.
+// Every token carries the epoch of its user at the time it was issued; bumping the epoch in the
+// database invalidates all older tokens. Only users that have ever revoked (epoch > 0) are held here,
+// so the table stays small. Other instances pick up revocations on their next refresh.
+@Component
+public class TokenEpochRegistry {
+    private final UserRepository userRepository;
+    private final Map<Long, Integer> epochs = new ConcurrentHashMap<>();
+
+    public TokenEpochRegistry(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public int currentEpoch(Long userId) {
+        return epochs.getOrDefault(userId, 0);
+    }
+
+    public boolean isCurrent(Long userId, int tokenEpoch) {
+        return tokenEpoch >= currentEpoch(userId);
+    }
+
+    // Invalidate every token issued so far for this user
+    public void revokeAll(Long userId) {
+        userRepository.incrementTokenEpoch(userId);
+        userRepository.findTokenEpochById(userId).ifPresent(epoch -> epochs.merge(userId, epoch, Math::max));
+    }
+
+    // Reload the table from the database (runs once at startup, then periodically). Epochs only ever grow, so rows
+    // are merged in keeping the higher value: a revokeAll that lands while the query runs is never rolled back
+    @Scheduled(fixedDelayString = "${locus.jwt.epoch-refresh-ms:30000}")
+    public void refresh() {
+        for (Object[] row : userRepository.findRevokedTokenEpochs()) {
+            epochs.merge((Long) row[0], (Integer) row[1], Math::max);
+        }
+    }
+}
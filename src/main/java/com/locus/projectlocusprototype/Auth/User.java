@@ -6,16 +6,28 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
+//  Cached in the second-level cache by id and by username (see application.conf), the username never changes
 @Entity
 @Table(name = "users")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@NaturalIdCache(region = User.USERNAME_CACHE_REGION)
 public class User {
+    public static final String CACHE_REGION = "users";
+    public static final String USERNAME_CACHE_REGION = "users-by-username";
+
     @Id
     @GeneratedValue(strategy= GenerationType.SEQUENCE)
-    @SequenceGenerator(name="userIdSequence",sequenceName = "userIdSequence",allocationSize = 1)
+    @SequenceGenerator(name="userIdSequence",sequenceName = "userIdSequence",allocationSize = 50)
     @Getter
     private Long id;
 
+    @NaturalId
     @NotNull
     @Getter
     @Setter
@@ -34,6 +46,13 @@ public class User {
     @Setter
     private String email;
 
+    // Bumped to revoke every JWT issued to this user so far (see TokenEpochRegistry)
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @Getter
+    @JsonIgnore
+    private Integer tokenEpoch = 0;
+
     public User(String username, String email) {
         this.username = username;
         this.email = email;
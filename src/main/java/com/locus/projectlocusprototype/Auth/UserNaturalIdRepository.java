@@ -0,0 +1,9 @@
+package com.locus.projectlocusprototype.Auth;
+
+import java.util.Optional;
+
+//  Username lookups through Hibernate's natural-id API, which the second-level cache can answer
+//  (a derived or JPQL query would always go to the database)
+public interface UserNaturalIdRepository {
+    Optional<User> findUserByUsername(String username);
+}
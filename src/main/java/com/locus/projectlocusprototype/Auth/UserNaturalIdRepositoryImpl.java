@@ -0,0 +1,20 @@
+package com.locus.projectlocusprototype.Auth;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public class UserNaturalIdRepositoryImpl implements UserNaturalIdRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //  Transactional like the built-in repository methods, the unwrapped session must stay open for the load
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> findUserByUsername(String username) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(User.class).loadOptional(username);
+    }
+}
@@ -0,0 +1,65 @@
+package com.locus.projectlocusprototype.Auth;
+
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+// The authenticated user as seen by the security layer.
+// Unlike Spring's default User it carries the user's id, so it can be built straight from JWT claims
+// without a trip to the database.
+public class UserPrincipal implements UserDetails, CredentialsContainer {
+    private final Long id;
+    private final String username;
+    private String password;
+    private final List<GrantedAuthority> authorities;
+    private final int tokenEpoch;
+
+    public UserPrincipal(Long id, String username, String password, List<String> authorities, int tokenEpoch) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.authorities = AuthorityUtils.createAuthorityList(authorities);
+        this.tokenEpoch = tokenEpoch;
+    }
+
+    // Builds a principal from an already verified JWT (no password is available or needed)
+    public static UserPrincipal fromToken(VerifiedToken token) {
+        return new UserPrincipal(token.userId(), token.username(), null, token.authorities(), token.tokenEpoch());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public int getTokenEpoch() {
+        return tokenEpoch;
+    }
+
+    public List<String> getAuthorityNames() {
+        return AuthorityUtils.authorityListToSet(authorities).stream().toList();
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        this.password = null;
+    }
+}
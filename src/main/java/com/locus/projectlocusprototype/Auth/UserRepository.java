@@ -1,9 +1,29 @@
 package com.locus.projectlocusprototype.Auth;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends JpaRepository<User,Long> {
-    Optional<User> findUserByUsername(String username);
+//  findUserByUsername comes from UserNaturalIdRepository
+public interface UserRepository extends JpaRepository<User,Long>, UserNaturalIdRepository {
+    @Query("SELECT u.tokenEpoch FROM User u WHERE u.id = ?1")
+    Optional<Integer> findTokenEpochById(Long userId);
+
+    //  Returns (id, tokenEpoch) pairs for every user that has revoked tokens at least once
+    @Query("SELECT u.id, u.tokenEpoch FROM User u WHERE u.tokenEpoch > 0")
+    List<Object[]> findRevokedTokenEpochs();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = ?2 WHERE u.id = ?1")
+    int updatePassword(Long userId, String encodedPassword);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.tokenEpoch = u.tokenEpoch + 1 WHERE u.id = ?1")
+    int incrementTokenEpoch(Long userId);
 }
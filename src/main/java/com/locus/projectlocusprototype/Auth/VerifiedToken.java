@@ -0,0 +1,28 @@
+package com.locus.projectlocusprototype.Auth;
+
+import java.time.Instant;
+import java.util.List;
+
+// Immutable result of verifying a JWT once (signature + expiration)
+// userId and tokenEpoch are null for tokens issued before those claims existed
+public record VerifiedToken(
+        String username,
+        Long userId,
+        List<String> authorities,
+        Integer tokenEpoch,
+        Instant issuedAt,
+        Instant expiresAt
+) {
+    public VerifiedToken {
+        authorities = authorities == null ? List.of() : List.copyOf(authorities);
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+
+    // True if the token carries enough claims to build a principal without loading the user
+    public boolean hasPrincipalClaims() {
+        return userId != null && tokenEpoch != null;
+    }
+}
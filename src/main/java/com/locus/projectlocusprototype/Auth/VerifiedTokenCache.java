@@ -0,0 +1,129 @@
+package com.locus.projectlocusprototype.Auth;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded cache of recently verified JWTs so the same token isn't re-parsed on every request.
+// Entries are keyed by the SHA-256 digest of the raw token (the token itself is never stored) and
+// expire at whichever comes first: the token's own expiration or the configured TTL.
+@Component
+public class VerifiedTokenCache {
+    private record Entry(VerifiedToken token, Instant expiresAt) {}
+
+    private final ConcurrentHashMap<ByteBuffer, Entry> entries = new ConcurrentHashMap<>();
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(VerifiedTokenCache::newDigest);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final int maxEntries;
+    private final Duration ttl;
+
+    public VerifiedTokenCache(@Value("${locus.jwt.cache.max-entries:10000}") int maxEntries,
+                              @Value("${locus.jwt.cache.ttl-seconds:300}") long ttlSeconds,
+                              MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+
+        FunctionCounter.builder("locus.jwt.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("locus.jwt.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("locus.jwt.cache.size", entries, ConcurrentHashMap::size)
+                .register(meterRegistry);
+    }
+
+    //  PUBLIC METHODS
+
+    // Returns the cached verification result for this token, or null on a miss / expired entry
+    public VerifiedToken get(String token) {
+        if (maxEntries <= 0) {
+            return null;
+        }
+        ByteBuffer key = digest(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (!entry.expiresAt().isAfter(Instant.now())) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.token();
+    }
+
+    public void put(String token, VerifiedToken verifiedToken) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(ttl);
+        if (verifiedToken.expiresAt() != null && verifiedToken.expiresAt().isBefore(expiresAt)) {
+            expiresAt = verifiedToken.expiresAt();
+        }
+        if (entries.size() >= maxEntries) {
+            evict(now);
+        }
+        entries.put(digest(token), new Entry(verifiedToken, expiresAt));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    //  PRIVATE METHODS
+
+    // Drop expired entries first; if the cache is still full, drop an arbitrary tenth of it
+    private void evict(Instant now) {
+        entries.values().removeIf(entry -> !entry.expiresAt().isAfter(now));
+        int toRemove = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        Iterator<ByteBuffer> iterator = entries.keySet().iterator();
+        while (toRemove > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            toRemove--;
+        }
+    }
+
+    private ByteBuffer digest(String token) {
+        MessageDigest digest = digests.get();
+        digest.reset();
+        return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
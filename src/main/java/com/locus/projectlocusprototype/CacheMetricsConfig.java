@@ -0,0 +1,49 @@
+package com.locus.projectlocusprototype;
+
+import com.locus.projectlocusprototype.Auth.User;
+import com.locus.projectlocusprototype.Note.Note;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+// Publishes the hit ratio of every second-level cache region as locus.cache.hit-ratio{region=...}.
+// The raw hit/miss/put counts per region are already published as hibernate.second.level.cache.* by the
+// Hibernate metrics binder; both need hibernate.generate_statistics.
+@Configuration
+public class CacheMetricsConfig {
+    private static final List<String> REGIONS = List.of(User.CACHE_REGION, User.USERNAME_CACHE_REGION, Note.CACHE_REGION);
+
+    public CacheMetricsConfig(EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (String region : REGIONS) {
+            Gauge.builder("locus.cache.hit-ratio", statistics, s -> hitRatio(s, region))
+                    .description("Share of second-level cache lookups in the region that were hits")
+                    .tag("region", region)
+                    .register(meterRegistry);
+        }
+    }
+
+    //  NaN until the region has been used, or when statistics or the cache are disabled
+    private static double hitRatio(Statistics statistics, String region) {
+        if (!statistics.isStatisticsEnabled()) {
+            return Double.NaN;
+        }
+        CacheRegionStatistics regionStatistics;
+        try {
+            regionStatistics = statistics.getCacheRegionStatistics(region);
+        } catch (IllegalArgumentException e) {
+            return Double.NaN;
+        }
+        if (regionStatistics == null) {
+            return Double.NaN;
+        }
+        long lookups = regionStatistics.getHitCount() + regionStatistics.getMissCount();
+        return lookups == 0 ? Double.NaN : (double) regionStatistics.getHitCount() / lookups;
+    }
+}
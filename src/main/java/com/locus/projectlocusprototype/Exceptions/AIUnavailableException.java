@@ -0,0 +1,11 @@
+package com.locus.projectlocusprototype.Exceptions;
+
+public class AIUnavailableException extends RuntimeException {
+    public AIUnavailableException(String message) {
+        super(message);
+    }
+
+    public AIUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
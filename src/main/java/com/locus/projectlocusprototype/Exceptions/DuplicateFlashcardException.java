@@ -0,0 +1,7 @@
+package com.locus.projectlocusprototype.Exceptions;
+
+public class DuplicateFlashcardException extends RuntimeException {
+    public DuplicateFlashcardException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.locus.projectlocusprototype.Exceptions;
+
+public class InvalidSchedulingRequestException extends RuntimeException {
+    public InvalidSchedulingRequestException(String message) {
+        super(message);
+    }
+}
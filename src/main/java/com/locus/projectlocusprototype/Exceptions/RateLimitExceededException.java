@@ -0,0 +1,7 @@
+package com.locus.projectlocusprototype.Exceptions;
+
+public class RateLimitExceededException extends RuntimeException {
+    public RateLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.locus.projectlocusprototype.Exceptions;
+
+public class ServiceOverloadedException extends RuntimeException {
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+//  One review inside a BatchReviewRequest, reviewedAt defaults to the time the batch is processed and is capped at it
+public record BatchReviewItem(
+        @NotNull Long flashcardId,
+        @Min(0) @Max(5) int qualityScore,
+        LocalDateTime reviewedAt
+) {
+}
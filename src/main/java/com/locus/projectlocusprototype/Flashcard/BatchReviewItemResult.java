@@ -0,0 +1,13 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+//  Result for one item of a batch review, flashcard is null unless the review was applied
+public record BatchReviewItemResult(
+        Long flashcardId,
+        Status status,
+        FlashcardResponse flashcard
+) {
+    public enum Status {
+        REVIEWED,
+        NOT_FOUND
+    }
+}
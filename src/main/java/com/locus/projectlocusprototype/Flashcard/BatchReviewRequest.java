@@ -0,0 +1,13 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+//  Reviews are applied in list order, so the same card may appear more than once
+public record BatchReviewRequest(
+        @NotEmpty @Size(max = 500) List<@Valid BatchReviewItem> reviews
+) {
+}
@@ -0,0 +1,21 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import java.time.LocalDate;
+import java.util.List;
+
+//  Statistics of one note (noteId set) or of all of a user's cards (noteId null).
+//  dueToday includes overdue cards; dueByDay starts with today (the same count) and covers the following days.
+public record DeckStatsResponse(
+        Long noteId,
+        long totalCards,
+        long dueToday,
+        List<DayCount> dueByDay,
+        Double averageEase,
+        LocalDate asOf
+) {
+    public record DayCount(
+            LocalDate date,
+            long count
+    ) {
+    }
+}
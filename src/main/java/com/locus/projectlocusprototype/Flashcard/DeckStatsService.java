@@ -0,0 +1,257 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import com.locus.projectlocusprototype.Auth.AuthService;
+import com.locus.projectlocusprototype.Exceptions.ResourceNotFoundException;
+import com.locus.projectlocusprototype.Note.NoteRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Materialized deck statistics (see NoteDeckStats and NoteDueCount), so dashboards don't have to load or
+// count a user's flashcards: per note the number of cards, the sum of their ease factors and the number of
+// cards due on each day. Per-user statistics add up the rows of the user's notes.
+// Every change to a card is applied as a delta with JDBC upserts, in the same transaction as the change when
+// there is one. reconcile() rebuilds all rows from the flashcards table, a chunk of notes per transaction,
+// to correct whatever drift the deltas accumulated (failed statements, cards changed outside this service).
+@Service
+public class DeckStatsService {
+    private static final Logger log = LoggerFactory.getLogger(DeckStatsService.class);
+    private static final LocalDate NO_REVIEW_DATE = LocalDate.EPOCH; // counted as overdue
+
+    private static final String UPSERT_NOTE = "INSERT INTO note_deck_stats (note_id, user_id, card_count, ease_sum) " +
+            "VALUES (?, ?, ?, ?) ON CONFLICT (note_id) DO UPDATE SET " +
+            "card_count = note_deck_stats.card_count + EXCLUDED.card_count, " +
+            "ease_sum = note_deck_stats.ease_sum + EXCLUDED.ease_sum";
+    private static final String UPSERT_DUE = "INSERT INTO note_due_counts (note_id, due_date, user_id, card_count) " +
+            "VALUES (?, ?, ?, ?) ON CONFLICT (note_id, due_date) DO UPDATE SET " +
+            "card_count = note_due_counts.card_count + EXCLUDED.card_count";
+
+    private static final String CHUNK_UPPER_BOUND = "SELECT MAX(id) FROM (SELECT id FROM notes WHERE id > ? ORDER BY id LIMIT ?) chunk";
+    private static final String REBUILD_NOTES = "INSERT INTO note_deck_stats (note_id, user_id, card_count, ease_sum) " +
+            "SELECT n.id, n.user_id, COUNT(f.id), COALESCE(SUM(f.ease_factor), 0) " +
+            "FROM notes n LEFT JOIN flashcards f ON f.note_id = n.id " +
+            "WHERE n.id > ? AND n.id <= ? GROUP BY n.id, n.user_id";
+    private static final String REBUILD_DUE = "INSERT INTO note_due_counts (note_id, due_date, user_id, card_count) " +
+            "SELECT f.note_id, CAST(COALESCE(f.next_review_date, TIMESTAMP '1970-01-01') AS date), n.user_id, COUNT(*) " +
+            "FROM flashcards f JOIN notes n ON n.id = f.note_id " +
+            "WHERE f.note_id > ? AND f.note_id <= ? " +
+            "GROUP BY f.note_id, CAST(COALESCE(f.next_review_date, TIMESTAMP '1970-01-01') AS date), n.user_id";
+
+    //  The effect of one or more card changes, written with one batch per table by apply()
+    public static final class Change {
+        private record DueKey(Long noteId, LocalDate day) {}
+
+        private final Map<Long, Long> noteUsers = new HashMap<>();
+        private final Map<Long, Long> cardDeltas = new HashMap<>();
+        private final Map<Long, Double> easeDeltas = new HashMap<>();
+        private final Map<DueKey, Long> dueDeltas = new HashMap<>();
+
+        public Change add(Flashcard flashcard) {
+            return count(flashcard, 1);
+        }
+
+        public Change remove(Flashcard flashcard) {
+            return count(flashcard, -1);
+        }
+
+        public boolean isEmpty() {
+            return noteUsers.isEmpty();
+        }
+
+        private Change count(Flashcard flashcard, int sign) {
+            Long noteId = flashcard.getNote().getId();
+            double ease = flashcard.getEaseFactor() == null ? 0 : flashcard.getEaseFactor();
+            LocalDateTime next = flashcard.getNextReviewDate();
+            noteUsers.putIfAbsent(noteId, flashcard.getUser().getId());
+            cardDeltas.merge(noteId, (long) sign, Long::sum);
+            easeDeltas.merge(noteId, sign * ease, Double::sum);
+            dueDeltas.merge(new DueKey(noteId, next == null ? NO_REVIEW_DATE : next.toLocalDate()), (long) sign, Long::sum);
+            return this;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuthService authService;
+    private final NoteRepository noteRepository;
+    private final int forecastDays;
+    private final int reconcileChunkNotes;
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+    private final Counter reconciledNotes;
+    private final Timer reconcileTimer;
+
+    public DeckStatsService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            AuthService authService, NoteRepository noteRepository,
+                            @Value("${locus.stats.forecast-days:30}") int forecastDays,
+                            @Value("${locus.stats.reconcile-chunk-notes:500}") int reconcileChunkNotes,
+                            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.authService = authService;
+        this.noteRepository = noteRepository;
+        this.forecastDays = Math.max(1, forecastDays);
+        this.reconcileChunkNotes = Math.max(1, reconcileChunkNotes);
+        this.reconciledNotes = Counter.builder("locus.stats.reconciled-notes").register(meterRegistry);
+        this.reconcileTimer = Timer.builder("locus.stats.reconcile").register(meterRegistry);
+    }
+
+    //  PUBLIC METHODS
+
+    public void cardsAdded(Collection<Flashcard> flashcards) {
+        Change change = new Change();
+        flashcards.forEach(change::add);
+        apply(change);
+    }
+
+    public void cardsRemoved(Collection<Flashcard> flashcards) {
+        Change change = new Change();
+        flashcards.forEach(change::remove);
+        apply(change);
+    }
+
+    //  Both deletes go through an index leading with note_id (idx_note_due_counts_note_date, the note_deck_stats key)
+    public void noteRemoved(Long noteId) {
+        jdbcTemplate.update("DELETE FROM note_due_counts WHERE note_id = ?", noteId);
+        jdbcTemplate.update("DELETE FROM note_deck_stats WHERE note_id = ?", noteId);
+    }
+
+    //  Rows are written in key order, so concurrent changes touching the same notes can't deadlock
+    public void apply(Change change) {
+        if (change.isEmpty()) {
+            return;
+        }
+        List<Object[]> noteRows = new ArrayList<>();
+        for (Long noteId : new TreeSet<>(change.noteUsers.keySet())) {
+            long cards = change.cardDeltas.get(noteId);
+            double ease = change.easeDeltas.get(noteId);
+            if (cards != 0 || ease != 0) {
+                noteRows.add(new Object[]{noteId, change.noteUsers.get(noteId), cards, ease});
+            }
+        }
+        List<Object[]> dueRows = new ArrayList<>();
+        change.dueDeltas.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .sorted(Map.Entry.comparingByKey(Comparator.comparing(Change.DueKey::noteId).thenComparing(Change.DueKey::day)))
+                .forEach(entry -> dueRows.add(new Object[]{entry.getKey().noteId(), Date.valueOf(entry.getKey().day()),
+                        change.noteUsers.get(entry.getKey().noteId()), entry.getValue()}));
+        if (!noteRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_NOTE, noteRows);
+        }
+        if (!dueRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_DUE, dueRows);
+        }
+    }
+
+    //  Statistics of one note, or of all the user's cards when noteId is null
+    public DeckStatsResponse getStats(Long noteId, Authentication authentication) {
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        LocalDate today = LocalDate.now();
+        LocalDate end = today.plusDays(forecastDays);
+
+        List<Map<String, Object>> totals;
+        List<Map<String, Object>> due;
+        if (noteId == null) {
+            totals = jdbcTemplate.queryForList("SELECT COALESCE(SUM(card_count), 0) AS cards, COALESCE(SUM(ease_sum), 0) AS ease " +
+                    "FROM note_deck_stats WHERE user_id = ?", userId);
+            due = jdbcTemplate.queryForList("SELECT due_date, SUM(card_count) AS cards FROM note_due_counts " +
+                    "WHERE user_id = ? AND due_date < ? GROUP BY due_date", userId, Date.valueOf(end));
+        } else {
+            totals = jdbcTemplate.queryForList("SELECT card_count AS cards, ease_sum AS ease " +
+                    "FROM note_deck_stats WHERE note_id = ? AND user_id = ?", noteId, userId);
+            //  No row is either a note without cards or a note this user can't see, only then check which one
+            if (totals.isEmpty() && !noteRepository.existsNoteByIdAndUserId(noteId, userId)) {
+                throw new ResourceNotFoundException("ERROR: Note with id" + noteId + " does not exist");
+            }
+            due = jdbcTemplate.queryForList("SELECT due_date, card_count AS cards FROM note_due_counts " +
+                    "WHERE note_id = ? AND user_id = ? AND due_date < ?", noteId, userId, Date.valueOf(end));
+        }
+
+        long totalCards = 0;
+        double easeSum = 0;
+        if (!totals.isEmpty()) {
+            totalCards = Math.max(0, ((Number) totals.getFirst().get("cards")).longValue());
+            easeSum = ((Number) totals.getFirst().get("ease")).doubleValue();
+        }
+        long[] byDay = new long[forecastDays];
+        for (Map<String, Object> row : due) {
+            LocalDate day = ((Date) row.get("due_date")).toLocalDate();
+            int index = day.isBefore(today) ? 0 : (int) (day.toEpochDay() - today.toEpochDay());
+            byDay[index] += ((Number) row.get("cards")).longValue();
+        }
+        List<DeckStatsResponse.DayCount> dueByDay = new ArrayList<>(forecastDays);
+        for (int i = 0; i < forecastDays; i++) {
+            dueByDay.add(new DeckStatsResponse.DayCount(today.plusDays(i), Math.max(0, byDay[i])));
+        }
+        Double averageEase = totalCards == 0 ? null : easeSum / totalCards;
+        return new DeckStatsResponse(noteId, totalCards, dueByDay.getFirst().count(), dueByDay, averageEase, today);
+    }
+
+    //  Rebuild every note's rows from the flashcards table, one chunk of notes (by id) per transaction
+    @Scheduled(cron = "${locus.stats.reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+        if (!reconciling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            reconcileTimer.record(() -> {
+                long after = 0;
+                int notes = 0;
+                Long upper;
+                while ((upper = jdbcTemplate.queryForObject(CHUNK_UPPER_BOUND, Long.class, after, reconcileChunkNotes)) != null) {
+                    long from = after;
+                    long to = upper;
+                    notes += transactionTemplate.execute(status -> rebuild(from, to));
+                    after = upper;
+                }
+                //  Rows of deleted notes beyond the last remaining note
+                long last = after;
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.update("DELETE FROM note_due_counts WHERE note_id > ?", last);
+                    jdbcTemplate.update("DELETE FROM note_deck_stats WHERE note_id > ?", last);
+                });
+                reconciledNotes.increment(notes);
+                log.info("Rebuilt deck statistics of {} notes", notes);
+            });
+        } finally {
+            reconciling.set(false);
+        }
+    }
+
+    //  The tables start out empty (and existing cards would only show up after the first nightly run)
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileIfEmpty() {
+        Boolean empty = jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM note_deck_stats) AND EXISTS (SELECT 1 FROM flashcards)", Boolean.class);
+        if (Boolean.TRUE.equals(empty)) {
+            Thread.ofVirtual().name("deck-stats-reconcile").start(this::reconcile);
+        }
+    }
+
+    //  PRIVATE METHODS
+
+    //  The note id ranges are index range scans of idx_note_due_counts_note_date and the note_deck_stats key
+    private int rebuild(long afterNoteId, long upToNoteId) {
+        jdbcTemplate.update("DELETE FROM note_due_counts WHERE note_id > ? AND note_id <= ?", afterNoteId, upToNoteId);
+        jdbcTemplate.update("DELETE FROM note_deck_stats WHERE note_id > ? AND note_id <= ?", afterNoteId, upToNoteId);
+        int notes = jdbcTemplate.update(REBUILD_NOTES, afterNoteId, upToNoteId);
+        jdbcTemplate.update(REBUILD_DUE, afterNoteId, upToNoteId);
+        return notes;
+    }
+}
@@ -0,0 +1,10 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import java.time.LocalDateTime;
+
+public record DueCountResponse(
+        Long noteId,
+        long dueCount,
+        LocalDateTime asOf
+) {
+}
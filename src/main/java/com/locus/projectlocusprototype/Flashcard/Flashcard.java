@@ -11,11 +11,14 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name="flashcards")
+@Table(name="flashcards", indexes = {
+        //  Backs the due-card queue: WHERE user_id = ? AND next_review_date <= now ORDER BY next_review_date
+        @Index(name = "idx_flashcards_user_next_review", columnList = "user_id, next_review_date")
+})
 public class Flashcard {
     @Id
     @GeneratedValue(strategy= GenerationType.SEQUENCE)
-    @SequenceGenerator(name = "flashcards_id",sequenceName = "flashcards_id",allocationSize = 1)
+    @SequenceGenerator(name = "flashcards_id",sequenceName = "flashcards_id",allocationSize = 50)
     @Getter
     private Long id;
 
@@ -29,6 +32,13 @@ public class Flashcard {
     @NotEmpty
     private String back;
 
+    // Fingerprint of the note section an AI generated card came from (see NoteChunker), null for cards the
+    // user wrote or edited. When the section disappears from the note the card is retired.
+    @Getter
+    @Setter
+    @Column(length = 16)
+    private String sourceSection;
+
     //review-related attributes:
     @Getter
     @Setter
@@ -42,6 +52,15 @@ public class Flashcard {
     @Getter
     @Setter
     private Integer repetitions=0; // The number of successful repetitions the user has had (fail sets to 0)
+    @Getter
+    @Setter
+    private LocalDateTime lastReviewDate; // When the card was last reviewed (null until its first review)
+    @Getter
+    @Setter
+    private Double stability; // FSRS memory stability in days (null until reviewed with FSRS)
+    @Getter
+    @Setter
+    private Double difficulty; // FSRS difficulty, 1 (easy) to 10 (hard)
 
     @ManyToOne(fetch=FetchType.LAZY)
     @JoinColumn(name="user_id",nullable = false)
@@ -12,9 +12,13 @@ import java.util.List;
 @RequestMapping("/api/flashcards")
 public class FlashcardController {
     private final FlashcardService flashcardService;
+    private final DeckStatsService deckStatsService;
+    private final StudySessionService studySessionService;
 
-    public FlashcardController(FlashcardService flashcardService) {
+    public FlashcardController(FlashcardService flashcardService, DeckStatsService deckStatsService, StudySessionService studySessionService) {
         this.flashcardService = flashcardService;
+        this.deckStatsService = deckStatsService;
+        this.studySessionService = studySessionService;
     }
 
     //  GET mapping to get a single flashcard
@@ -40,6 +44,31 @@ public class FlashcardController {
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
 
+    //  GET mapping for the study queue: cards due now, most overdue first (optionally for one note)
+    @GetMapping("/due")
+    public ResponseEntity<List<FlashcardResponse>> due(@RequestParam(required = false) Long noteId,
+                                                       @RequestParam(required = false) Integer limit,
+                                                       Authentication authentication){
+        List<FlashcardResponse> response = flashcardService.getDueFlashcards(noteId,limit,authentication);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    //  GET mapping for the number of cards due now (optionally for one note)
+    @GetMapping("/due/count")
+    public ResponseEntity<DueCountResponse> dueCount(@RequestParam(required = false) Long noteId,
+                                                     Authentication authentication){
+        DueCountResponse response = flashcardService.countDueFlashcards(noteId,authentication);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    //  GET mapping for deck statistics: card count, due today, due per day ahead, average ease (optionally for one note)
+    @GetMapping("/stats")
+    public ResponseEntity<DeckStatsResponse> stats(@RequestParam(required = false) Long noteId,
+                                                   Authentication authentication){
+        DeckStatsResponse response = deckStatsService.getStats(noteId,authentication);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
     // POST mapping to make a single flashcard for a single note
     @PostMapping("/create")
     public ResponseEntity<FlashcardResponse> createFlashcard(@Valid @RequestBody FlashcardRequest request,
@@ -76,4 +105,47 @@ public class FlashcardController {
         FlashcardResponse response = flashcardService.reviewFlashcard(flashcardId,reviewContent,authentication);
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
+
+    //  POST mapping to submit a whole study session's reviews at once, returns one result per review
+    @PostMapping("/review/batch")
+    public ResponseEntity<List<BatchReviewItemResult>> reviewBatch(@Valid @RequestBody BatchReviewRequest request,
+                                                                  Authentication authentication){
+        List<BatchReviewItemResult> response = flashcardService.reviewFlashcards(request,authentication);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    //  POST mapping to open a study session over the next due cards (optionally for one note)
+    @PostMapping("/sessions")
+    public ResponseEntity<StudySessionResponse> openSession(@Valid @RequestBody StudySessionRequest request,
+                                                            Authentication authentication){
+        StudySessionResponse response = studySessionService.open(request,authentication);
+        return ResponseEntity.status(response.sessionId() == null ? HttpStatus.OK : HttpStatus.CREATED).body(response);
+    }
+
+    //  GET mapping for a page of a study session's cards, served from memory
+    @GetMapping("/sessions/{sessionId}/cards")
+    public ResponseEntity<StudySessionPage> sessionCards(@PathVariable String sessionId,
+                                                         @RequestParam(required = false) Integer offset,
+                                                         @RequestParam(required = false) Integer limit,
+                                                         Authentication authentication){
+        StudySessionPage response = studySessionService.getCards(sessionId,offset,limit,authentication);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    //  POST mapping to answer a card of a study session, applied when the session is closed
+    @PostMapping("/sessions/{sessionId}/answers")
+    public ResponseEntity<StudySessionResponse> answerInSession(@PathVariable String sessionId,
+                                                                @Valid @RequestBody StudySessionAnswer answer,
+                                                                Authentication authentication){
+        StudySessionResponse response = studySessionService.answer(sessionId,answer,authentication);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    //  DELETE mapping to close a study session, reviews all answered cards at once and returns one result per card
+    @DeleteMapping("/sessions/{sessionId}")
+    public ResponseEntity<List<BatchReviewItemResult>> closeSession(@PathVariable String sessionId,
+                                                                    Authentication authentication){
+        List<BatchReviewItemResult> response = studySessionService.close(sessionId,authentication);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
 }
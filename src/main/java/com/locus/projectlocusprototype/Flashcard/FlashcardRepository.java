@@ -1,10 +1,14 @@
 package com.locus.projectlocusprototype.Flashcard;
 
-import com.locus.projectlocusprototype.Note.Note;
-import com.locus.projectlocusprototype.Auth.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,7 +16,59 @@ import java.util.Optional;
 public interface FlashcardRepository extends JpaRepository<Flashcard,Long> {
     Optional<Flashcard> findFlashcardById(Long id);
 
-    List<Flashcard> findFlashcardsByNote(Note note);
+    //  OWNER-SCOPED QUERIES (the note is fetched along with the card since every response needs its title)
 
-    List<Flashcard> findFlashcardsByUser(User user);
+    @Query("SELECT f FROM Flashcard f JOIN FETCH f.note WHERE f.id = ?1 AND f.user.id = ?2")
+    Optional<Flashcard> findFlashcardByIdAndUserId(Long flashcardId, Long userId);
+
+    @Query("SELECT f FROM Flashcard f JOIN FETCH f.note WHERE f.id IN ?1 AND f.user.id = ?2")
+    List<Flashcard> findFlashcardsByIdInAndUserId(Collection<Long> flashcardIds, Long userId);
+
+    @Query("SELECT f FROM Flashcard f JOIN FETCH f.note WHERE f.note.id = ?1 AND f.user.id = ?2")
+    List<Flashcard> findFlashcardsByNoteIdAndUserId(Long noteId, Long userId);
+
+    @Query("SELECT f FROM Flashcard f JOIN FETCH f.note WHERE f.user.id = ?1")
+    List<Flashcard> findFlashcardsByUserId(Long userId);
+
+    @Query("SELECT new com.locus.projectlocusprototype.Flashcard.FlashcardText(f.id, f.front, f.back) FROM Flashcard f WHERE f.note.id = ?1")
+    List<FlashcardText> findFlashcardTextsByNoteId(Long noteId);
+
+    //  DUE QUEUE (cards whose next review is at or before the given time, most overdue first)
+
+    @Query("SELECT f FROM Flashcard f JOIN FETCH f.note WHERE f.user.id = ?1 AND f.nextReviewDate <= ?2 " +
+            "ORDER BY f.nextReviewDate ASC, f.id ASC")
+    List<Flashcard> findDueFlashcards(Long userId, LocalDateTime now, Pageable pageable);
+
+    @Query("SELECT f FROM Flashcard f JOIN FETCH f.note WHERE f.user.id = ?1 AND f.note.id = ?2 AND f.nextReviewDate <= ?3 " +
+            "ORDER BY f.nextReviewDate ASC, f.id ASC")
+    List<Flashcard> findDueFlashcardsForNote(Long userId, Long noteId, LocalDateTime now, Pageable pageable);
+
+    @Query("SELECT COUNT(f) FROM Flashcard f WHERE f.user.id = ?1 AND f.nextReviewDate <= ?2")
+    long countDueFlashcards(Long userId, LocalDateTime now);
+
+    @Query("SELECT COUNT(f) FROM Flashcard f WHERE f.user.id = ?1 AND f.note.id = ?2 AND f.nextReviewDate <= ?3")
+    long countDueFlashcardsForNote(Long userId, Long noteId, LocalDateTime now);
+
+    //  Null front/back leaves the column unchanged. An edited card belongs to the user from then on, so it is
+    //  no longer tied to (and retired with) the note section it was generated from
+    @Transactional
+    @Modifying
+    @Query("UPDATE Flashcard f SET f.front = COALESCE(?3, f.front), f.back = COALESCE(?4, f.back), f.sourceSection = NULL " +
+            "WHERE f.id = ?1 AND f.user.id = ?2")
+    int updateFlashcardByIdAndUserId(Long flashcardId, Long userId, String front, String back);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Flashcard f WHERE f.id = ?1 AND f.user.id = ?2")
+    int deleteFlashcardByIdAndUserId(Long flashcardId, Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Flashcard f WHERE f.id IN ?1 AND f.user.id = ?2")
+    int deleteFlashcardsByIdInAndUserId(Collection<Long> flashcardIds, Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Flashcard f WHERE f.note.id = ?1 AND f.user.id = ?2")
+    int deleteFlashcardsByNoteIdAndUserId(Long noteId, Long userId);
 }
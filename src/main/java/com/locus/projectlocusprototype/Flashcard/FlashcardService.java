@@ -1,16 +1,22 @@
 package com.locus.projectlocusprototype.Flashcard;
 
+import com.locus.projectlocusprototype.Exceptions.DuplicateFlashcardException;
 import com.locus.projectlocusprototype.Exceptions.InvalidFlashcardRequestException;
 import com.locus.projectlocusprototype.Exceptions.ResourceNotFoundException;
 import com.locus.projectlocusprototype.Note.*;
-import com.locus.projectlocusprototype.Auth.User;
 import com.locus.projectlocusprototype.Auth.AuthService;
+import com.locus.projectlocusprototype.Scheduling.ReviewScheduler;
+import com.locus.projectlocusprototype.Scheduling.SchedulerSettingsService;
 import jakarta.validation.Valid;
 import org.jspecify.annotations.NonNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.*;
 
 @Service
 public class FlashcardService {
@@ -18,28 +24,60 @@ public class FlashcardService {
     private final SpacedRepetitionService spacedRepetitionService;
     private final AuthService authService;
     private final NoteRepository noteRepository;
+    private final ReviewLogWriter reviewLogWriter;
+    private final FlashcardSimilarityIndex similarityIndex;
+    private final DeckStatsService deckStatsService;
+    private final SchedulerSettingsService schedulerSettingsService;
+    private final int defaultDueLimit;
+    private final int maxDueLimit;
 
 
     // CONSTRUCTORS
-    public FlashcardService(FlashcardRepository flashcardRepository, SpacedRepetitionService spacedRepetitionService, AuthService authService, NoteRepository noteRepository) {
+    public FlashcardService(FlashcardRepository flashcardRepository, SpacedRepetitionService spacedRepetitionService, AuthService authService, NoteRepository noteRepository, ReviewLogWriter reviewLogWriter, FlashcardSimilarityIndex similarityIndex, DeckStatsService deckStatsService, SchedulerSettingsService schedulerSettingsService,
+                            @Value("${locus.flashcards.due.default-limit:20}") int defaultDueLimit,
+                            @Value("${locus.flashcards.due.max-limit:200}") int maxDueLimit) {
         this.flashcardRepository = flashcardRepository;
         this.spacedRepetitionService = spacedRepetitionService;
         this.authService = authService;
         this.noteRepository = noteRepository;
+        this.reviewLogWriter = reviewLogWriter;
+        this.similarityIndex = similarityIndex;
+        this.deckStatsService = deckStatsService;
+        this.schedulerSettingsService = schedulerSettingsService;
+        this.defaultDueLimit = defaultDueLimit;
+        this.maxDueLimit = maxDueLimit;
     }
 
     //  PRIVATE METHODS
-    private Flashcard getFlashcardForUserByFlashcardId(User user, Long flashcardId){
-        //  Get the flashcard
-        Flashcard flashcard = flashcardRepository.findFlashcardById(flashcardId).orElseThrow(
+    private Flashcard getFlashcardForUserByFlashcardId(Long userId, Long flashcardId){
+        //  Get the flashcard, the query only matches flashcards owned by this user
+        return flashcardRepository.findFlashcardByIdAndUserId(flashcardId, userId).orElseThrow(
                 ()-> new InvalidFlashcardRequestException("ERROR: Flashcard with ID " + flashcardId + " does not exist"));
+    }
 
-        //  Check if this user owns this flashcard
-        if (!flashcard.getUser().equals(user)){
-            throw new InvalidFlashcardRequestException("ERROR: Flashcard with ID " + flashcardId + " does not exist");
-        } else {
-            return flashcard;
+    //  Apply the user's scheduler and append the before/after state to the review log (written asynchronously),
+    //  the card moves from its old to its new due day in the deck statistics
+    private void judgeAndLog(Flashcard flashcard, Long userId, int quality, LocalDateTime reviewedAt,
+                             ReviewScheduler scheduler, DeckStatsService.Change statsChange) {
+        ReviewEvent event = ReviewEvent.before(flashcard, userId, quality, reviewedAt);
+        statsChange.remove(flashcard);
+        spacedRepetitionService.judgeFlashcard(flashcard, quality, reviewedAt, scheduler);
+        statsChange.add(flashcard);
+        reviewLogWriter.record(event.after(flashcard));
+    }
+
+    private int dueLimit(Integer limit) {
+        if (limit == null) {
+            return defaultDueLimit;
+        }
+        if (limit < 1) {
+            throw new InvalidFlashcardRequestException("ERROR: limit must be at least 1");
         }
+        return Math.min(limit, maxDueLimit);
+    }
+
+    private static String emptyToNull(String value) {
+        return (value == null || value.isEmpty()) ? null : value;
     }
 
     //  PUBLIC METHODS
@@ -60,55 +98,71 @@ public class FlashcardService {
     // Get a single flashcard for a user via Authentication object
     public FlashcardResponse getFlashcard(Long flashcardId, Authentication authentication){
 
-        //  Get the user from the authentication
-        User user = authService.getUserFromAuthenticationObject(authentication);
-        return flashcardToResponse(getFlashcardForUserByFlashcardId(user,flashcardId));
+        //  Get the user id from the authentication
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        return flashcardToResponse(getFlashcardForUserByFlashcardId(userId,flashcardId));
     }
 
     //  Get all flashcards for a single note
     public List<FlashcardResponse> getFlashcardsForNote(Long noteId, Authentication authentication) {
-        //  Get the note
-        Note note = noteRepository.findNoteById(noteId).orElseThrow(
-                ()->new ResourceNotFoundException("ERROR: Note with id" + noteId + " does not exist")
-        );
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
 
-        //  Get the user
-        User user = authService.getUserFromAuthenticationObject(authentication);
+        //  Only flashcards of notes owned by this user can match
+        List<Flashcard> flashcards = flashcardRepository.findFlashcardsByNoteIdAndUserId(noteId, userId);
 
-        //  Check if this user owns this note, and if so return all flashcards that belong to this note
-        if(note.getUser().equals(user)){
-            return flashcardRepository.findFlashcardsByNote(note).stream().map(
-                    this::flashcardToResponse
-            ).toList();
-        } else {
+        //  An empty result is either an empty note or a note this user can't see, only then check which one
+        if (flashcards.isEmpty() && !noteRepository.existsNoteByIdAndUserId(noteId, userId)) {
             throw new ResourceNotFoundException("ERROR: Note with id" + noteId + " does not exist");
         }
+        return flashcards.stream().map(this::flashcardToResponse).toList();
     }
 
     //  Get all flashcards for a user through the authentication object
     public List<FlashcardResponse> getFlashcardsForUser(Authentication authentication) {
-        User user = authService.getUserFromAuthenticationObject(authentication);
-        return flashcardRepository.findFlashcardsByUser(user).stream().map(this::flashcardToResponse).toList();
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        return flashcardRepository.findFlashcardsByUserId(userId).stream().map(this::flashcardToResponse).toList();
+    }
+
+    //  Get the cards that are due for review now (most overdue first), optionally only for one note
+    public List<FlashcardResponse> getDueFlashcards(Long noteId, Integer limit, Authentication authentication) {
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        int size = dueLimit(limit);
+        LocalDateTime now = LocalDateTime.now();
+        List<Flashcard> due = (noteId == null)
+                ? flashcardRepository.findDueFlashcards(userId, now, PageRequest.ofSize(size))
+                : flashcardRepository.findDueFlashcardsForNote(userId, noteId, now, PageRequest.ofSize(size));
+        return due.stream().map(this::flashcardToResponse).toList();
+    }
+
+    //  Count the cards that are due for review now, optionally only for one note
+    public DueCountResponse countDueFlashcards(Long noteId, Authentication authentication) {
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        LocalDateTime now = LocalDateTime.now();
+        long count = (noteId == null)
+                ? flashcardRepository.countDueFlashcards(userId, now)
+                : flashcardRepository.countDueFlashcardsForNote(userId, noteId, now);
+        return new DueCountResponse(noteId, count, now);
     }
 
     //  Create a single flashcard for a user
     public FlashcardResponse createFlashcard(@NonNull FlashcardRequest request, Authentication authentication){
-        //  Get the user
-        User user = authService.getUserFromAuthenticationObject(authentication);
-        //  Get the note
-        Note note = noteRepository.findNoteById(request.noteId()).orElseThrow(
+        //  Get the user id
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        //  Get the note, which must belong to this user
+        Note note = noteRepository.findNoteByIdAndUserId(request.noteId(), userId).orElseThrow(
                 ()-> new InvalidFlashcardRequestException("ERROR: Note with ID " + request.noteId() + " does not exist"));
-        // Check if note belongs to this user
-        if(!note.getUser().equals(user)){
-            throw new InvalidFlashcardRequestException("ERROR: Note with ID " + request.noteId() + " does not exist");
-        }
-        //  Create the flashcard
-        Flashcard flashcard = new Flashcard(note,user,request.back(),request.front());
-        flashcardRepository.save(flashcard);
 
-        //  Add the flashcard to its associated note's flashcards hashset
-        note.getFlashcards().add(flashcard);
-        noteRepository.save(note);
+        //  Reject cards that are (nearly) the same as one the note already has
+        FlashcardSimilarityIndex.Signature signature = FlashcardSimilarityIndex.signature(request.front(), request.back());
+        similarityIndex.findDuplicate(note.getId(), signature).ifPresent(existingId -> {
+            throw new DuplicateFlashcardException("ERROR: Note " + note.getId() + " already has a near-identical flashcard (ID " + existingId + ")");
+        });
+
+        //  Create the flashcard (the flashcard owns the note relationship, so the note itself doesn't need saving)
+        Flashcard flashcard = new Flashcard(note,authService.getUserReference(userId),request.back(),request.front());
+        flashcardRepository.save(flashcard);
+        similarityIndex.add(note.getId(), flashcard.getId(), signature);
+        deckStatsService.cardsAdded(List.of(flashcard));
 
         //  Return the response
         return flashcardToResponse(flashcard);
@@ -116,50 +170,109 @@ public class FlashcardService {
     }
 
     //  Delete a single flashcard for a user by flashcard ID
+    //  (the card is loaded first, the deck statistics need its due date and ease)
+    @Transactional
     public void deleteFlashcard(Long flashcardId, Authentication authentication) {
-        //  Get the user
-        User user = authService.getUserFromAuthenticationObject(authentication);
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        Flashcard flashcard = getFlashcardForUserByFlashcardId(userId, flashcardId);
 
-        //  Get the flashcard
-        Flashcard flashcard = getFlashcardForUserByFlashcardId(user,flashcardId);
-        //  Delete the flashcard
-        flashcardRepository.delete(flashcard);
+        //  Delete the flashcard, nothing deleted means it doesn't exist or isn't owned by this user
+        if (flashcardRepository.deleteFlashcardByIdAndUserId(flashcardId, userId) == 0) {
+            throw new InvalidFlashcardRequestException("ERROR: Flashcard with ID " + flashcardId + " does not exist");
+        }
+        similarityIndex.remove(flashcardId);
+        deckStatsService.cardsRemoved(List.of(flashcard));
     }
 
     //  Update the front and/or the back of a flashcard
     public FlashcardResponse updateFlashcard(Long flashcardId, @Valid FlashcardRequest request, Authentication authentication) {
-        //  Get user
-        User user  = authService.getUserFromAuthenticationObject(authentication);
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        String front = emptyToNull(request.front());
+        String back = emptyToNull(request.back());
 
-        //  Get flashcard
-        Flashcard flashcard = getFlashcardForUserByFlashcardId(user,flashcardId);
-
-        //  Update based on presence of inputs
-        if (request.front() != null && !request.front().isEmpty()){
-            flashcard.setFront(request.front());
+        //  Reject edits that make the card (nearly) the same as another card of its note, the same check as on create
+        if (front != null || back != null) {
+            Flashcard current = getFlashcardForUserByFlashcardId(userId, flashcardId);
+            Long noteId = current.getNote().getId();
+            FlashcardSimilarityIndex.Signature signature = FlashcardSimilarityIndex.signature(
+                    front != null ? front : current.getFront(), back != null ? back : current.getBack());
+            similarityIndex.findDuplicate(noteId, signature, Set.of(flashcardId)).ifPresent(existingId -> {
+                throw new DuplicateFlashcardException("ERROR: Note " + noteId + " already has a near-identical flashcard (ID " + existingId + ")");
+            });
         }
-        if (request.back() != null  && !request.back().isEmpty()){
-            flashcard.setBack(request.back());
+
+        //  Update based on presence of inputs, in one ownership-scoped statement
+        int updated = flashcardRepository.updateFlashcardByIdAndUserId(
+                flashcardId, userId, front, back);
+        if (updated == 0) {
+            throw new InvalidFlashcardRequestException("ERROR: Flashcard with ID " + flashcardId + " does not exist");
         }
-        flashcardRepository.save(flashcard);
+        Flashcard flashcard = getFlashcardForUserByFlashcardId(userId, flashcardId);
+        similarityIndex.update(flashcard.getNote().getId(), flashcardId, flashcard.getFront(), flashcard.getBack());
         return flashcardToResponse(flashcard);
     }
 
     //  Review a flashcard using the SpacedRepetitionService
+    //  (transactional so the loaded card stays managed and save() doesn't re-select it)
+    @Transactional
     public FlashcardResponse reviewFlashcard(Long flashcardId, ReviewRequest reviewContent,Authentication authentication) {
-        //  Get the user
-        User user = authService.getUserFromAuthenticationObject(authentication);
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
 
         //  Get the flashcard
-        Flashcard flashcard = getFlashcardForUserByFlashcardId(user,flashcardId);
+        Flashcard flashcard = getFlashcardForUserByFlashcardId(userId,flashcardId);
 
         // now we know the flashcard exists AND the user is correct, review the note
-        spacedRepetitionService.judgeFlashcard(flashcard,reviewContent.qualityScore());
+        DeckStatsService.Change statsChange = new DeckStatsService.Change();
+        judgeAndLog(flashcard, userId, reviewContent.qualityScore(), LocalDateTime.now(),
+                schedulerSettingsService.schedulerFor(userId), statsChange);
 
         // now save the result and return the response
         flashcardRepository.save(flashcard);
+        deckStatsService.apply(statsChange);
 
         return flashcardToResponse(flashcard);
     }
 
+    //  Review many flashcards at once: one ownership-checked SELECT for all cards, then every SM-2 update is
+    //  flushed together at commit (Hibernate sends them as JDBC batches, see hibernate.jdbc.batch_size)
+    @Transactional
+    public List<BatchReviewItemResult> reviewFlashcards(BatchReviewRequest request, Authentication authentication) {
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        return reviewFlashcards(userId, request.reviews());
+    }
+
+    //  Same for an already authenticated user, study sessions flush their buffered answers through this
+    @Transactional
+    public List<BatchReviewItemResult> reviewFlashcards(Long userId, List<BatchReviewItem> reviews) {
+        //  Load every referenced card the user owns in one query
+        Set<Long> ids = new HashSet<>();
+        for (BatchReviewItem item : reviews) {
+            ids.add(item.flashcardId());
+        }
+        Map<Long, Flashcard> owned = new HashMap<>();
+        for (Flashcard flashcard : flashcardRepository.findFlashcardsByIdInAndUserId(ids, userId)) {
+            owned.put(flashcard.getId(), flashcard);
+        }
+
+        //  Apply the reviews in the order they were given
+        LocalDateTime now = LocalDateTime.now();
+        ReviewScheduler scheduler = schedulerSettingsService.schedulerFor(userId);
+        DeckStatsService.Change statsChange = new DeckStatsService.Change();
+        List<BatchReviewItemResult> results = new ArrayList<>(reviews.size());
+        for (BatchReviewItem item : reviews) {
+            Flashcard flashcard = owned.get(item.flashcardId());
+            if (flashcard == null) {
+                results.add(new BatchReviewItemResult(item.flashcardId(), BatchReviewItemResult.Status.NOT_FOUND, null));
+                continue;
+            }
+            //  A client clock running ahead must not push the card's schedule (and its review history) into the future
+            LocalDateTime reviewedAt = (item.reviewedAt() == null || item.reviewedAt().isAfter(now)) ? now : item.reviewedAt();
+            judgeAndLog(flashcard, userId, item.qualityScore(), reviewedAt, scheduler, statsChange);
+            results.add(new BatchReviewItemResult(item.flashcardId(), BatchReviewItemResult.Status.REVIEWED, flashcardToResponse(flashcard)));
+        }
+        //  The statistics of the whole session in one batch per table
+        deckStatsService.apply(statsChange);
+        return results;
+    }
+
 }
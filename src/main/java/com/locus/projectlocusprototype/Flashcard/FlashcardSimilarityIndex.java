@@ -0,0 +1,320 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Per-note index of MinHash signatures over the words of every flashcard (front and back), used to spot
+// near-duplicates without scanning (or even loading) the note's cards.
+// Two cards are near-duplicates when the estimated Jaccard similarity of their word sets reaches the threshold.
+// Lookups use locality-sensitive hashing: each signature is cut into BANDS bands of ROWS values and every band
+// is bucketed, so only cards that agree on at least one whole band are compared. With 8 bands of 4 rows a pair
+// at similarity 0.75 shares a band with ~96% probability, a pair at 0.4 with ~20% (and is then rejected).
+// A note's index is built from the database on first use and then kept up to date by FlashcardService and
+// AIService (changes are applied after their transaction commits). Idle notes are dropped and rebuilt on demand.
+@Component
+public class FlashcardSimilarityIndex {
+    private static final int BANDS = 8;
+    private static final int ROWS = 4;
+    private static final int HASHES = BANDS * ROWS;
+
+    //  MinHash signature of one card
+    public static final class Signature {
+        private final int[] minHashes;
+        private final boolean empty;
+
+        private Signature(int[] minHashes, boolean empty) {
+            this.minHashes = minHashes;
+            this.empty = empty;
+        }
+
+        //  True when the card has no words at all (e.g. only punctuation); such a card is similar to nothing
+        public boolean isEmpty() {
+            return empty;
+        }
+
+        //  Estimated Jaccard similarity of the two word sets (share of equal min-hashes)
+        public double similarity(Signature other) {
+            if (empty || other.empty) {
+                return 0;
+            }
+            int equal = 0;
+            for (int i = 0; i < HASHES; i++) {
+                if (minHashes[i] == other.minHashes[i]) {
+                    equal++;
+                }
+            }
+            return (double) equal / HASHES;
+        }
+
+        private long band(int band) {
+            long key = band;
+            for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+                key = key * 0x9E3779B97F4A7C15L + minHashes[row];
+            }
+            return key;
+        }
+    }
+
+    private final FlashcardRepository flashcardRepository;
+    private final double threshold;
+    private final int maxNotes;
+    private final long idleNanos;
+    private final Map<Long, NoteIndex> notes = new ConcurrentHashMap<>();
+    private final Map<Long, Long> cardNotes = new ConcurrentHashMap<>(); // flashcard id -> note id, for indexed notes
+
+    public FlashcardSimilarityIndex(FlashcardRepository flashcardRepository,
+                                    @Value("${locus.flashcards.duplicates.similarity-threshold:0.7}") double threshold,
+                                    @Value("${locus.flashcards.duplicates.max-notes:10000}") int maxNotes,
+                                    @Value("${locus.flashcards.duplicates.idle-minutes:60}") long idleMinutes,
+                                    MeterRegistry meterRegistry) {
+        this.flashcardRepository = flashcardRepository;
+        this.threshold = threshold;
+        this.maxNotes = maxNotes;
+        this.idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+        Gauge.builder("locus.flashcards.similarity.notes", notes, Map::size).register(meterRegistry);
+        Gauge.builder("locus.flashcards.similarity.cards", cardNotes, Map::size).register(meterRegistry);
+    }
+
+    //  PUBLIC METHODS
+
+    public static Signature signature(String front, String back) {
+        int[] minHashes = new int[HASHES];
+        Arrays.fill(minHashes, Integer.MAX_VALUE);
+        boolean empty = true;
+        for (String text : new String[]{front, back}) {
+            if (text == null) {
+                continue;
+            }
+            for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+                if (word.isEmpty()) {
+                    continue;
+                }
+                empty = false;
+                long wordHash = hash(word);
+                for (int i = 0; i < HASHES; i++) {
+                    // HASHES independent hash functions derived from one 64-bit word hash
+                    int h = (int) mix(wordHash + (i + 1) * 0x9E3779B97F4A7C15L);
+                    if (h < minHashes[i]) {
+                        minHashes[i] = h;
+                    }
+                }
+            }
+        }
+        return new Signature(minHashes, empty);
+    }
+
+    public boolean isNearDuplicate(Signature a, Signature b) {
+        return !a.isEmpty() && !b.isEmpty() && a.similarity(b) >= threshold;
+    }
+
+    //  Id of the most similar existing card of the note at or above the threshold, if any
+    public Optional<Long> findDuplicate(Long noteId, Signature signature) {
+        return findDuplicate(noteId, signature, Set.of());
+    }
+
+    //  Same, but cards in excluded (e.g. about to be retired, or the card being edited) are skipped while scanning,
+    //  so the closest remaining card is found even when an excluded one is closer
+    public Optional<Long> findDuplicate(Long noteId, Signature signature, Set<Long> excluded) {
+        if (signature.isEmpty()) {
+            return Optional.empty();
+        }
+        return noteIndex(noteId).closest(signature, threshold, excluded);
+    }
+
+    //  Cards without words are not indexed, adding one (e.g. an edit that removed every word) drops the old entry
+    public void add(Long noteId, Long flashcardId, Signature signature) {
+        afterCommit(() -> {
+            NoteIndex index = notes.get(noteId);
+            if (index == null) {
+                return;
+            }
+            if (signature.isEmpty()) {
+                index.remove(flashcardId);
+                cardNotes.remove(flashcardId);
+            } else {
+                index.put(flashcardId, signature);
+                cardNotes.put(flashcardId, noteId);
+            }
+        });
+    }
+
+    public void update(Long noteId, Long flashcardId, String front, String back) {
+        add(noteId, flashcardId, signature(front, back));
+    }
+
+    public void remove(Long flashcardId) {
+        afterCommit(() -> {
+            Long noteId = cardNotes.remove(flashcardId);
+            NoteIndex index = noteId == null ? null : notes.get(noteId);
+            if (index != null) {
+                index.remove(flashcardId);
+            }
+        });
+    }
+
+    public void removeNote(Long noteId) {
+        afterCommit(() -> {
+            NoteIndex index = notes.remove(noteId);
+            if (index != null) {
+                index.cardIds().forEach(cardNotes::remove);
+            }
+        });
+    }
+
+    //  Drop notes that weren't used for a while, and the least recently used ones beyond maxNotes
+    @Scheduled(fixedDelayString = "${locus.flashcards.duplicates.sweep-ms:300000}")
+    public void evictIdle() {
+        record Usage(Long noteId, NoteIndex index, long lastUsed) {}
+        long now = System.nanoTime();
+        // lastUsed keeps changing, so sort on a snapshot of it
+        List<Usage> byLastUse = new ArrayList<>(notes.size());
+        notes.forEach((noteId, index) -> byLastUse.add(new Usage(noteId, index, index.lastUsed)));
+        byLastUse.sort(Comparator.comparingLong(Usage::lastUsed).reversed());
+        for (int i = 0; i < byLastUse.size(); i++) {
+            Usage usage = byLastUse.get(i);
+            if (i >= maxNotes || now - usage.lastUsed() > idleNanos) {
+                if (notes.remove(usage.noteId(), usage.index())) {
+                    usage.index().cardIds().forEach(cardNotes::remove);
+                }
+            }
+        }
+    }
+
+    //  PRIVATE METHODS
+
+    private NoteIndex noteIndex(Long noteId) {
+        NoteIndex index = notes.computeIfAbsent(noteId, id -> new NoteIndex());
+        index.lastUsed = System.nanoTime();
+        // built outside computeIfAbsent so the query doesn't run while holding a lock of the map
+        index.loadIfNeeded(noteId);
+        return index;
+    }
+
+    //  Inside a transaction the change is applied once it commits, so a rollback leaves the index untouched
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    //  64-bit FNV-1a
+    private static long hash(String word) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < word.length(); i++) {
+            h ^= word.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    //  murmur3 finalizer, spreads every input bit over all output bits
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private final class NoteIndex {
+        private final Map<Long, Signature> signatures = new HashMap<>();
+        @SuppressWarnings("unchecked")
+        private final Map<Long, Set<Long>>[] buckets = new Map[BANDS];
+        private boolean loaded;
+        private volatile long lastUsed = System.nanoTime();
+
+        NoteIndex() {
+            for (int b = 0; b < BANDS; b++) {
+                buckets[b] = new HashMap<>();
+            }
+        }
+
+        synchronized void loadIfNeeded(Long noteId) {
+            if (loaded) {
+                return;
+            }
+            for (FlashcardText card : flashcardRepository.findFlashcardTextsByNoteId(noteId)) {
+                Signature signature = signature(card.front(), card.back());
+                if (!signature.isEmpty()) {
+                    put(card.id(), signature);
+                    cardNotes.put(card.id(), noteId);
+                }
+            }
+            loaded = true;
+        }
+
+        synchronized Optional<Long> closest(Signature signature, double threshold, Set<Long> excluded) {
+            Long best = null;
+            double bestSimilarity = -1;
+            for (int b = 0; b < BANDS; b++) {
+                Set<Long> candidates = buckets[b].get(signature.band(b));
+                if (candidates == null) {
+                    continue;
+                }
+                for (Long candidate : candidates) {
+                    if (excluded.contains(candidate)) {
+                        continue;
+                    }
+                    double similarity = signatures.get(candidate).similarity(signature);
+                    if (similarity >= threshold && similarity > bestSimilarity) {
+                        best = candidate;
+                        bestSimilarity = similarity;
+                    }
+                }
+            }
+            return Optional.ofNullable(best);
+        }
+
+        synchronized void put(Long flashcardId, Signature signature) {
+            remove(flashcardId);
+            signatures.put(flashcardId, signature);
+            for (int b = 0; b < BANDS; b++) {
+                buckets[b].computeIfAbsent(signature.band(b), key -> new HashSet<>()).add(flashcardId);
+            }
+        }
+
+        synchronized void remove(Long flashcardId) {
+            Signature previous = signatures.remove(flashcardId);
+            if (previous == null) {
+                return;
+            }
+            for (int b = 0; b < BANDS; b++) {
+                long key = previous.band(b);
+                Set<Long> bucket = buckets[b].get(key);
+                if (bucket != null && bucket.remove(flashcardId) && bucket.isEmpty()) {
+                    buckets[b].remove(key);
+                }
+            }
+        }
+
+        synchronized List<Long> cardIds() {
+            return new ArrayList<>(signatures.keySet());
+        }
+    }
+}
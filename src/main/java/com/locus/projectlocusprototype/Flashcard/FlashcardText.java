@@ -0,0 +1,5 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+//  Just the text of a flashcard, enough to (re)build the similarity index of a note
+public record FlashcardText(Long id, String front, String back) {
+}
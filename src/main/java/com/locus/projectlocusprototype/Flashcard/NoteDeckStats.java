@@ -0,0 +1,30 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+// Materialized card count and ease total of one note, kept up to date by DeckStatsService.
+// Per-user statistics are the sum over the user's notes. Rows are written with JDBC upserts, not through JPA.
+@Entity
+@Table(name = "note_deck_stats", indexes = {
+        @Index(name = "idx_note_deck_stats_user", columnList = "user_id")
+})
+@Getter
+public class NoteDeckStats {
+    @Id
+    private Long noteId;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private long cardCount;
+
+    // Sum of the ease factors of the note's cards, the average is easeSum / cardCount
+    @Column(nullable = false)
+    private double easeSum;
+
+    protected NoteDeckStats() {
+
+    }
+}
@@ -0,0 +1,52 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// Number of a note's cards whose next review falls on dueDate, kept up to date by DeckStatsService.
+// Days in the past are kept as they are, together they are the cards that are overdue.
+// Rows are written with JDBC upserts, not through JPA.
+@Entity
+@Table(name = "note_due_counts", indexes = {
+        @Index(name = "idx_note_due_counts_user_date", columnList = "user_id, due_date"),
+        @Index(name = "idx_note_due_counts_note_date", columnList = "note_id, due_date")
+})
+@Getter
+public class NoteDueCount {
+    @Embeddable
+    @Getter
+    public static class Key implements Serializable {
+        private Long noteId;
+        private LocalDate dueDate;
+
+        protected Key() {
+
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && noteId.equals(other.noteId) && dueDate.equals(other.dueDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * noteId.hashCode() + dueDate.hashCode();
+        }
+    }
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private long cardCount;
+
+    protected NoteDueCount() {
+
+    }
+}
@@ -0,0 +1,69 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Append-only record of one review: the quality given and the scheduling state before and after it.
+// Rows are never updated. They are written in batches by the ReviewLogWriter rather than through JPA,
+// and flashcard_id deliberately has no foreign key so history survives card deletion.
+@Entity
+@Table(name = "review_events", indexes = {
+        @Index(name = "idx_review_events_user_reviewed_at", columnList = "user_id, reviewed_at")
+})
+@Getter
+public class ReviewEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long flashcardId;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private int quality;
+
+    private double prevEaseFactor;
+    private int prevIntervalDays;
+    private int prevRepetitions;
+    private LocalDateTime prevNextReviewDate;
+
+    private double newEaseFactor;
+    private int newIntervalDays;
+    private int newRepetitions;
+    private LocalDateTime newNextReviewDate;
+
+    @Column(nullable = false)
+    private LocalDateTime reviewedAt;
+
+    protected ReviewEvent() {
+
+    }
+
+    // Captures the card's scheduling state before the review is applied
+    public static ReviewEvent before(Flashcard flashcard, Long userId, int quality, LocalDateTime reviewedAt) {
+        ReviewEvent event = new ReviewEvent();
+        event.flashcardId = flashcard.getId();
+        event.userId = userId;
+        event.quality = quality;
+        event.prevEaseFactor = flashcard.getEaseFactor();
+        event.prevIntervalDays = flashcard.getInterval();
+        event.prevRepetitions = flashcard.getRepetitions();
+        event.prevNextReviewDate = flashcard.getNextReviewDate();
+        event.reviewedAt = reviewedAt;
+        return event;
+    }
+
+    // Captures the card's scheduling state after the review was applied
+    public ReviewEvent after(Flashcard flashcard) {
+        this.newEaseFactor = flashcard.getEaseFactor();
+        this.newIntervalDays = flashcard.getInterval();
+        this.newRepetitions = flashcard.getRepetitions();
+        this.newNextReviewDate = flashcard.getNextReviewDate();
+        return this;
+    }
+}
@@ -0,0 +1,11 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReviewEventRepository extends JpaRepository<ReviewEvent, Long> {
+    List<ReviewEvent> findReviewEventsByFlashcardIdOrderByReviewedAtAsc(Long flashcardId);
+}
@@ -0,0 +1,217 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Write-behind persistence for ReviewEvents.
+// Reviews only enqueue their event into a bounded in-memory ring buffer (after their transaction commits);
+// a single background thread drains it and writes each batch as one multi-row INSERT.
+// When the buffer is full, a committing transaction waits at most offer-timeout-ms in total for room (backpressure),
+// however many events it recorded, and events that still don't fit are dropped.
+// With flush-on-shutdown, everything still buffered is written before the application stops.
+@Component
+public class ReviewLogWriter {
+    private static final Logger log = LoggerFactory.getLogger(ReviewLogWriter.class);
+    private static final String INSERT_PREFIX = "INSERT INTO review_events (flashcard_id, user_id, quality, " +
+            "prev_ease_factor, prev_interval_days, prev_repetitions, prev_next_review_date, " +
+            "new_ease_factor, new_interval_days, new_repetitions, new_next_review_date, reviewed_at) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?,?,?,?,?,?,?,?,?,?,?,?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ArrayBlockingQueue<ReviewEvent> buffer;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final boolean flushOnShutdown;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public ReviewLogWriter(JdbcTemplate jdbcTemplate,
+                           @Value("${locus.review-log.buffer-capacity:10000}") int bufferCapacity,
+                           @Value("${locus.review-log.batch-size:500}") int batchSize,
+                           @Value("${locus.review-log.flush-interval-ms:1000}") long flushIntervalMillis,
+                           @Value("${locus.review-log.offer-timeout-ms:50}") long offerTimeoutMillis,
+                           @Value("${locus.review-log.flush-on-shutdown:true}") boolean flushOnShutdown,
+                           MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.flushOnShutdown = flushOnShutdown;
+
+        Gauge.builder("locus.review-log.buffer.size", buffer, ArrayBlockingQueue::size).register(meterRegistry);
+        this.written = Counter.builder("locus.review-log.events").tag("result", "written").register(meterRegistry);
+        this.dropped = Counter.builder("locus.review-log.events").tag("result", "dropped").register(meterRegistry);
+        this.failed = Counter.builder("locus.review-log.events").tag("result", "failed").register(meterRegistry);
+    }
+
+    //  PUBLIC METHODS
+
+    // Queue an event for writing. Inside a transaction it is only queued once that transaction commits,
+    // so a rolled back review leaves no history behind. All events of a transaction are queued together.
+    public void record(ReviewEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingEvents().events.add(event);
+        } else {
+            enqueue(List.of(event));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::runWriter, "review-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        if (flushOnShutdown) {
+            List<ReviewEvent> batch = new ArrayList<>(batchSize);
+            while (buffer.drainTo(batch, batchSize) > 0) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        } else if (!buffer.isEmpty()) {
+            log.warn("Discarding {} buffered review events on shutdown", buffer.size());
+        }
+    }
+
+    //  PRIVATE METHODS
+
+    //  Events recorded in the current transaction (a transaction suspended for REQUIRES_NEW keeps its own)
+    private PendingEvents pendingEvents() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingEvents pending && pending.writer() == this) {
+                return pending;
+            }
+        }
+        PendingEvents pending = new PendingEvents();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    //  One deadline for the whole list: once it has passed, the remaining events only go in if there is room
+    private void enqueue(List<ReviewEvent> events) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+        boolean interrupted = false;
+        for (ReviewEvent event : events) {
+            boolean queued;
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || interrupted) {
+                queued = buffer.offer(event);
+            } else {
+                try {
+                    queued = buffer.offer(event, remaining, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    queued = buffer.offer(event);
+                }
+            }
+            if (!queued) {
+                dropped.increment();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        List<ReviewEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                ReviewEvent first = buffer.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                // stop() interrupts the thread, anything left is handled there
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<ReviewEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + batch.size() * (ROW_PLACEHOLDERS.length() + 1));
+        sql.append(INSERT_PREFIX);
+        List<Object> args = new ArrayList<>(batch.size() * 12);
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(ROW_PLACEHOLDERS);
+            ReviewEvent event = batch.get(i);
+            args.add(event.getFlashcardId());
+            args.add(event.getUserId());
+            args.add(event.getQuality());
+            args.add(event.getPrevEaseFactor());
+            args.add(event.getPrevIntervalDays());
+            args.add(event.getPrevRepetitions());
+            args.add(toTimestamp(event.getPrevNextReviewDate()));
+            args.add(event.getNewEaseFactor());
+            args.add(event.getNewIntervalDays());
+            args.add(event.getNewRepetitions());
+            args.add(toTimestamp(event.getNewNextReviewDate()));
+            args.add(toTimestamp(event.getReviewedAt()));
+        }
+        try {
+            jdbcTemplate.update(sql.toString(), args.toArray());
+            written.increment(batch.size());
+        } catch (RuntimeException e) {
+            failed.increment(batch.size());
+            log.error("Failed to write {} review events", batch.size(), e);
+        }
+    }
+
+    private final class PendingEvents implements TransactionSynchronization {
+        final List<ReviewEvent> events = new ArrayList<>();
+
+        ReviewLogWriter writer() {
+            return ReviewLogWriter.this;
+        }
+
+        @Override
+        public void afterCommit() {
+            enqueue(events);
+        }
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime dateTime) {
+        return dateTime == null ? null : Timestamp.valueOf(dateTime);
+    }
+}
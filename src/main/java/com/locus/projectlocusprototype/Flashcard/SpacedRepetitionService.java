@@ -1,48 +1,56 @@
 package com.locus.projectlocusprototype.Flashcard;
 
+import com.locus.projectlocusprototype.Scheduling.ReviewScheduler;
+import com.locus.projectlocusprototype.Scheduling.SchedulingState;
+import com.locus.projectlocusprototype.Scheduling.Sm2Scheduler;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 
 @Service
 public class SpacedRepetitionService {
-    // This SpacedRepetitionService uses the SM-2 Algorithm to calculate when a note should be reviewed
-    // For a good explanation, visit https://github.com/thyagoluciano/sm2
-
+    // This SpacedRepetitionService applies a review to a flashcard through a ReviewScheduler (SM-2 unless the
+    // user chose another one, see SchedulerSettingsService). The card is copied into a primitive SchedulingState,
+    // scheduled, and copied back, so the schedulers never deal with the entity's boxed fields.
+    private static final ReviewScheduler SM2 = new Sm2Scheduler();
 
     public void judgeFlashcard(Flashcard flashcard, Integer quality){
-        if (quality < 3){
-            // user failed, reset interval AND repetitions
-            flashcard.setRepetitions(0);
-            flashcard.setInterval(1);
-            // update review date to tomorrow
-            flashcard.setNextReviewDate(LocalDateTime.now().plusDays(1));
-        } else {
-            // if this was the first pass (i.e., note.getRepetitions() == 0) then set interval to 1 (review tmr)
-            // if this was the second pass, set Interval to 6
-            // Otherwise, set interval to (previous interval) * (ease factor)
-            if (flashcard.getRepetitions() == 0) {
-                // first pass
-                flashcard.setRepetitions(1);
-                flashcard.setInterval(1);
-            } else if (flashcard.getRepetitions() == 1){
-                // second pass
-                flashcard.setRepetitions(flashcard.getRepetitions()+1);
-                flashcard.setInterval(6);
-            } else {
-                // 2+ pass
-                flashcard.setRepetitions(flashcard.getRepetitions()+1);
-                flashcard.setInterval((int) Math.ceil(flashcard.getInterval() * flashcard.getEaseFactor()));
-            }
-            flashcard.setNextReviewDate(flashcard.getNextReviewDate().plusDays(flashcard.getInterval()));
+        judgeFlashcard(flashcard, quality, LocalDateTime.now());
+    }
 
+    // Same as above for a review that happened at reviewedAt (e.g. buffered by the client and sent in a batch).
+    // reviewedAt becomes the last review date and schedules a failed card (due a day later), but with SM-2 a passed
+    // card's next review is counted from its previous due date, not from reviewedAt
+    public void judgeFlashcard(Flashcard flashcard, Integer quality, LocalDateTime reviewedAt){
+        judgeFlashcard(flashcard, quality, reviewedAt, SM2);
+    }
+
+    public void judgeFlashcard(Flashcard flashcard, int quality, LocalDateTime reviewedAt, ReviewScheduler scheduler){
+        SchedulingState state = new SchedulingState();
+        state.setEaseFactor(flashcard.getEaseFactor());
+        state.setIntervalDays(flashcard.getInterval());
+        state.setRepetitions(flashcard.getRepetitions());
+        state.setStability(flashcard.getStability() == null ? 0 : flashcard.getStability());
+        state.setDifficulty(flashcard.getDifficulty() == null ? 0 : flashcard.getDifficulty());
+        state.setLastReviewSecond(flashcard.getLastReviewDate() == null ? SchedulingState.NEVER : toSecond(flashcard.getLastReviewDate()));
+        state.setDueSecond(toSecond(flashcard.getNextReviewDate() == null ? reviewedAt : flashcard.getNextReviewDate()));
+
+        scheduler.review(state, quality, toSecond(reviewedAt));
+
+        flashcard.setEaseFactor(state.getEaseFactor());
+        flashcard.setInterval(state.getIntervalDays());
+        flashcard.setRepetitions(state.getRepetitions());
+        if (state.getStability() > 0) {
+            flashcard.setStability(state.getStability());
+            flashcard.setDifficulty(state.getDifficulty());
         }
-        // update ease factor (equation from SM-2 algorithm description)
-        double newEF = flashcard.getEaseFactor() + (0.1 - (5 - quality) * (.08 + (5-quality) * .02));
-        if (newEF < 1.3){
-            newEF = 1.3; // minimum value for Easing Factor
-        }
-        flashcard.setEaseFactor(newEF);
+        flashcard.setLastReviewDate(reviewedAt);
+        flashcard.setNextReviewDate(LocalDateTime.ofEpochSecond(state.getDueSecond(), 0, ZoneOffset.UTC));
         //NOTE: SpacedRepetitionService does NOT save the changes to the note.
     }
+
+    private static long toSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
 }
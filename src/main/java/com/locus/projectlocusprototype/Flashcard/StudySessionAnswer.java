@@ -0,0 +1,12 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+//  Answer to one card of a study session, a second answer to the same card replaces the first
+public record StudySessionAnswer(
+        @NotNull Long flashcardId,
+        @Min(0) @Max(5) int qualityScore
+) {
+}
@@ -0,0 +1,12 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import java.util.List;
+
+//  A page of a session's cards, nextOffset is null after the last page
+public record StudySessionPage(
+        String sessionId,
+        List<FlashcardResponse> cards,
+        Integer nextOffset,
+        int cardCount
+) {
+}
@@ -0,0 +1,10 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import jakarta.validation.constraints.Min;
+
+//  Opens a study session over the next size due cards (default and maximum are configured), optionally of one note
+public record StudySessionRequest(
+        Long noteId,
+        @Min(1) Integer size
+) {
+}
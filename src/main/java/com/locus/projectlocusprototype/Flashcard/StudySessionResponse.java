@@ -0,0 +1,13 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import java.time.LocalDateTime;
+
+//  sessionId is null when nothing was due, no session is kept then
+public record StudySessionResponse(
+        String sessionId,
+        Long noteId,
+        int cardCount,
+        int answered,
+        LocalDateTime expiresAt
+) {
+}
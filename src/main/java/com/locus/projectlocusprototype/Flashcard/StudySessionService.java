@@ -0,0 +1,242 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import com.locus.projectlocusprototype.Auth.AuthService;
+import com.locus.projectlocusprototype.Exceptions.InvalidFlashcardRequestException;
+import com.locus.projectlocusprototype.Exceptions.ResourceNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Server-side study sessions: opening one selects the next due cards once, the client then pages through them
+// and answers them from memory, and the answers are applied as one batch review when the session is closed or
+// has been idle for idle-minutes. A session costs two queries (the due cards, then the cards to update), however
+// many cards it has. Sessions live in memory only, bounded by max-sessions (the least recently used one is
+// flushed and dropped to make room) and flushed on shutdown.
+@Service
+public class StudySessionService {
+    private static final Logger log = LoggerFactory.getLogger(StudySessionService.class);
+
+    private static final class Session {
+        final String id;
+        final Long userId;
+        final Long noteId;
+        final List<FlashcardResponse> cards;
+        final Set<Long> cardIds = new HashSet<>();
+        final Map<Long, BatchReviewItem> answers = new LinkedHashMap<>();
+        LocalDateTime lastUsed;
+        boolean closed;
+
+        Session(Long userId, Long noteId, List<FlashcardResponse> cards, LocalDateTime now) {
+            this.id = UUID.randomUUID().toString();
+            this.userId = userId;
+            this.noteId = noteId;
+            this.cards = cards;
+            this.lastUsed = now;
+            for (FlashcardResponse card : cards) {
+                cardIds.add(card.id());
+            }
+        }
+    }
+
+    private final FlashcardRepository flashcardRepository;
+    private final FlashcardService flashcardService;
+    private final AuthService authService;
+    private final int maxSessions;
+    private final int defaultSize;
+    private final int maxSize;
+    private final int defaultPageSize;
+    private final Duration idleTimeout;
+    private final Map<String, Session> sessions;
+    private final Counter expired;
+
+    public StudySessionService(FlashcardRepository flashcardRepository, FlashcardService flashcardService, AuthService authService,
+                               @Value("${locus.study.sessions.max-sessions:10000}") int maxSessions,
+                               @Value("${locus.study.sessions.default-size:50}") int defaultSize,
+                               @Value("${locus.study.sessions.max-size:200}") int maxSize,
+                               @Value("${locus.flashcards.due.default-limit:20}") int defaultPageSize,
+                               @Value("${locus.study.sessions.idle-minutes:30}") long idleMinutes,
+                               MeterRegistry meterRegistry) {
+        this.flashcardRepository = flashcardRepository;
+        this.flashcardService = flashcardService;
+        this.authService = authService;
+        this.maxSessions = maxSessions;
+        this.defaultSize = defaultSize;
+        this.maxSize = maxSize;
+        this.defaultPageSize = defaultPageSize;
+        this.idleTimeout = Duration.ofMinutes(idleMinutes);
+        // access-ordered LinkedHashMap = LRU, guarded by synchronizing on it (evictions are flushed outside the lock)
+        this.sessions = new LinkedHashMap<>(16, 0.75f, true);
+        this.expired = Counter.builder("locus.study.sessions.expired")
+                .description("Study sessions flushed because they were idle or evicted to make room")
+                .register(meterRegistry);
+        Gauge.builder("locus.study.sessions.active", this, StudySessionService::size).register(meterRegistry);
+    }
+
+    //  PUBLIC METHODS
+
+    //  Select the next due cards (most overdue first) into a new session
+    public StudySessionResponse open(StudySessionRequest request, Authentication authentication) {
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        int size = request.size() == null ? defaultSize : Math.min(request.size(), maxSize);
+        LocalDateTime now = LocalDateTime.now();
+        List<Flashcard> due = (request.noteId() == null)
+                ? flashcardRepository.findDueFlashcards(userId, now, PageRequest.ofSize(size))
+                : flashcardRepository.findDueFlashcardsForNote(userId, request.noteId(), now, PageRequest.ofSize(size));
+        if (due.isEmpty()) {
+            return new StudySessionResponse(null, request.noteId(), 0, 0, null);
+        }
+
+        Session session = new Session(userId, request.noteId(), due.stream().map(flashcardService::flashcardToResponse).toList(), now);
+        Session evicted = null;
+        synchronized (sessions) {
+            sessions.put(session.id, session);
+            if (sessions.size() > maxSessions) {
+                Iterator<Session> eldest = sessions.values().iterator();
+                evicted = eldest.next();
+                eldest.remove();
+            }
+        }
+        if (evicted != null) {
+            expired.increment();
+            flushQuietly(evicted);
+        }
+        return toResponse(session);
+    }
+
+    public StudySessionPage getCards(String sessionId, Integer offset, Integer limit, Authentication authentication) {
+        Session session = getSession(sessionId, authentication);
+        int from = offset == null ? 0 : offset;
+        int size = limit == null ? defaultPageSize : limit;
+        if (from < 0 || size < 1) {
+            throw new InvalidFlashcardRequestException("ERROR: offset must be at least 0 and limit at least 1");
+        }
+        synchronized (session) {
+            session.lastUsed = LocalDateTime.now();
+            int to = Math.min(session.cards.size(), from + Math.min(size, maxSize));
+            List<FlashcardResponse> page = from >= to ? List.of() : session.cards.subList(from, to);
+            return new StudySessionPage(session.id, page, to < session.cards.size() ? to : null, session.cards.size());
+        }
+    }
+
+    //  Buffer an answer, it is applied when the session ends
+    public StudySessionResponse answer(String sessionId, StudySessionAnswer answer, Authentication authentication) {
+        Session session = getSession(sessionId, authentication);
+        synchronized (session) {
+            if (session.closed) {
+                throw new ResourceNotFoundException("ERROR: Study session " + sessionId + " does not exist");
+            }
+            if (!session.cardIds.contains(answer.flashcardId())) {
+                throw new InvalidFlashcardRequestException("ERROR: Flashcard with ID " + answer.flashcardId() + " is not part of this study session");
+            }
+            LocalDateTime now = LocalDateTime.now();
+            session.answers.put(answer.flashcardId(), new BatchReviewItem(answer.flashcardId(), answer.qualityScore(), now));
+            session.lastUsed = now;
+            return toResponse(session);
+        }
+    }
+
+    //  End the session and apply its answers, returns one result per answered card
+    public List<BatchReviewItemResult> close(String sessionId, Authentication authentication) {
+        Session session = getSession(sessionId, authentication);
+        synchronized (sessions) {
+            sessions.remove(sessionId, session);
+        }
+        return flush(session);
+    }
+
+    public int size() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    //  Flush and drop the sessions nobody used for idle-minutes
+    @Scheduled(fixedDelayString = "${locus.study.sessions.sweep-ms:60000}")
+    public void flushIdle() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(idleTimeout);
+        List<Session> idle = new ArrayList<>();
+        synchronized (sessions) {
+            Iterator<Session> iterator = sessions.values().iterator();
+            while (iterator.hasNext()) {
+                Session session = iterator.next();
+                if (session.lastUsed.isBefore(cutoff)) {
+                    idle.add(session);
+                    iterator.remove();
+                }
+            }
+        }
+        for (Session session : idle) {
+            expired.increment();
+            flushQuietly(session);
+        }
+    }
+
+    //  Answers must not be lost on a regular shutdown
+    @PreDestroy
+    public void flushAll() {
+        List<Session> remaining;
+        synchronized (sessions) {
+            remaining = new ArrayList<>(sessions.values());
+            sessions.clear();
+        }
+        remaining.forEach(this::flushQuietly);
+    }
+
+    //  PRIVATE METHODS
+
+    //  Sessions of other users look the same as ones that don't exist
+    private Session getSession(String sessionId, Authentication authentication) {
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        Session session;
+        synchronized (sessions) {
+            session = sessions.get(sessionId);
+        }
+        if (session == null || !session.userId.equals(userId)) {
+            throw new ResourceNotFoundException("ERROR: Study session " + sessionId + " does not exist");
+        }
+        return session;
+    }
+
+    //  Marks the session closed so no answer can slip in after its batch was taken
+    private List<BatchReviewItemResult> flush(Session session) {
+        List<BatchReviewItem> answers;
+        synchronized (session) {
+            if (session.closed) {
+                return List.of();
+            }
+            session.closed = true;
+            answers = new ArrayList<>(session.answers.values());
+        }
+        if (answers.isEmpty()) {
+            return List.of();
+        }
+        return flashcardService.reviewFlashcards(session.userId, answers);
+    }
+
+    private void flushQuietly(Session session) {
+        try {
+            flush(session);
+        } catch (RuntimeException e) {
+            log.warn("Applying the answers of study session {} (user {}) failed", session.id, session.userId, e);
+        }
+    }
+
+    private StudySessionResponse toResponse(Session session) {
+        synchronized (session) {
+            return new StudySessionResponse(session.id, session.noteId, session.cards.size(), session.answers.size(),
+                    session.lastUsed.plus(idleTimeout));
+        }
+    }
+}
@@ -6,19 +6,30 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
+//  Cached in the second-level cache by id (see application.conf). Updates only write the changed columns, so the
+//  entity-level updates in NoteRepository can't overwrite a concurrent change to another column
 @Entity
 @Table(name="notes")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Note.CACHE_REGION)
+@DynamicUpdate
 public class Note {
+    public static final String CACHE_REGION = "notes";
 
     @Id
     @GeneratedValue(strategy= GenerationType.SEQUENCE)
-    @SequenceGenerator(name = "notes_id",sequenceName = "notes_id",allocationSize = 1)
+    @SequenceGenerator(name = "notes_id",sequenceName = "notes_id",allocationSize = 50)
     @Getter
     private Long id;
 
@@ -29,9 +40,12 @@ public class Note {
 
     @Getter
     @Setter
-    @Column(length=1000)
+    @Column(columnDefinition = "text")
     private String content;
 
+    // Comma separated fingerprints of the sections flashcards were already generated for (see NoteChunker)
+    @Column(columnDefinition = "text")
+    private String generatedSections;
 
 
     @ManyToOne(fetch=FetchType.LAZY)
@@ -60,6 +74,17 @@ public class Note {
     }
 
 
+    public Set<String> getGeneratedSections() {
+        if (generatedSections == null || generatedSections.isEmpty()) {
+            return Set.of();
+        }
+        return new LinkedHashSet<>(Arrays.asList(generatedSections.split(",")));
+    }
+
+    public void setGeneratedSections(Collection<String> sections) {
+        this.generatedSections = String.join(",", sections);
+    }
+
     @Override
     public String toString() {
         return "Note{" +
@@ -0,0 +1,8 @@
+package com.locus.projectlocusprototype.Note;
+
+//  Published by NoteService after a note's content was updated
+public record NoteContentChangedEvent(
+        Long noteId,
+        Long userId
+) {
+}
@@ -6,8 +6,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/notes")
 public class NoteController {
@@ -24,10 +22,17 @@ public class NoteController {
         return noteService.getNote(noteId,authentication);
     }
 
-    //  GET for all notes for a user
+    //  GET for a user's notes, newest first, one page at a time
+    //  pass the previous page's nextCursor as cursor to continue; summary=true omits the content
     @GetMapping("/usernotes")
-    public List<NoteResponse> userNotes(Authentication authentication){
-        return noteService.getAllNotesForUser(authentication);
+    public NotePageResponse<?> userNotes(@RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer limit,
+                                         @RequestParam(defaultValue = "false") boolean summary,
+                                         Authentication authentication){
+        if (summary) {
+            return noteService.getNoteSummariesForUser(cursor, limit, authentication);
+        }
+        return noteService.getNotesForUser(cursor, limit, authentication);
     }
 
     //  POST endpoint to create a note
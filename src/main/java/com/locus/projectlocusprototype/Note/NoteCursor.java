@@ -0,0 +1,35 @@
+package com.locus.projectlocusprototype.Note;
+
+import com.locus.projectlocusprototype.Exceptions.InvalidNoteRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+
+//  Position in the (created DESC, id DESC) ordering of a user's notes.
+//  Encoded as an opaque URL-safe string so clients just echo it back.
+public record NoteCursor(Timestamp created, Long id) {
+
+    public static NoteCursor of(Timestamp created, Long id) {
+        return new NoteCursor(created, id);
+    }
+
+    public String encode() {
+        String raw = created.toInstant().toString() + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static NoteCursor decode(String cursor) throws InvalidNoteRequestException {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new NoteCursor(
+                    Timestamp.from(Instant.parse(raw.substring(0, separator))),
+                    Long.parseLong(raw.substring(separator + 1))
+            );
+        } catch (RuntimeException e) {
+            throw new InvalidNoteRequestException("ERROR: Invalid cursor " + cursor);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.locus.projectlocusprototype.Note;
+
+import java.util.List;
+
+//  One page of a keyset-paginated list, nextCursor is null on the last page
+public record NotePageResponse<T>(
+        List<T> items,
+        String nextCursor
+) {
+}
@@ -1,22 +1,86 @@
 package com.locus.projectlocusprototype.Note;
 
-import com.locus.projectlocusprototype.Auth.User;
 import jakarta.validation.constraints.NotBlank;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface NoteRepository extends JpaRepository<Note,Long> {
 
-    @Query("SELECT n FROM Note n WHERE n.id = ?1")
-    Optional<Note> findNoteById(Long noteId);
+    //  OWNER-SCOPED LOOKUPS (a miss means "not found OR not yours")
 
-    List<Note> getNotesByUser(User user);
+    //  Loads by id so repeated lookups are served by the second-level cache, the owner's id is read from the
+    //  user reference without loading the user
+    default Optional<Note> findNoteByIdAndUserId(Long noteId, Long userId) {
+        return findById(noteId).filter(note -> note.getUser().getId().equals(userId));
+    }
 
-    @Query("SELECT n FROM Note n WHERE n.user = ?1 AND  n.title = ?2")
-    Optional<Note> findExistingNoteForUserWithTitle(User user, @NotBlank String title);
+    //  Existence only, so nothing (in particular not the note's content) is loaded; answered from the primary key
+    @Query("SELECT COUNT(n) > 0 FROM Note n WHERE n.id = ?1 AND n.user.id = ?2")
+    boolean existsNoteByIdAndUserId(Long noteId, Long userId);
+
+    //  KEYSET PAGINATION over (created DESC, id DESC), the "After" variants continue from a cursor
+
+    @Query("SELECT new com.locus.projectlocusprototype.Note.NoteResponse(n.id, n.title, n.content, u.username, n.created) " +
+            "FROM Note n JOIN n.user u WHERE u.id = ?1 ORDER BY n.created DESC, n.id DESC")
+    List<NoteResponse> findNotePageByUserId(Long userId, Pageable pageable);
+
+    @Query("SELECT new com.locus.projectlocusprototype.Note.NoteResponse(n.id, n.title, n.content, u.username, n.created) " +
+            "FROM Note n JOIN n.user u WHERE u.id = ?1 AND (n.created < ?2 OR (n.created = ?2 AND n.id < ?3)) " +
+            "ORDER BY n.created DESC, n.id DESC")
+    List<NoteResponse> findNotePageByUserIdAfter(Long userId, Timestamp created, Long noteId, Pageable pageable);
+
+    @Query("SELECT new com.locus.projectlocusprototype.Note.NoteSummaryResponse(n.id, n.title, n.created, " +
+            "(SELECT COUNT(f) FROM Flashcard f WHERE f.note = n)) " +
+            "FROM Note n WHERE n.user.id = ?1 ORDER BY n.created DESC, n.id DESC")
+    List<NoteSummaryResponse> findNoteSummaryPageByUserId(Long userId, Pageable pageable);
+
+    @Query("SELECT new com.locus.projectlocusprototype.Note.NoteSummaryResponse(n.id, n.title, n.created, " +
+            "(SELECT COUNT(f) FROM Flashcard f WHERE f.note = n)) " +
+            "FROM Note n WHERE n.user.id = ?1 AND (n.created < ?2 OR (n.created = ?2 AND n.id < ?3)) " +
+            "ORDER BY n.created DESC, n.id DESC")
+    List<NoteSummaryResponse> findNoteSummaryPageByUserIdAfter(Long userId, Timestamp created, Long noteId, Pageable pageable);
+
+    @Query("SELECT n FROM Note n WHERE n.user.id = ?1 AND  n.title = ?2")
+    Optional<Note> findExistingNoteForUserWithTitle(Long userId, @NotBlank String title);
+
+    //  Changes go through the entity instead of bulk UPDATE/DELETE statements: Hibernate has to evict the whole
+    //  notes cache region for a bulk statement, through the entity only this note's entry is replaced or evicted
+
+    //  Null title/content leaves the column unchanged, returns the number of notes updated (0 or 1)
+    @Transactional
+    default int updateNoteByIdAndUserId(Long noteId, Long userId, String title, String content) {
+        Optional<Note> note = findNoteByIdAndUserId(noteId, userId);
+        note.ifPresent(n -> {
+            if (title != null) {
+                n.setTitle(title);
+            }
+            if (content != null) {
+                n.setContent(content);
+            }
+        });
+        return note.isPresent() ? 1 : 0;
+    }
+
+    @Transactional
+    default void updateGeneratedSections(Long noteId, Collection<String> sections) {
+        findById(noteId).ifPresent(note -> note.setGeneratedSections(sections));
+    }
+
+    //  The note's flashcards must be deleted first (the cascade then finds none to delete), returns the number of
+    //  notes deleted (0 or 1)
+    @Transactional
+    default int deleteNoteByIdAndUserId(Long noteId, Long userId) {
+        Optional<Note> note = findNoteByIdAndUserId(noteId, userId);
+        note.ifPresent(this::delete);
+        return note.isPresent() ? 1 : 0;
+    }
 }
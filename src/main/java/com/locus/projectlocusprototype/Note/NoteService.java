@@ -2,32 +2,56 @@ package com.locus.projectlocusprototype.Note;
 
 import com.locus.projectlocusprototype.Exceptions.InvalidNoteRequestException;
 import com.locus.projectlocusprototype.Exceptions.ResourceNotFoundException;
-import com.locus.projectlocusprototype.Auth.User;
 import com.locus.projectlocusprototype.Auth.AuthService;
+import com.locus.projectlocusprototype.Auth.UserPrincipal;
+import com.locus.projectlocusprototype.Flashcard.DeckStatsService;
+import com.locus.projectlocusprototype.Flashcard.FlashcardRepository;
+import com.locus.projectlocusprototype.Flashcard.FlashcardSimilarityIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.function.Function;
 
 @Service
 public class NoteService {
     private final NoteRepository noteRepository;
+    private final FlashcardRepository flashcardRepository;
+    private final FlashcardSimilarityIndex similarityIndex;
+    private final DeckStatsService deckStatsService;
     private final AuthService authService;
-
-    public NoteService(NoteRepository noteRepository, AuthService authService) {
+    private final ApplicationEventPublisher eventPublisher;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public NoteService(NoteRepository noteRepository, FlashcardRepository flashcardRepository, FlashcardSimilarityIndex similarityIndex, DeckStatsService deckStatsService, AuthService authService,
+                       ApplicationEventPublisher eventPublisher,
+                       @Value("${locus.notes.default-page-size:50}") int defaultPageSize,
+                       @Value("${locus.notes.max-page-size:200}") int maxPageSize) {
         this.noteRepository = noteRepository;
+        this.flashcardRepository = flashcardRepository;
+        this.similarityIndex = similarityIndex;
+        this.deckStatsService = deckStatsService;
         this.authService = authService;
+        this.eventPublisher = eventPublisher;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     //  PRIVATE METHODS
 
-    private NoteResponse noteToResponse(Note note){
+    //  The author is always the requesting user, so their name comes from the principal instead of note.getUser()
+    private NoteResponse noteToResponse(Note note, String authorName){
         return new NoteResponse(
                 note.getId(),
                 note.getTitle(),
                 note.getContent(),
-                note.getUser().getUsername(),
+                authorName,
                 note.getCreated()
         );
     }
@@ -42,96 +66,128 @@ public class NoteService {
         }
     }
 
+    private static String blankToNull(String value) {
+        return (value == null || value.isBlank()) ? null : value;
+    }
+
 
 
     //  PUBLIC METHODS
 
     // Retrieves a single note by ID for a given user (through Authentication object)
     public NoteResponse getNote(Long noteId, Authentication authentication) {
-        //  Get the note (if it exists)
-        Note note = noteRepository.findNoteById(noteId).orElseThrow(
+        UserPrincipal principal = authService.getPrincipalFromAuthenticationObject(authentication);
+
+        //  Get the note, the query only matches notes owned by this user
+        //  (this also obscures the existence of notes owned by other users)
+        Note note = noteRepository.findNoteByIdAndUserId(noteId, principal.getId()).orElseThrow(
                 ()-> new ResourceNotFoundException("Note with ID " + noteId + " does not exist")
         );
-
-        //  Make sure the note actually exists
-        Object details = authentication.getPrincipal();
-        if (details instanceof UserDetails){
-            if (!((UserDetails) details).getUsername().equals(note.getUser().getUsername())){
-                //  Obscure the existence of the note from unauthenticated requests
-                throw new ResourceNotFoundException("Note with ID " + noteId + " does not exist");
-            }
-        }
-        return noteToResponse(note);
+        return noteToResponse(note, principal.getUsername());
     }
 
     // Creates a single note for a given user (through Authentication object)
     public NoteResponse createNote(NoteRequest request, Authentication authentication){
         validateNoteRequest(request);
-        User user = authService.getUserFromAuthenticationObject(authentication);
+        UserPrincipal principal = authService.getPrincipalFromAuthenticationObject(authentication);
 
         //  Check if the user already has a note with the title and raise an InvalidNoteRequestException if so
-        if (noteRepository.findExistingNoteForUserWithTitle(user, request.title()).isPresent()) {
+        if (noteRepository.findExistingNoteForUserWithTitle(principal.getId(), request.title()).isPresent()) {
             throw new InvalidNoteRequestException("ERROR: Note with title " + request.title() + " already exists for this user");
         }
 
         //  Now we know the user exists, is authenticated, and they don't have an existing note with this title
         //  -> Create the note
-        Note note = new Note(request.title(),request.content(),user);
+        Note note = new Note(request.title(),request.content(),authService.getUserReference(principal.getId()));
         noteRepository.save(note);
-        return noteToResponse(note);
+        return noteToResponse(note, principal.getUsername());
     }
 
     // UPDATES a single note for a given user (through Authentication object)
     public NoteResponse updateNote(Long noteId, NoteRequest request, Authentication authentication) {
+        UserPrincipal principal = authService.getPrincipalFromAuthenticationObject(authentication);
 
-        //  Get the user
-        User user =  authService.getUserFromAuthenticationObject(authentication);
-        Note note =  noteRepository.getReferenceById(noteId);
-
-        //  Check if this user owns this note:
-        if (!note.getUser().equals(user)) {
+        //  Load the note and apply the changes to it (written on commit), 0 means the note doesn't exist or isn't owned by this user
+        int updated = noteRepository.updateNoteByIdAndUserId(
+                noteId, principal.getId(), blankToNull(request.title()), blankToNull(request.content()));
+        if (updated == 0) {
             //  Obfuscate note existence from user that doesn't own the note
             throw new ResourceNotFoundException("Note with ID " + noteId + " does not exist");
         }
-
-        //  Now we know the user owns the note, so apply and save the changes then return the response
-        if ((request.content() != null) && (!request.content().isBlank())){
-            note.setContent(request.content());
-
-        }
-        if ((request.title() != null) &&( !request.title().isBlank())){
-            note.setTitle(request.title());
-
+        //  Lets the AI package regenerate the flashcards of changed sections
+        if (blankToNull(request.content()) != null) {
+            eventPublisher.publishEvent(new NoteContentChangedEvent(noteId, principal.getId()));
         }
-        noteRepository.save(note);
-        return noteToResponse(note);
-
 
+        Note note = noteRepository.findNoteByIdAndUserId(noteId, principal.getId()).orElseThrow(
+                ()-> new ResourceNotFoundException("Note with ID " + noteId + " does not exist")
+        );
+        return noteToResponse(note, principal.getUsername());
     }
 
     //  Delete a specific note for a user by Authentication object
+    @Transactional
     public void deleteNote(Long noteId,Authentication authentication) {
-        //  Get the user for this request
-        User user = authService.getUserFromAuthenticationObject(authentication);
+        UserPrincipal principal = authService.getPrincipalFromAuthenticationObject(authentication);
 
-        //  Get this note (throw an exception if it doesn't exist)
-        Note note = noteRepository.findNoteById(noteId).orElseThrow(
-                ()->new ResourceNotFoundException("ERROR: Note with id" + noteId + " does not exist"));
-
-        //  Check if this user owns this note
-        if (note.getUser()!= user){
+        //  Bulk deletes don't cascade, so remove the note's flashcards first, then the note itself
+        flashcardRepository.deleteFlashcardsByNoteIdAndUserId(noteId, principal.getId());
+        if (noteRepository.deleteNoteByIdAndUserId(noteId, principal.getId()) == 0){
             //Obfuscate note existence
             throw new ResourceNotFoundException("ERROR: Note with id" + noteId + " does not exist");
         }
+        similarityIndex.removeNote(noteId);
+        deckStatsService.noteRemoved(noteId);
+    }
 
-        //Now we know the note exists and the user owns it, so we can delete it
-        noteRepository.delete(note);
+    //  Get one page of a user's notes (newest first) by Authentication object
+    //  cursor is the nextCursor of the previous page (null for the first page)
+    public NotePageResponse<NoteResponse> getNotesForUser(String cursor, Integer limit, Authentication authentication) {
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        int pageSize = pageSize(limit);
+        //  Fetch one extra row to know whether there is a next page
+        Pageable pageable = PageRequest.ofSize(pageSize + 1);
+        List<NoteResponse> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = noteRepository.findNotePageByUserId(userId, pageable);
+        } else {
+            NoteCursor after = NoteCursor.decode(cursor);
+            rows = noteRepository.findNotePageByUserIdAfter(userId, after.created(), after.id(), pageable);
+        }
+        return toPage(rows, pageSize, last -> NoteCursor.of(last.createdAt(), last.id()));
     }
 
-    //  Get all the notes for a user by Authentication object
-    public List<NoteResponse> getAllNotesForUser(Authentication authentication) {
-        User user = authService.getUserFromAuthenticationObject(authentication);
-        return noteRepository.getNotesByUser(user).stream().map(this::noteToResponse).toList();
+    //  Same as getNotesForUser but only title, id, creation date and card count, without loading content
+    public NotePageResponse<NoteSummaryResponse> getNoteSummariesForUser(String cursor, Integer limit, Authentication authentication) {
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        int pageSize = pageSize(limit);
+        Pageable pageable = PageRequest.ofSize(pageSize + 1);
+        List<NoteSummaryResponse> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = noteRepository.findNoteSummaryPageByUserId(userId, pageable);
+        } else {
+            NoteCursor after = NoteCursor.decode(cursor);
+            rows = noteRepository.findNoteSummaryPageByUserIdAfter(userId, after.created(), after.id(), pageable);
+        }
+        return toPage(rows, pageSize, last -> NoteCursor.of(last.createdAt(), last.id()));
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1) {
+            throw new InvalidNoteRequestException("ERROR: limit must be at least 1");
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    private static <T> NotePageResponse<T> toPage(List<T> rows, int pageSize, Function<T, NoteCursor> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new NotePageResponse<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new NotePageResponse<>(List.copyOf(items), cursorOf.apply(items.getLast()).encode());
     }
 
 }
@@ -0,0 +1,12 @@
+package com.locus.projectlocusprototype.Note;
+
+import java.sql.Timestamp;
+
+//  Lightweight list item: no content and no author, built directly by a JPQL constructor projection
+public record NoteSummaryResponse(
+        Long id,
+        String title,
+        Timestamp createdAt,
+        Long cardCount
+) {
+}
@@ -0,0 +1,278 @@
+package com.locus.projectlocusprototype.Scheduling;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Fits a user's FSRS weights to their review history (review_events) in the background.
+// The history is replayed card by card with candidate weights; every review after a card's first one is scored
+// by the log loss of the predicted recall probability against whether it was actually recalled (quality >= 3).
+// The weights are improved by coordinate search (one weight at a time, shrinking steps, within the model's
+// bounds). Each loss evaluation is split over the cards on a fork-join pool, so a fit uses every core.
+// Fitted weights are only stored when they predict the history better than the defaults.
+@Component
+public class FsrsOptimizer {
+    private static final Logger log = LoggerFactory.getLogger(FsrsOptimizer.class);
+    private static final int CARDS_PER_TASK = 256;
+    private static final double INITIAL_STEP = 0.05;  // of each weight's range
+    private static final double MIN_STEP = 0.001;
+    private static final double MIN_RECALL_PROBABILITY = 1e-6;
+
+    //  A user's review history as flat primitive arrays, grouped by card in review order: the reviews of card c
+    //  are cardStart[c] until cardStart[c + 1]. elapsedDays is the time since the card's previous review.
+    record ReviewHistory(int[] cardStart, byte[] grades, float[] elapsedDays) {
+        int cards() {
+            return cardStart.length - 1;
+        }
+
+        int scoredReviews() {
+            return grades.length - cards();
+        }
+    }
+
+    record Fit(double[] weights, double loss, double defaultLoss) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SchedulerSettingsRepository settingsRepository;
+    private final ForkJoinPool pool;
+    private final int minReviews;
+    private final int maxPasses;
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+    private final Timer timer;
+
+    public FsrsOptimizer(JdbcTemplate jdbcTemplate, SchedulerSettingsRepository settingsRepository,
+                         @Value("${locus.scheduling.optimizer.parallelism:0}") int parallelism,
+                         @Value("${locus.scheduling.optimizer.min-reviews:400}") int minReviews,
+                         @Value("${locus.scheduling.optimizer.max-passes:40}") int maxPasses,
+                         MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.settingsRepository = settingsRepository;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.minReviews = minReviews;
+        this.maxPasses = maxPasses;
+        this.timer = Timer.builder("locus.scheduling.optimizer").register(meterRegistry);
+    }
+
+    //  PUBLIC METHODS
+
+    public int getMinReviews() {
+        return minReviews;
+    }
+
+    //  Reviews that can be scored (all but the first review of every card)
+    public long countScoredReviews(Long userId) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) - COUNT(DISTINCT flashcard_id) FROM review_events WHERE user_id = ?", Long.class, userId);
+        return count == null ? 0 : count;
+    }
+
+    //  Starts a fit for the user unless one is already running, returns whether it started
+    public boolean submit(Long userId) {
+        if (!running.add(userId)) {
+            return false;
+        }
+        Thread.ofVirtual().name("fsrs-optimizer-" + userId).start(() -> {
+            try {
+                timer.record(() -> run(userId));
+            } catch (RuntimeException e) {
+                log.warn("Optimizing the FSRS weights of user {} failed", userId, e);
+            } finally {
+                running.remove(userId);
+            }
+        });
+        return true;
+    }
+
+    public boolean isRunning(Long userId) {
+        return running.contains(userId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    //  PRIVATE METHODS
+
+    private void run(Long userId) {
+        ReviewHistory history = loadHistory(userId);
+        if (history.scoredReviews() < minReviews) {
+            log.info("Not optimizing FSRS weights of user {}: {} reviews to fit, {} needed", userId, history.scoredReviews(), minReviews);
+            return;
+        }
+        Fit fit = fit(history);
+        if (fit.loss() >= fit.defaultLoss()) {
+            log.info("FSRS weights of user {} not improved over the defaults (log loss {})", userId, fit.defaultLoss());
+            return;
+        }
+        // re-read right before saving, the algorithm may have been changed while fitting
+        SchedulerSettings settings = settingsRepository.findById(userId).orElseGet(() -> new SchedulerSettings(userId));
+        settings.setFsrsWeights(fit.weights());
+        settings.setOptimizedReviewCount(history.scoredReviews());
+        settings.setOptimizedAt(new Timestamp(System.currentTimeMillis()));
+        settingsRepository.save(settings);
+        log.info("Fitted FSRS weights of user {} to {} reviews, log loss {} -> {}",
+                userId, history.scoredReviews(), fit.defaultLoss(), fit.loss());
+    }
+
+    private ReviewHistory loadHistory(Long userId) {
+        HistoryBuilder builder = new HistoryBuilder();
+        jdbcTemplate.query("SELECT flashcard_id, quality, reviewed_at FROM review_events WHERE user_id = ? " +
+                "ORDER BY flashcard_id, reviewed_at",
+                (RowCallbackHandler) rs -> builder.add(rs.getLong(1), rs.getInt(2), rs.getTimestamp(3).getTime()), userId);
+        return builder.build();
+    }
+
+    Fit fit(ReviewHistory history) {
+        double[] w = FsrsScheduler.defaultWeights();
+        double defaultLoss = loss(history, w);
+        double best = defaultLoss;
+        double[] step = new double[w.length];
+        for (int i = 0; i < w.length; i++) {
+            step[i] = (FsrsScheduler.MAX_WEIGHTS[i] - FsrsScheduler.MIN_WEIGHTS[i]) * INITIAL_STEP;
+        }
+
+        for (int pass = 0; pass < maxPasses; pass++) {
+            boolean improved = false;
+            for (int i = 0; i < w.length; i++) {
+                double original = w[i];
+                for (int direction = -1; direction <= 1; direction += 2) {
+                    double candidate = Math.max(FsrsScheduler.MIN_WEIGHTS[i],
+                            Math.min(FsrsScheduler.MAX_WEIGHTS[i], original + direction * step[i]));
+                    if (candidate == original) {
+                        continue;
+                    }
+                    w[i] = candidate;
+                    double loss = loss(history, w);
+                    if (loss < best) {
+                        best = loss;
+                        improved = true;
+                        break;
+                    }
+                    w[i] = original;
+                }
+            }
+            if (!improved) {
+                boolean converged = true;
+                for (int i = 0; i < w.length; i++) {
+                    step[i] /= 2;
+                    double range = FsrsScheduler.MAX_WEIGHTS[i] - FsrsScheduler.MIN_WEIGHTS[i];
+                    converged &= step[i] < range * MIN_STEP;
+                }
+                if (converged) {
+                    break;
+                }
+            }
+        }
+        return new Fit(w, best, defaultLoss);
+    }
+
+    //  Mean log loss of the predicted recall probabilities
+    double loss(ReviewHistory history, double[] w) {
+        double[] total = pool.invoke(new LossTask(history, w, 0, history.cards()));
+        return total[1] == 0 ? 0 : total[0] / total[1];
+    }
+
+    //  {loss sum, scored reviews} of the cards from fromCard until toCard
+    static double[] replay(ReviewHistory history, double[] w, int fromCard, int toCard) {
+        double loss = 0;
+        long scored = 0;
+        for (int card = fromCard; card < toCard; card++) {
+            int first = history.cardStart()[card];
+            int end = history.cardStart()[card + 1];
+            int grade = history.grades()[first];
+            double s = FsrsScheduler.initialStability(w, grade);
+            double d = FsrsScheduler.initialDifficulty(w, grade);
+            for (int i = first + 1; i < end; i++) {
+                grade = history.grades()[i];
+                double r = FsrsScheduler.retrievability(history.elapsedDays()[i], s);
+                r = Math.max(MIN_RECALL_PROBABILITY, Math.min(1 - MIN_RECALL_PROBABILITY, r));
+                loss -= grade == FsrsScheduler.AGAIN ? Math.log(1 - r) : Math.log(r);
+                scored++;
+                s = grade == FsrsScheduler.AGAIN
+                        ? FsrsScheduler.forgetStability(w, d, s, r)
+                        : FsrsScheduler.recallStability(w, d, s, r, grade);
+                d = FsrsScheduler.nextDifficulty(w, d, grade);
+            }
+        }
+        return new double[]{loss, scored};
+    }
+
+    //  Collects rows ordered by card and review time into a ReviewHistory
+    private static final class HistoryBuilder {
+        private int[] cardStart = new int[64];
+        private byte[] grades = new byte[1024];
+        private float[] elapsedDays = new float[1024];
+        private int reviews;
+        private int cards;
+        private long previousCard = Long.MIN_VALUE;
+        private long previousReviewMillis;
+
+        void add(long flashcardId, int quality, long reviewedAtMillis) {
+            if (reviews == grades.length) {
+                grades = Arrays.copyOf(grades, reviews * 2);
+                elapsedDays = Arrays.copyOf(elapsedDays, reviews * 2);
+            }
+            if (flashcardId != previousCard) {
+                // one slot more than the cards for the end of the last one
+                if (cards + 1 == cardStart.length) {
+                    cardStart = Arrays.copyOf(cardStart, cardStart.length * 2);
+                }
+                cardStart[cards++] = reviews;
+                elapsedDays[reviews] = 0;
+            } else {
+                elapsedDays[reviews] = (reviewedAtMillis - previousReviewMillis) / (ReviewScheduler.SECONDS_PER_DAY * 1000f);
+            }
+            grades[reviews++] = (byte) FsrsScheduler.grade(quality);
+            previousCard = flashcardId;
+            previousReviewMillis = reviewedAtMillis;
+        }
+
+        ReviewHistory build() {
+            cardStart[cards] = reviews;
+            return new ReviewHistory(Arrays.copyOf(cardStart, cards + 1),
+                    Arrays.copyOf(grades, reviews), Arrays.copyOf(elapsedDays, reviews));
+        }
+    }
+
+    private static final class LossTask extends RecursiveTask<double[]> {
+        private final ReviewHistory history;
+        private final double[] w;
+        private final int fromCard;
+        private final int toCard;
+
+        LossTask(ReviewHistory history, double[] w, int fromCard, int toCard) {
+            this.history = history;
+            this.w = w;
+            this.fromCard = fromCard;
+            this.toCard = toCard;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (toCard - fromCard <= CARDS_PER_TASK) {
+                return replay(history, w, fromCard, toCard);
+            }
+            int middle = (fromCard + toCard) >>> 1;
+            LossTask left = new LossTask(history, w, fromCard, middle);
+            left.fork();
+            double[] right = new LossTask(history, w, middle, toCard).compute();
+            double[] leftTotal = left.join();
+            return new double[]{leftTotal[0] + right[0], leftTotal[1] + right[1]};
+        }
+    }
+}
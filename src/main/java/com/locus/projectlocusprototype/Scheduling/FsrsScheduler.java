@@ -0,0 +1,128 @@
+package com.locus.projectlocusprototype.Scheduling;
+
+// FSRS (Free Spaced Repetition Scheduler, version 4.5 formulas): every card has a memory stability S (days until
+// recall probability drops to 90%) and a difficulty D (1-10). A review updates both from the rating and from the
+// recall probability R at the time of the review, and the next interval is the time until R falls to the desired
+// retention. The 17 weights come from FsrsOptimizer (fitted to the user's review history) or DEFAULT_WEIGHTS.
+// Ratings are SM-2 qualities mapped to FSRS grades: 0-2 Again, 3 Hard, 4 Good, 5 Easy.
+// The static methods are the model itself, FsrsOptimizer replays review history with them.
+public final class FsrsScheduler implements ReviewScheduler {
+    public static final int WEIGHT_COUNT = 17;
+    static final double[] DEFAULT_WEIGHTS = {
+            0.4872, 1.4003, 3.7145, 13.8206, 5.1618, 1.2298, 0.8975, 0.031, 1.6474,
+            0.1367, 1.0461, 2.1072, 0.0793, 0.3246, 1.587, 0.2272, 2.8755
+    };
+    //  Bounds every weight stays within while optimizing
+    static final double[] MIN_WEIGHTS = {
+            0.1, 0.1, 0.1, 0.1, 1, 0.1, 0.1, 0, 0, 0, 0.01, 0.1, 0.01, 0.01, 0.01, 0, 1
+    };
+    static final double[] MAX_WEIGHTS = {
+            100, 100, 100, 100, 10, 5, 5, 0.75, 4.5, 0.8, 3.5, 5, 0.25, 0.9, 4, 1, 6
+    };
+    static final int AGAIN = 1;
+    static final int HARD = 2;
+    static final int GOOD = 3;
+    static final int EASY = 4;
+    private static final double DECAY = -0.5;
+    private static final double FACTOR = 19.0 / 81.0; // R(S) = 0.9 with this DECAY
+
+    private final double[] w;
+    private final double intervalFactor;
+    private final int maxIntervalDays;
+
+    public FsrsScheduler(double[] weights, double desiredRetention, int maxIntervalDays) {
+        if (weights.length != WEIGHT_COUNT) {
+            throw new IllegalArgumentException("FSRS needs " + WEIGHT_COUNT + " weights, got " + weights.length);
+        }
+        this.w = weights.clone();
+        this.intervalFactor = (Math.pow(desiredRetention, 1 / DECAY) - 1) / FACTOR;
+        this.maxIntervalDays = maxIntervalDays;
+    }
+
+    public static double[] defaultWeights() {
+        return DEFAULT_WEIGHTS.clone();
+    }
+
+    @Override
+    public SchedulingAlgorithm algorithm() {
+        return SchedulingAlgorithm.FSRS;
+    }
+
+    @Override
+    public void review(SchedulingState state, int quality, long reviewedAtSecond) {
+        int grade = grade(quality);
+        if (state.getStability() <= 0 && state.getRepetitions() > 0 && state.getIntervalDays() > 0) {
+            // reviewed under SM-2 before: start from what SM-2 learned about the card
+            state.setStability(state.getIntervalDays());
+            state.setDifficulty(clampDifficulty(5 + (2.5 - state.getEaseFactor()) * 5));
+            if (state.getLastReviewSecond() == SchedulingState.NEVER) {
+                state.setLastReviewSecond(state.getDueSecond() - state.getIntervalDays() * SECONDS_PER_DAY);
+            }
+        }
+
+        if (state.getStability() <= 0) {
+            state.setStability(initialStability(w, grade));
+            state.setDifficulty(initialDifficulty(w, grade));
+        } else {
+            double elapsedDays = Math.max(0, (reviewedAtSecond - state.getLastReviewSecond()) / (double) SECONDS_PER_DAY);
+            double s = state.getStability();
+            double d = state.getDifficulty();
+            double r = retrievability(elapsedDays, s);
+            state.setStability(grade == AGAIN ? forgetStability(w, d, s, r) : recallStability(w, d, s, r, grade));
+            state.setDifficulty(nextDifficulty(w, d, grade));
+        }
+
+        int interval = (int) Math.round(state.getStability() * intervalFactor);
+        interval = Math.max(1, Math.min(maxIntervalDays, interval));
+        state.setIntervalDays(interval);
+        state.setRepetitions(grade == AGAIN ? 0 : state.getRepetitions() + 1);
+        state.setLastReviewSecond(reviewedAtSecond);
+        state.setDueSecond(reviewedAtSecond + interval * SECONDS_PER_DAY);
+    }
+
+    //  THE MODEL
+
+    static int grade(int quality) {
+        if (quality < 3) {
+            return AGAIN;
+        }
+        return quality == 3 ? HARD : quality == 4 ? GOOD : EASY;
+    }
+
+    //  Probability of recall after elapsedDays for a memory of stability s (the power DECAY = -0.5 as a square root,
+    //  this runs for every replayed review while optimizing and simulating)
+    public static double retrievability(double elapsedDays, double s) {
+        return 1 / Math.sqrt(1 + FACTOR * elapsedDays / s);
+    }
+
+    static double initialStability(double[] w, int grade) {
+        return Math.max(0.1, w[grade - 1]);
+    }
+
+    static double initialDifficulty(double[] w, int grade) {
+        return clampDifficulty(w[4] - (grade - 3) * w[5]);
+    }
+
+    //  Difficulty moves with the grade and reverts a little towards the initial difficulty of a Good
+    static double nextDifficulty(double[] w, double d, int grade) {
+        double next = d - w[6] * (grade - 3);
+        return clampDifficulty(w[7] * initialDifficulty(w, GOOD) + (1 - w[7]) * next);
+    }
+
+    static double recallStability(double[] w, double d, double s, double r, int grade) {
+        double hardPenalty = grade == HARD ? w[15] : 1;
+        double easyBonus = grade == EASY ? w[16] : 1;
+        return s * (1 + Math.exp(w[8]) * (11 - d) * Math.pow(s, -w[9]) * (Math.exp((1 - r) * w[10]) - 1)
+                * hardPenalty * easyBonus);
+    }
+
+    //  Stability after a lapse, never more than before it
+    static double forgetStability(double[] w, double d, double s, double r) {
+        double next = w[11] * Math.pow(d, -w[12]) * (Math.pow(s + 1, w[13]) - 1) * Math.exp((1 - r) * w[14]);
+        return Math.max(0.1, Math.min(s, next));
+    }
+
+    private static double clampDifficulty(double d) {
+        return Math.max(1, Math.min(10, d));
+    }
+}
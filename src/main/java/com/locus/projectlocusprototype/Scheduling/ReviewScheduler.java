@@ -0,0 +1,12 @@
+package com.locus.projectlocusprototype.Scheduling;
+
+// Decides when a card is due next after a review. Implementations only touch the primitive SchedulingState,
+// converting from and to the Flashcard entity is done once per review by SpacedRepetitionService.
+public interface ReviewScheduler {
+    long SECONDS_PER_DAY = 86_400;
+
+    SchedulingAlgorithm algorithm();
+
+    //  Applies a review with quality 0-5 (below 3 is a failure) that happened at reviewedAtSecond
+    void review(SchedulingState state, int quality, long reviewedAtSecond);
+}
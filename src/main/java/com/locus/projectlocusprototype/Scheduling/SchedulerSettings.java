@@ -0,0 +1,58 @@
+package com.locus.projectlocusprototype.Scheduling;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+// A user's choice of scheduling algorithm and their personal FSRS weights. Users without a row use SM-2.
+@Entity
+@Table(name = "scheduler_settings")
+public class SchedulerSettings {
+    @Id
+    @Getter
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    @Getter
+    @Setter
+    private SchedulingAlgorithm algorithm = SchedulingAlgorithm.SM2;
+
+    // Comma separated FSRS weights fitted by FsrsOptimizer, null means the default weights
+    @Column(columnDefinition = "text")
+    private String fsrsWeights;
+
+    // Reviews the weights were fitted to, and when
+    @Getter
+    @Setter
+    private Integer optimizedReviewCount;
+
+    @Getter
+    @Setter
+    private Timestamp optimizedAt;
+
+    public SchedulerSettings(Long userId) {
+        this.userId = userId;
+    }
+
+    public SchedulerSettings() {
+
+    }
+
+    //  null when the user has no fitted weights
+    public double[] getFsrsWeights() {
+        if (fsrsWeights == null || fsrsWeights.isEmpty()) {
+            return null;
+        }
+        return Arrays.stream(fsrsWeights.split(",")).mapToDouble(Double::parseDouble).toArray();
+    }
+
+    public void setFsrsWeights(double[] weights) {
+        this.fsrsWeights = weights == null ? null
+                : Arrays.stream(weights).mapToObj(Double::toString).collect(Collectors.joining(","));
+    }
+}
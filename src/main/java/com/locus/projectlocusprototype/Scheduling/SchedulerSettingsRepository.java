@@ -0,0 +1,8 @@
+package com.locus.projectlocusprototype.Scheduling;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SchedulerSettingsRepository extends JpaRepository<SchedulerSettings, Long> {
+}
@@ -0,0 +1,6 @@
+package com.locus.projectlocusprototype.Scheduling;
+
+public record SchedulerSettingsRequest(
+        SchedulingAlgorithm algorithm
+) {
+}
@@ -0,0 +1,15 @@
+package com.locus.projectlocusprototype.Scheduling;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+//  personalized is false while the FSRS weights are the defaults; optimizing is true while a fit is running
+public record SchedulerSettingsResponse(
+        SchedulingAlgorithm algorithm,
+        List<Double> fsrsWeights,
+        boolean personalized,
+        Integer optimizedReviewCount,
+        Timestamp optimizedAt,
+        boolean optimizing
+) {
+}
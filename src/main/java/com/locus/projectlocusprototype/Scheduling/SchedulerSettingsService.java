@@ -0,0 +1,92 @@
+package com.locus.projectlocusprototype.Scheduling;
+
+import com.locus.projectlocusprototype.Auth.AuthService;
+import com.locus.projectlocusprototype.Exceptions.InvalidSchedulingRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+
+// Per-user choice of ReviewScheduler and the entry point for fitting a user's FSRS weights
+@Service
+public class SchedulerSettingsService {
+    private static final ReviewScheduler SM2 = new Sm2Scheduler();
+
+    private final SchedulerSettingsRepository settingsRepository;
+    private final FsrsOptimizer optimizer;
+    private final AuthService authService;
+    private final double desiredRetention;
+    private final int maxIntervalDays;
+
+    public SchedulerSettingsService(SchedulerSettingsRepository settingsRepository, FsrsOptimizer optimizer, AuthService authService,
+                                    @Value("${locus.scheduling.fsrs.desired-retention:0.9}") double desiredRetention,
+                                    @Value("${locus.scheduling.fsrs.max-interval-days:36500}") int maxIntervalDays) {
+        this.settingsRepository = settingsRepository;
+        this.optimizer = optimizer;
+        this.authService = authService;
+        this.desiredRetention = desiredRetention;
+        this.maxIntervalDays = maxIntervalDays;
+    }
+
+    //  PUBLIC METHODS
+
+    //  The scheduler reviews of this user go through
+    public ReviewScheduler schedulerFor(Long userId) {
+        SchedulerSettings settings = settingsRepository.findById(userId).orElse(null);
+        if (settings == null || settings.getAlgorithm() == SchedulingAlgorithm.SM2) {
+            return SM2;
+        }
+        return fsrsScheduler(settings.getFsrsWeights());
+    }
+
+    //  An FSRS scheduler with the given weights (the defaults when null) and the configured retention
+    public FsrsScheduler fsrsScheduler(double[] weights) {
+        return new FsrsScheduler(weights == null ? FsrsScheduler.defaultWeights() : weights, desiredRetention, maxIntervalDays);
+    }
+
+    public SchedulerSettingsResponse getSettings(Authentication authentication) {
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        return toResponse(userId, settingsRepository.findById(userId).orElseGet(() -> new SchedulerSettings(userId)));
+    }
+
+    public SchedulerSettingsResponse updateSettings(SchedulerSettingsRequest request, Authentication authentication) {
+        if (request.algorithm() == null) {
+            throw new InvalidSchedulingRequestException("ERROR: algorithm is required (one of " + Arrays.toString(SchedulingAlgorithm.values()) + ")");
+        }
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        SchedulerSettings settings = settingsRepository.findById(userId).orElseGet(() -> new SchedulerSettings(userId));
+        settings.setAlgorithm(request.algorithm());
+        return toResponse(userId, settingsRepository.save(settings));
+    }
+
+    //  Start fitting the user's FSRS weights in the background, the settings show the result once it's done
+    public SchedulerSettingsResponse optimize(Authentication authentication) {
+        Long userId = authService.getPrincipalFromAuthenticationObject(authentication).getId();
+        long reviews = optimizer.countScoredReviews(userId);
+        if (reviews < optimizer.getMinReviews()) {
+            throw new InvalidSchedulingRequestException("ERROR: At least " + optimizer.getMinReviews()
+                    + " repeated reviews are needed to fit FSRS weights, there are " + reviews);
+        }
+        optimizer.submit(userId);
+        return getSettings(authentication);
+    }
+
+    //  PRIVATE METHODS
+
+    private SchedulerSettingsResponse toResponse(Long userId, SchedulerSettings settings) {
+        double[] weights = settings.getFsrsWeights();
+        boolean personalized = weights != null;
+        if (weights == null) {
+            weights = FsrsScheduler.defaultWeights();
+        }
+        return new SchedulerSettingsResponse(
+                settings.getAlgorithm(),
+                Arrays.stream(weights).boxed().toList(),
+                personalized,
+                settings.getOptimizedReviewCount(),
+                settings.getOptimizedAt(),
+                optimizer.isRunning(userId)
+        );
+    }
+}
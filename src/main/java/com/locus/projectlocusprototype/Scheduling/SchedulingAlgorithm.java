@@ -0,0 +1,6 @@
+package com.locus.projectlocusprototype.Scheduling;
+
+public enum SchedulingAlgorithm {
+    SM2,  // SuperMemo 2: ease factor and interval multiplication (the default)
+    FSRS  // Free Spaced Repetition Scheduler: memory stability/difficulty model with per-user weights
+}
@@ -0,0 +1,38 @@
+package com.locus.projectlocusprototype.Scheduling;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/scheduling")
+public class SchedulingController {
+    private final SchedulerSettingsService settingsService;
+
+    public SchedulingController(SchedulerSettingsService settingsService) {
+        this.settingsService = settingsService;
+    }
+
+    //  GET the user's scheduling algorithm and FSRS weights
+    @GetMapping("/settings")
+    public ResponseEntity<SchedulerSettingsResponse> settings(Authentication authentication){
+        SchedulerSettingsResponse response = settingsService.getSettings(authentication);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    //  PUT to switch the scheduling algorithm (SM2 or FSRS), applies from the next review on
+    @PutMapping("/settings")
+    public ResponseEntity<SchedulerSettingsResponse> updateSettings(@RequestBody SchedulerSettingsRequest request,
+                                                                    Authentication authentication){
+        SchedulerSettingsResponse response = settingsService.updateSettings(request,authentication);
+        return ResponseEntity.status(HttpStatus.OK).body(response);
+    }
+
+    //  POST to fit the user's FSRS weights to their review history in the background
+    @PostMapping("/optimize")
+    public ResponseEntity<SchedulerSettingsResponse> optimize(Authentication authentication){
+        SchedulerSettingsResponse response = settingsService.optimize(authentication);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+}
@@ -0,0 +1,36 @@
+package com.locus.projectlocusprototype.Scheduling;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Scheduling state of one card as primitives, the unit ReviewScheduler works on.
+// Times are epoch seconds (a card's LocalDateTimes read as UTC), so scheduling is plain arithmetic.
+// Instances are mutable and meant to be reused, e.g. across the reviews of a simulation.
+@Getter
+@Setter
+public final class SchedulingState {
+    public static final long NEVER = Long.MIN_VALUE;
+
+    //  SM-2
+    private double easeFactor = 2.5;
+    private int intervalDays;
+    private int repetitions;
+
+    //  FSRS, stability 0 means the card has no memory model yet
+    private double stability;
+    private double difficulty;
+
+    private long lastReviewSecond = NEVER;
+    private long dueSecond;
+
+    public SchedulingState reset(long dueSecond) {
+        this.easeFactor = 2.5;
+        this.intervalDays = 0;
+        this.repetitions = 0;
+        this.stability = 0;
+        this.difficulty = 0;
+        this.lastReviewSecond = NEVER;
+        this.dueSecond = dueSecond;
+        return this;
+    }
+}
@@ -0,0 +1,38 @@
+package com.locus.projectlocusprototype.Scheduling;
+
+// SM-2, for a good explanation visit https://github.com/thyagoluciano/sm2
+// A passed card is scheduled from its previous due date, a failed one for a day after the review.
+public final class Sm2Scheduler implements ReviewScheduler {
+    private static final double MIN_EASE_FACTOR = 1.3;
+
+    @Override
+    public SchedulingAlgorithm algorithm() {
+        return SchedulingAlgorithm.SM2;
+    }
+
+    @Override
+    public void review(SchedulingState state, int quality, long reviewedAtSecond) {
+        if (quality < 3) {
+            // user failed, reset interval AND repetitions and review tomorrow
+            state.setRepetitions(0);
+            state.setIntervalDays(1);
+            state.setDueSecond(reviewedAtSecond + SECONDS_PER_DAY);
+        } else {
+            // first pass: 1 day, second pass: 6 days, afterwards the previous interval times the ease factor
+            int repetitions = state.getRepetitions();
+            if (repetitions == 0) {
+                state.setIntervalDays(1);
+            } else if (repetitions == 1) {
+                state.setIntervalDays(6);
+            } else {
+                state.setIntervalDays((int) Math.ceil(state.getIntervalDays() * state.getEaseFactor()));
+            }
+            state.setRepetitions(repetitions + 1);
+            state.setDueSecond(state.getDueSecond() + state.getIntervalDays() * SECONDS_PER_DAY);
+        }
+        // update ease factor (equation from SM-2 algorithm description)
+        double easeFactor = state.getEaseFactor() + (0.1 - (5 - quality) * (.08 + (5 - quality) * .02));
+        state.setEaseFactor(Math.max(MIN_EASE_FACTOR, easeFactor));
+        state.setLastReviewSecond(reviewedAtSecond);
+    }
+}
@@ -0,0 +1,89 @@
+package com.locus.projectlocusprototype.Schema;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Checks at startup that every index the hot queries rely on exists and is valid (a failed CREATE INDEX
+// CONCURRENTLY leaves an invalid one that the planner ignores). Runs once all beans are created, so after the
+// migrations and before the web server accepts requests.
+// Mode (locus.schema.index-validation): FAIL stops the startup, WARN only logs, OFF skips the check.
+@Component
+public class SchemaIndexValidator implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(SchemaIndexValidator.class);
+
+    //  Created by the migrations in db/migration
+    static final List<String> EXPECTED_INDEXES = List.of(
+            "ux_users_username",
+            "idx_notes_user_title",
+            "idx_notes_user_created",
+            "idx_flashcards_user_next_review",
+            "idx_flashcards_note_next_review",
+            "idx_review_events_user_reviewed_at",
+            "idx_review_events_user_card",
+            "idx_note_deck_stats_user",
+            "idx_note_due_counts_user_date",
+            "idx_note_due_counts_note_date",
+            "idx_ai_generation_jobs_status"
+    );
+
+    public enum Mode {
+        FAIL,
+        WARN,
+        OFF
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Mode mode;
+
+    public SchemaIndexValidator(JdbcTemplate jdbcTemplate,
+                                @Value("${locus.schema.index-validation:fail}") String mode) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mode = Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+    }
+
+    //  PUBLIC METHODS
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        List<String> problems = findProblems();
+        if (problems.isEmpty()) {
+            log.info("All {} expected indexes are present and valid", EXPECTED_INDEXES.size());
+            return;
+        }
+        String message = "Schema is missing indexes the queries depend on: " + String.join(", ", problems)
+                + ". Run the migrations (db/migration), dropping invalid indexes first.";
+        if (mode == Mode.FAIL) {
+            throw new IllegalStateException(message);
+        }
+        log.warn(message);
+    }
+
+    //  PRIVATE METHODS
+
+    private List<String> findProblems() {
+        Map<String, Boolean> valid = new HashMap<>();
+        jdbcTemplate.query("SELECT c.relname, i.indisvalid FROM pg_index i " +
+                        "JOIN pg_class c ON c.oid = i.indexrelid " +
+                        "JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                        "WHERE n.nspname = current_schema() AND c.relname::text = ANY (?)",
+                (RowCallbackHandler) rs -> valid.put(rs.getString(1), rs.getBoolean(2)),
+                (Object) EXPECTED_INDEXES.toArray(new String[0]));
+        return EXPECTED_INDEXES.stream()
+                .filter(name -> !Boolean.TRUE.equals(valid.get(name)))
+                .map(name -> valid.containsKey(name) ? name + " (invalid)" : name)
+                .toList();
+    }
+}
@@ -0,0 +1,251 @@
+package com.locus.projectlocusprototype.Simulation;
+
+import com.locus.projectlocusprototype.Scheduling.FsrsScheduler;
+import com.locus.projectlocusprototype.Scheduling.ReviewScheduler;
+import com.locus.projectlocusprototype.Scheduling.SchedulingState;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Simulates one slice of the users, day by day, with everything per card in primitive arrays.
+// Cards are kept in one linked list per due day (dayHead/nextCard), so a day only visits the cards due on it.
+// Each card has two states: what the production scheduler knows (ease, interval, repetitions, stability,
+// difficulty, due day) and the user's actual memory of it, modelled by FSRS with default weights scaled by the
+// user's ability. Whether an answer is right is drawn from the actual memory; the production scheduler only sees
+// the resulting quality, exactly as it would in FlashcardService.
+final class PartitionSimulation {
+    private static final int ONBOARDING_DAYS = 30;   // initial decks are created over the first month
+    private static final double DECK_SIZE_SPREAD = 1.0;
+    private static final int FAILED_QUALITY = 1;
+
+    private final SimulationConfig config;
+    private final ReviewScheduler scheduler;
+    private final FsrsScheduler memoryModel;
+    private final SplittableRandom random;
+    private final int users;
+    private final int days;
+
+    //  Per user
+    private final double[] activity;
+    private final double[] ability;
+    private final int[] reviewedToday;
+    private final int[] dueToday;
+
+    //  Per card, grown as cards are created
+    private int cards;
+    private int[] owner = new int[1024];
+    private int[] nextCard = new int[1024];
+    private float[] easeFactor = new float[1024];
+    private int[] intervalDays = new int[1024];
+    private int[] repetitions = new int[1024];
+    private float[] stability = new float[1024];
+    private float[] difficulty = new float[1024];
+    private int[] lastReviewDay = new int[1024];
+    private int[] dueDay = new int[1024];           // as scheduled, a card that was carried over is overdue
+    private float[] memoryStability = new float[1024];
+    private float[] memoryDifficulty = new float[1024];
+
+    private final int[] dayHead;
+    private final SchedulingState state = new SchedulingState();
+    private final SchedulingState memory = new SchedulingState();
+
+    //  Per day results
+    final long[] activeUsers;
+    final long[] reviews;
+    final long[] recalled;
+    final long[] newCards;
+    final long[] dueAtStart;
+    final long[] carriedOver;
+    final long[] duePageReads;
+    final int[] peakUserDue;
+
+    PartitionSimulation(SimulationConfig config, ReviewScheduler scheduler, int users, long seed) {
+        this.config = config;
+        this.scheduler = scheduler;
+        this.memoryModel = new FsrsScheduler(FsrsScheduler.defaultWeights(), 0.9, Integer.MAX_VALUE);
+        this.random = new SplittableRandom(seed);
+        this.users = users;
+        this.days = config.days();
+
+        this.activity = new double[users];
+        this.ability = new double[users];
+        this.reviewedToday = new int[users];
+        this.dueToday = new int[users];
+        this.dayHead = new int[days];
+        Arrays.fill(dayHead, -1);
+
+        this.activeUsers = new long[days];
+        this.reviews = new long[days];
+        this.recalled = new long[days];
+        this.newCards = new long[days];
+        this.dueAtStart = new long[days];
+        this.carriedOver = new long[days];
+        this.duePageReads = new long[days];
+        this.peakUserDue = new int[days];
+    }
+
+    //  PUBLIC METHODS
+
+    PartitionSimulation run() {
+        int[] onboardingDay = new int[users];
+        int[] initialCards = new int[users];
+        for (int user = 0; user < users; user++) {
+            // users differ in how regularly they study and in how well they remember
+            activity[user] = Math.max(0.05, Math.min(1, config.activity() + (random.nextDouble() - 0.5) * 0.4));
+            ability[user] = logNormal(1, config.abilitySpread());
+            onboardingDay[user] = random.nextInt(Math.min(ONBOARDING_DAYS, days));
+            initialCards[user] = (int) Math.round(logNormal(config.initialCardsPerUser(), DECK_SIZE_SPREAD));
+        }
+
+        for (int day = 0; day < days; day++) {
+            for (int user = 0; user < users; user++) {
+                if (onboardingDay[user] == day) {
+                    createCards(user, initialCards[user], day);
+                } else if (day > onboardingDay[user] && random.nextDouble() < config.newNoteProbability()) {
+                    createCards(user, config.cardsPerNote(), day);
+                }
+            }
+            simulateDay(day);
+        }
+        return this;
+    }
+
+    int getCards() {
+        return cards;
+    }
+
+    //  PRIVATE METHODS
+
+    private void simulateDay(int day) {
+        boolean[] active = new boolean[users];
+        for (int user = 0; user < users; user++) {
+            active[user] = random.nextDouble() < activity[user];
+            reviewedToday[user] = 0;
+            dueToday[user] = 0;
+        }
+
+        int card = dayHead[day];
+        dayHead[day] = -1;
+        while (card >= 0) {
+            int next = nextCard[card];
+            int user = owner[card];
+            dueAtStart[day]++;
+            dueToday[user]++;
+            if (!active[user] || reviewedToday[user] >= config.maxReviewsPerDay()) {
+                // still due tomorrow, like a card nobody fetched from /api/flashcards/due
+                carriedOver[day]++;
+                schedule(card, day + 1);
+            } else {
+                reviewedToday[user]++;
+                review(card, user, day);
+            }
+            card = next;
+        }
+
+        for (int user = 0; user < users; user++) {
+            if (reviewedToday[user] > 0) {
+                activeUsers[day]++;
+                // a session pages through the due cards until a page comes back short
+                duePageReads[day] += reviewedToday[user] / config.duePageSize() + 1;
+            }
+            peakUserDue[day] = Math.max(peakUserDue[day], dueToday[user]);
+        }
+    }
+
+    private void review(int card, int user, int day) {
+        long reviewedAtSecond = day * ReviewScheduler.SECONDS_PER_DAY;
+        int quality = answer(card, user, day);
+        reviews[day]++;
+        if (quality >= 3) {
+            recalled[day]++;
+        }
+
+        // the user's memory of the card
+        memory.reset(0);
+        memory.setStability(memoryStability[card]);
+        memory.setDifficulty(memoryDifficulty[card]);
+        memory.setLastReviewSecond(lastReviewDay[card] * ReviewScheduler.SECONDS_PER_DAY);
+        memoryModel.review(memory, quality, reviewedAtSecond);
+        memoryStability[card] = (float) memory.getStability();
+        memoryDifficulty[card] = (float) memory.getDifficulty();
+
+        // what the production scheduler makes of the answer
+        state.setEaseFactor(easeFactor[card]);
+        state.setIntervalDays(intervalDays[card]);
+        state.setRepetitions(repetitions[card]);
+        state.setStability(stability[card]);
+        state.setDifficulty(difficulty[card]);
+        state.setLastReviewSecond(lastReviewDay[card] < 0
+                ? SchedulingState.NEVER
+                : lastReviewDay[card] * ReviewScheduler.SECONDS_PER_DAY);
+        state.setDueSecond(dueDay[card] * ReviewScheduler.SECONDS_PER_DAY);
+        scheduler.review(state, quality, reviewedAtSecond);
+        easeFactor[card] = (float) state.getEaseFactor();
+        intervalDays[card] = state.getIntervalDays();
+        repetitions[card] = state.getRepetitions();
+        stability[card] = (float) state.getStability();
+        difficulty[card] = (float) state.getDifficulty();
+        lastReviewDay[card] = day;
+        dueDay[card] = (int) Math.min(Integer.MAX_VALUE, Math.floorDiv(state.getDueSecond(), ReviewScheduler.SECONDS_PER_DAY));
+
+        // a card that is due again right away shows up in tomorrow's session
+        schedule(card, Math.max(day + 1, dueDay[card]));
+    }
+
+    //  Quality of the user's answer, drawn from how likely they are to remember the card right now
+    private int answer(int card, int user, int day) {
+        double recall = memoryStability[card] <= 0
+                ? config.newCardRecall()
+                : FsrsScheduler.retrievability(day - lastReviewDay[card], memoryStability[card] * ability[user]);
+        if (random.nextDouble() >= recall) {
+            return FAILED_QUALITY;
+        }
+        double kind = random.nextDouble();
+        return kind < config.hardShare() ? 3 : kind < config.hardShare() + config.easyShare() ? 5 : 4;
+    }
+
+    private void createCards(int user, int count, int day) {
+        for (int i = 0; i < count; i++) {
+            if (cards == owner.length) {
+                grow();
+            }
+            int card = cards++;
+            owner[card] = user;
+            easeFactor[card] = 2.5f;
+            lastReviewDay[card] = -1;
+            dueDay[card] = day;
+            schedule(card, day);
+        }
+        newCards[day] += count;
+    }
+
+    //  Cards due after the simulated period are dropped, nothing would visit them
+    private void schedule(int card, int day) {
+        if (day >= days) {
+            return;
+        }
+        nextCard[card] = dayHead[day];
+        dayHead[day] = card;
+    }
+
+    private void grow() {
+        int capacity = owner.length * 2;
+        owner = Arrays.copyOf(owner, capacity);
+        nextCard = Arrays.copyOf(nextCard, capacity);
+        easeFactor = Arrays.copyOf(easeFactor, capacity);
+        intervalDays = Arrays.copyOf(intervalDays, capacity);
+        repetitions = Arrays.copyOf(repetitions, capacity);
+        stability = Arrays.copyOf(stability, capacity);
+        difficulty = Arrays.copyOf(difficulty, capacity);
+        lastReviewDay = Arrays.copyOf(lastReviewDay, capacity);
+        dueDay = Arrays.copyOf(dueDay, capacity);
+        memoryStability = Arrays.copyOf(memoryStability, capacity);
+        memoryDifficulty = Arrays.copyOf(memoryDifficulty, capacity);
+    }
+
+    //  Log-normal with the given mean
+    private double logNormal(double mean, double sigma) {
+        double gaussian = random.nextGaussian();
+        return mean * Math.exp(sigma * gaussian - sigma * sigma / 2);
+    }
+}
@@ -0,0 +1,79 @@
+package com.locus.projectlocusprototype.Simulation;
+
+import com.locus.projectlocusprototype.Scheduling.SchedulingAlgorithm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//  Parameters of a simulated population, every one can be set as --name=value on the command line
+public record SimulationConfig(
+        int users,
+        int days,
+        SchedulingAlgorithm algorithm,
+        double initialCardsPerUser,   // mean, log-normally distributed over users
+        double newNoteProbability,    // chance per user and day of adding a note with generated cards
+        int cardsPerNote,
+        double activity,              // mean chance per user and day of studying at all
+        int maxReviewsPerDay,         // per user, due cards beyond it are left for the next day
+        double newCardRecall,         // chance of answering a card right the first time it is seen
+        double easyShare,             // of correct answers: quality 5, quality 3 (hard) and the rest 4 (good)
+        double hardShare,
+        double abilitySpread,         // sigma of the log-normal per-user memory strength
+        int duePageSize,              // cards per GET /api/flashcards/due page
+        int partitions,
+        int threads,
+        long seed
+) {
+    public static SimulationConfig defaults() {
+        return new SimulationConfig(10_000, 365, SchedulingAlgorithm.SM2, 100, 0.03, 10, 0.7, 200, 0.7,
+                0.2, 0.15, 0.3, 20, 64, Runtime.getRuntime().availableProcessors(), 42);
+    }
+
+    public static SimulationConfig fromArgs(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        SimulationConfig d = defaults();
+        SimulationConfig config = new SimulationConfig(
+                intValue(values, "users", d.users()),
+                intValue(values, "days", d.days()),
+                algorithm(values, d.algorithm()),
+                doubleValue(values, "initial-cards-per-user", d.initialCardsPerUser()),
+                doubleValue(values, "new-note-probability", d.newNoteProbability()),
+                intValue(values, "cards-per-note", d.cardsPerNote()),
+                doubleValue(values, "activity", d.activity()),
+                intValue(values, "max-reviews-per-day", d.maxReviewsPerDay()),
+                doubleValue(values, "new-card-recall", d.newCardRecall()),
+                doubleValue(values, "easy-share", d.easyShare()),
+                doubleValue(values, "hard-share", d.hardShare()),
+                doubleValue(values, "ability-spread", d.abilitySpread()),
+                intValue(values, "due-page-size", d.duePageSize()),
+                intValue(values, "partitions", d.partitions()),
+                intValue(values, "threads", d.threads()),
+                (long) doubleValue(values, "seed", d.seed())
+        );
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + values.keySet());
+        }
+        return config;
+    }
+
+    private static SchedulingAlgorithm algorithm(Map<String, String> values, SchedulingAlgorithm fallback) {
+        String value = values.remove("algorithm");
+        return value == null ? fallback : SchedulingAlgorithm.valueOf(value.toUpperCase());
+    }
+
+    private static int intValue(Map<String, String> values, String name, int fallback) {
+        String value = values.remove(name);
+        return value == null ? fallback : Integer.parseInt(value.replace("_", ""));
+    }
+
+    private static double doubleValue(Map<String, String> values, String name, double fallback) {
+        String value = values.remove(name);
+        return value == null ? fallback : Double.parseDouble(value.replace("_", ""));
+    }
+}
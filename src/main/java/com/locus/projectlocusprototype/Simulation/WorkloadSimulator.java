@@ -0,0 +1,128 @@
+package com.locus.projectlocusprototype.Simulation;
+
+import com.locus.projectlocusprototype.Scheduling.FsrsScheduler;
+import com.locus.projectlocusprototype.Scheduling.ReviewScheduler;
+import com.locus.projectlocusprototype.Scheduling.SchedulingAlgorithm;
+import com.locus.projectlocusprototype.Scheduling.Sm2Scheduler;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Offline workload simulator for capacity planning, runs without Spring or a database:
+//   java -cp target/classes com.locus.projectlocusprototype.Simulation.WorkloadSimulator --users=100000 --days=365
+// Synthetic users create decks, study on some days and answer from a modelled memory; their cards are scheduled
+// by the production ReviewScheduler (SM-2 or FSRS with default weights). The users are split into partitions
+// that are simulated independently on a fork-join pool and merged per day.
+// Prints one CSV line per day (review load, due counts, requests and row writes it implies), then a summary.
+public final class WorkloadSimulator {
+    //  Same as the locus.scheduling.fsrs.* defaults
+    private static final double DESIRED_RETENTION = 0.9;
+    private static final int MAX_INTERVAL_DAYS = 36_500;
+
+    private WorkloadSimulator() {
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        SimulationConfig config = SimulationConfig.fromArgs(args);
+        long started = System.nanoTime();
+        List<PartitionSimulation> partitions = simulate(config);
+        report(config, partitions, (System.nanoTime() - started) / 1_000_000, System.out);
+    }
+
+    static List<PartitionSimulation> simulate(SimulationConfig config) throws InterruptedException, ExecutionException {
+        int partitionCount = Math.max(1, Math.min(config.partitions(), config.users()));
+        List<Callable<PartitionSimulation>> tasks = new ArrayList<>(partitionCount);
+        for (int p = 0; p < partitionCount; p++) {
+            // users spread evenly, every partition with its own random stream so the result doesn't depend on threads
+            int users = config.users() / partitionCount + (p < config.users() % partitionCount ? 1 : 0);
+            long seed = config.seed() * 1_000_003 + p;
+            tasks.add(() -> new PartitionSimulation(config, scheduler(config.algorithm()), users, seed).run());
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, config.threads()));
+        try {
+            List<PartitionSimulation> partitions = new ArrayList<>(partitionCount);
+            for (Future<PartitionSimulation> future : pool.invokeAll(tasks)) {
+                partitions.add(future.get());
+            }
+            return partitions;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    //  PRIVATE METHODS
+
+    //  One per partition, schedulers are cheap and this keeps the partitions from sharing anything
+    private static ReviewScheduler scheduler(SchedulingAlgorithm algorithm) {
+        return switch (algorithm) {
+            case SM2 -> new Sm2Scheduler();
+            case FSRS -> new FsrsScheduler(FsrsScheduler.defaultWeights(), DESIRED_RETENTION, MAX_INTERVAL_DAYS);
+        };
+    }
+
+    private static void report(SimulationConfig config, List<PartitionSimulation> partitions, long elapsedMillis,
+                               PrintStream out) {
+        int days = config.days();
+        long[] activeUsers = new long[days];
+        long[] reviews = new long[days];
+        long[] recalled = new long[days];
+        long[] newCards = new long[days];
+        long[] dueAtStart = new long[days];
+        long[] carriedOver = new long[days];
+        long[] duePageReads = new long[days];
+        int[] peakUserDue = new int[days];
+        long cards = 0;
+        for (PartitionSimulation partition : partitions) {
+            cards += partition.getCards();
+            for (int day = 0; day < days; day++) {
+                activeUsers[day] += partition.activeUsers[day];
+                reviews[day] += partition.reviews[day];
+                recalled[day] += partition.recalled[day];
+                newCards[day] += partition.newCards[day];
+                dueAtStart[day] += partition.dueAtStart[day];
+                carriedOver[day] += partition.carriedOver[day];
+                duePageReads[day] += partition.duePageReads[day];
+                peakUserDue[day] = Math.max(peakUserDue[day], partition.peakUserDue[day]);
+            }
+        }
+
+        // every review updates its flashcard and inserts a review_events row, every new card inserts a flashcard
+        out.println("day,active_users,due_at_start,reviews,carried_over,new_cards,recall_rate,due_page_reads,row_writes,peak_user_due");
+        long totalReviews = 0;
+        long totalRecalled = 0;
+        int peakReviewDay = 0;
+        int peakDueDay = 0;
+        int peakUserDueDay = 0;
+        for (int day = 0; day < days; day++) {
+            out.printf(Locale.ROOT, "%d,%d,%d,%d,%d,%d,%.4f,%d,%d,%d%n", day, activeUsers[day], dueAtStart[day],
+                    reviews[day], carriedOver[day], newCards[day], ratio(recalled[day], reviews[day]),
+                    duePageReads[day], 2 * reviews[day] + newCards[day], peakUserDue[day]);
+            totalReviews += reviews[day];
+            totalRecalled += recalled[day];
+            peakReviewDay = reviews[day] > reviews[peakReviewDay] ? day : peakReviewDay;
+            peakDueDay = dueAtStart[day] > dueAtStart[peakDueDay] ? day : peakDueDay;
+            peakUserDueDay = peakUserDue[day] > peakUserDue[peakUserDueDay] ? day : peakUserDueDay;
+        }
+
+        out.println();
+        out.printf(Locale.ROOT, "# %s, %d users, %d days, %d partitions on %d threads, %d ms%n", config.algorithm(),
+                config.users(), days, partitions.size(), config.threads(), elapsedMillis);
+        out.printf(Locale.ROOT, "# cards created: %d, reviews: %d, recall rate: %.4f%n",
+                cards, totalReviews, ratio(totalRecalled, totalReviews));
+        out.printf(Locale.ROOT, "# mean reviews per day: %.1f, peak: %d on day %d%n",
+                (double) totalReviews / days, reviews[peakReviewDay], peakReviewDay);
+        out.printf(Locale.ROOT, "# peak due count: %d on day %d, peak due count of one user: %d on day %d%n",
+                dueAtStart[peakDueDay], peakDueDay, peakUserDue[peakUserDueDay], peakUserDueDay);
+    }
+
+    private static double ratio(long part, long total) {
+        return total == 0 ? 0 : (double) part / total;
+    }
+}
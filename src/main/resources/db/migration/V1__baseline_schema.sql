@@ -0,0 +1,34 @@
+-- The schema as Hibernate (ddl-auto=update) had created it before migrations were introduced.
+-- Existing databases are baselined at this version and never run it; new databases start here.
+-- Everything added since lives in the later migrations, so both kinds of database take the same path from V2 on.
+
+CREATE SEQUENCE IF NOT EXISTS useridsequence START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE IF NOT EXISTS notes_id START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE IF NOT EXISTS flashcards_id START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE IF NOT EXISTS users (
+    id       bigint       NOT NULL PRIMARY KEY,
+    username varchar(255) NOT NULL,
+    password varchar(255) NOT NULL,
+    email    varchar(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS notes (
+    id      bigint        NOT NULL PRIMARY KEY,
+    title   varchar(255)  NOT NULL,
+    content varchar(1000),
+    created timestamp(6),
+    user_id bigint        NOT NULL REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS flashcards (
+    id               bigint       NOT NULL PRIMARY KEY,
+    front            varchar(255) NOT NULL,
+    back             varchar(255) NOT NULL,
+    ease_factor      float(53),
+    "interval"       integer,
+    next_review_date timestamp(6),
+    repetitions      integer,
+    user_id          bigint       NOT NULL REFERENCES users (id),
+    note_id          bigint       NOT NULL REFERENCES notes (id)
+);
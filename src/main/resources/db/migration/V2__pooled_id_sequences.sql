@@ -0,0 +1,24 @@
+-- Ids of users, notes and flashcards are handed out in blocks of 50 (allocationSize = 50, pooled-lo optimizer):
+-- one nextval reserves [value, value + 49], so bulk inserts no longer need a sequence round trip per row.
+-- Existing ids stay valid: each sequence first moves to at least the highest id in use, so every block handed
+-- out from now on starts above all existing rows.
+
+DO $$
+DECLARE
+    target record;
+    highest bigint;
+BEGIN
+    FOR target IN
+        SELECT * FROM (VALUES ('useridsequence', 'users'),
+                              ('notes_id', 'notes'),
+                              ('flashcards_id', 'flashcards')) AS t(sequence_name, table_name)
+    LOOP
+        EXECUTE format('ALTER SEQUENCE %I INCREMENT BY 50', target.sequence_name);
+        EXECUTE format('SELECT COALESCE(MAX(id), 0) FROM %I', target.table_name) INTO highest;
+        IF highest > 0 THEN
+            -- is_called = true: the next nextval returns highest + 50, past every existing id
+            PERFORM setval(target.sequence_name::regclass, GREATEST(highest,
+                    (SELECT last_value FROM pg_sequences WHERE sequencename = target.sequence_name AND schemaname = current_schema())));
+        END IF;
+    END LOOP;
+END $$;
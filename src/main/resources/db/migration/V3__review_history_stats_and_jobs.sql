@@ -0,0 +1,75 @@
+-- Columns and tables added on top of the baseline schema. The new tables start empty, so they are created here
+-- together with their indexes; indexes on the existing tables are built without blocking writes in V4.
+
+-- Per-user token epoch, bumped to revoke every JWT issued so far
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_epoch integer NOT NULL DEFAULT 0;
+
+-- Notes longer than 1000 characters; varchar to text is binary compatible, so the table is not rewritten.
+-- generated_sections holds the fingerprints of the sections flashcards were last generated from
+ALTER TABLE notes ALTER COLUMN content TYPE text;
+ALTER TABLE notes ADD COLUMN IF NOT EXISTS generated_sections text;
+
+-- The note section a card was generated from, and the review state used by the FSRS scheduler
+ALTER TABLE flashcards ADD COLUMN IF NOT EXISTS source_section varchar(16);
+ALTER TABLE flashcards ADD COLUMN IF NOT EXISTS last_review_date timestamp(6);
+ALTER TABLE flashcards ADD COLUMN IF NOT EXISTS stability float(53);
+ALTER TABLE flashcards ADD COLUMN IF NOT EXISTS difficulty float(53);
+
+CREATE TABLE IF NOT EXISTS review_events (
+    id                    bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    flashcard_id          bigint       NOT NULL,
+    user_id               bigint       NOT NULL,
+    quality               integer      NOT NULL,
+    prev_ease_factor      float(53)    NOT NULL,
+    prev_interval_days    integer      NOT NULL,
+    prev_repetitions      integer      NOT NULL,
+    prev_next_review_date timestamp(6),
+    new_ease_factor       float(53)    NOT NULL,
+    new_interval_days     integer      NOT NULL,
+    new_repetitions       integer      NOT NULL,
+    new_next_review_date  timestamp(6),
+    reviewed_at           timestamp(6) NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_review_events_user_reviewed_at ON review_events (user_id, reviewed_at);
+
+CREATE TABLE IF NOT EXISTS note_deck_stats (
+    note_id    bigint    NOT NULL PRIMARY KEY,
+    user_id    bigint    NOT NULL,
+    card_count bigint    NOT NULL,
+    ease_sum   float(53) NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_note_deck_stats_user ON note_deck_stats (user_id);
+
+CREATE TABLE IF NOT EXISTS note_due_counts (
+    note_id    bigint NOT NULL,
+    due_date   date   NOT NULL,
+    user_id    bigint NOT NULL,
+    card_count bigint NOT NULL,
+    PRIMARY KEY (due_date, note_id)
+);
+CREATE INDEX IF NOT EXISTS idx_note_due_counts_user_date ON note_due_counts (user_id, due_date);
+
+CREATE TABLE IF NOT EXISTS scheduler_settings (
+    user_id                bigint      NOT NULL PRIMARY KEY,
+    algorithm              varchar(16) NOT NULL,
+    fsrs_weights           text,
+    optimized_review_count integer,
+    optimized_at           timestamp(6)
+);
+
+CREATE SEQUENCE IF NOT EXISTS ai_generation_jobs_id START WITH 1 INCREMENT BY 1;
+CREATE TABLE IF NOT EXISTS ai_generation_jobs (
+    id                 bigint      NOT NULL PRIMARY KEY,
+    user_id            bigint      NOT NULL,
+    note_id            bigint      NOT NULL,
+    card_count         integer     NOT NULL,
+    kind               varchar(16),
+    status             varchar(16) NOT NULL,
+    error_message      varchar(2000),
+    duplicates_skipped integer,
+    cards_retired      integer,
+    flashcard_ids      text,
+    created_at         timestamp(6),
+    updated_at         timestamp(6)
+);
+CREATE INDEX IF NOT EXISTS idx_ai_generation_jobs_status ON ai_generation_jobs (status);
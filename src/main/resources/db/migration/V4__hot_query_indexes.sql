@@ -0,0 +1,22 @@
+-- Indexes for the lookups that scanned whole tables. Built CONCURRENTLY so writes to the tables continue while
+-- they are built, which can't happen inside a transaction (see V4__hot_query_indexes.sql.conf).
+-- A build that fails leaves an INVALID index behind: SchemaIndexValidator reports it, drop it and migrate again.
+-- flashcards.user_id needs no index of its own, idx_flashcards_user_next_review starts with it.
+
+-- A user's due cards in review order (the due queue, due counts and study sessions)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_flashcards_user_next_review ON flashcards (user_id, next_review_date);
+
+-- Login and principal lookups by username (also enforces what the username check at registration assumes)
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS ux_users_username ON users (username);
+
+-- A note's flashcards, and its due cards in review order
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_flashcards_note_next_review ON flashcards (note_id, next_review_date);
+
+-- Duplicate title check when creating a note
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_notes_user_title ON notes (user_id, title);
+
+-- Keyset pagination of a user's notes (ORDER BY created DESC, id DESC)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_notes_user_created ON notes (user_id, created DESC, id DESC);
+
+-- A user's review history card by card, read when fitting FSRS weights
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_review_events_user_card ON review_events (user_id, flashcard_id, reviewed_at);
@@ -0,0 +1,4 @@
+-- The primary key of note_due_counts is (due_date, note_id), so everything that selects by note (removing a
+-- note's rows, the note id ranges of the nightly rebuild, a single note's statistics) scanned the whole table.
+-- Built CONCURRENTLY like the indexes of V4 (see V5__note_due_counts_note_index.sql.conf).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_note_due_counts_note_date ON note_due_counts (note_id, due_date);
@@ -0,0 +1,102 @@
+package com.locus.projectlocusprototype.AI;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTests {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    void admitsUpToTheLimitThenTimesOut() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 10, 2, 0.5, 1_000);
+
+        assertThat(limiter.acquire(0, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(limiter.acquire(0, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(limiter.acquire(10, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void waitingCallerGetsTheReleasedSlot() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 10, 1, 0.5, 1_000);
+        assertThat(limiter.acquire(0, TimeUnit.MILLISECONDS)).isTrue();
+
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        limiter.onIgnored();
+
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void droppedCallsCutTheLimitDownToTheMinimum() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 32, 16, 0.5, 1_000);
+
+        limiter.acquire(0, TimeUnit.MILLISECONDS);
+        limiter.onDropped();
+        assertThat(limiter.getLimit()).isEqualTo(8);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire(0, TimeUnit.MILLISECONDS);
+            limiter.onDropped();
+        }
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void slowSuccessCountsAsCongestion() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 32, 8, 0.5, 1_000);
+
+        limiter.acquire(0, TimeUnit.MILLISECONDS);
+        limiter.onSuccess(SLOW);
+
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void fastSuccessesGrowTheLimitOnlyWhileItIsInUse() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 4, 2, 0.5, 1_000);
+
+        // a single call at a time never uses half of a limit above 2, so the limit stops growing there
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire(0, TimeUnit.MILLISECONDS);
+            limiter.onSuccess(FAST);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(2);
+
+        // with the limit saturated every round of calls adds about one
+        for (int round = 0; round < 20; round++) {
+            int limit = limiter.getLimit();
+            for (int i = 0; i < limit; i++) {
+                limiter.acquire(0, TimeUnit.MILLISECONDS);
+            }
+            for (int i = 0; i < limit; i++) {
+                limiter.onSuccess(FAST);
+            }
+        }
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void ignoredCallsLeaveTheLimitAlone() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 10, 3, 0.5, 1_000);
+
+        limiter.acquire(0, TimeUnit.MILLISECONDS);
+        limiter.onIgnored();
+
+        assertThat(limiter.getLimit()).isEqualTo(3);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+}
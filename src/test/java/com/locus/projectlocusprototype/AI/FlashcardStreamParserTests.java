@@ -0,0 +1,84 @@
+package com.locus.projectlocusprototype.AI;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlashcardStreamParserTests {
+    //  Escaped quotes and backslashes, braces and brackets inside strings, a unicode escape and whitespace between
+    //  the cards, wrapped in the markdown fence the model sometimes adds
+    private static final String RESPONSE = """
+            ```json
+            [
+              {"front": "What does \\"ATP\\" stand for?", "back": "Adenosine triphosphate"},
+              {"front": "Path separator on Windows", "back": "A backslash: \\\\"},
+              { "front" : "Set notation {1, 2} and list [3]", "back": "Braces } and ] inside strings are text" },
+              {"front": "Caf\\u00e9 is spelled with", "back": "an acute accent\\non the e"}
+            ]
+            ```""";
+    private static final List<AIService.FlashcardDTO> CARDS = List.of(
+            new AIService.FlashcardDTO("What does \"ATP\" stand for?", "Adenosine triphosphate"),
+            new AIService.FlashcardDTO("Path separator on Windows", "A backslash: \\"),
+            new AIService.FlashcardDTO("Set notation {1, 2} and list [3]", "Braces } and ] inside strings are text"),
+            new AIService.FlashcardDTO("Café is spelled with", "an acute accent\non the e"));
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    @Test
+    void wholeResponseInOneFragment() {
+        assertThat(new FlashcardStreamParser(objectMapper).feed(RESPONSE)).isEqualTo(CARDS);
+    }
+
+    @Test
+    void sameCardsForEverySplitIntoTwoFragments() {
+        for (int split = 0; split <= RESPONSE.length(); split++) {
+            FlashcardStreamParser parser = new FlashcardStreamParser(objectMapper);
+            List<AIService.FlashcardDTO> cards = new ArrayList<>(parser.feed(RESPONSE.substring(0, split)));
+            cards.addAll(parser.feed(RESPONSE.substring(split)));
+
+            assertThat(cards).as("split at %d", split).isEqualTo(CARDS);
+        }
+    }
+
+    @Test
+    void sameCardsForEverySplitIntoThreeFragments() {
+        for (int first = 0; first <= RESPONSE.length(); first++) {
+            for (int second = first; second <= RESPONSE.length(); second++) {
+                FlashcardStreamParser parser = new FlashcardStreamParser(objectMapper);
+                List<AIService.FlashcardDTO> cards = new ArrayList<>(parser.feed(RESPONSE.substring(0, first)));
+                cards.addAll(parser.feed(RESPONSE.substring(first, second)));
+                cards.addAll(parser.feed(RESPONSE.substring(second)));
+
+                assertThat(cards).as("split at %d and %d", first, second).isEqualTo(CARDS);
+            }
+        }
+    }
+
+    @Test
+    void eachCardIsReturnedByTheFragmentThatClosesIt() {
+        FlashcardStreamParser parser = new FlashcardStreamParser(objectMapper);
+        List<List<AIService.FlashcardDTO>> perCharacter = new ArrayList<>();
+        for (int i = 0; i < RESPONSE.length(); i++) {
+            List<AIService.FlashcardDTO> completed = parser.feed(RESPONSE.substring(i, i + 1));
+            if (!completed.isEmpty()) {
+                perCharacter.add(completed);
+            }
+        }
+
+        assertThat(perCharacter).containsExactly(List.of(CARDS.get(0)), List.of(CARDS.get(1)), List.of(CARDS.get(2)), List.of(CARDS.get(3)));
+    }
+
+    @Test
+    void incompleteCardIsNotReturnedAndNullFragmentsAreIgnored() {
+        FlashcardStreamParser parser = new FlashcardStreamParser(objectMapper);
+
+        assertThat(parser.feed("[{\"front\": \"Unfinished }\", \"back\": \"still open")).isEmpty();
+        assertThat(parser.feed(null)).isEmpty();
+        assertThat(parser.feed("\"}]")).containsExactly(new AIService.FlashcardDTO("Unfinished }", "still open"));
+    }
+}
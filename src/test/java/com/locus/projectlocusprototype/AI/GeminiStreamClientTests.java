@@ -0,0 +1,134 @@
+package com.locus.projectlocusprototype.AI;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.test.StepVerifier;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeminiStreamClientTests {
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void emitsCardsAsTheyCompleteAcrossChunks() {
+        // the first card is split in the middle of a string, the second one in the middle of an escape
+        serve(List.of(
+                "[{\"front\": \"What is a mon",
+                "ad?\", \"back\": \"A {monoid} in the category of endofunctors\"}, {\"front\": \"Quote\", \"back\": \"say \\",
+                "\"hi\\\"\"}]"
+        ));
+
+        StepVerifier.create(client().streamFlashcards(Map.of("contents", List.of())))
+                .expectNext(new AIService.FlashcardDTO("What is a monad?", "A {monoid} in the category of endofunctors"))
+                .expectNext(new AIService.FlashcardDTO("Quote", "say \"hi\""))
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void ignoresChunksWithoutText() {
+        serve(List.of("[{\"front\": \"Q\", \"back\": \"A\"}", "]", ""));
+
+        StepVerifier.create(client().streamFlashcards(Map.of()))
+                .expectNext(new AIService.FlashcardDTO("Q", "A"))
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void retriesThrottledStreamBeforeFirstChunk() {
+        AtomicInteger calls = new AtomicInteger();
+        serve(List.of("[{\"front\": \"Q\", \"back\": \"A\"}]"), () -> calls.incrementAndGet() == 1 ? 429 : 200);
+
+        StepVerifier.create(client(3).streamFlashcards(Map.of()))
+                .expectNext(new AIService.FlashcardDTO("Q", "A"))
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void parserHandlesBracketsInsideStrings() {
+        FlashcardStreamParser parser = new FlashcardStreamParser(objectMapper);
+
+        assertThat(parser.feed("[{\"front\": \"] } [\", ")).isEmpty();
+        assertThat(parser.feed("\"back\": \"{\\\\}\"}")).containsExactly(new AIService.FlashcardDTO("] } [", "{\\}"));
+        assertThat(parser.feed("]")).isEmpty();
+    }
+
+    //  Serves every text fragment as one streamed GeminiResponse event; an empty fragment becomes a chunk with no content
+    private void serve(List<String> fragments) {
+        serve(fragments, () -> 200);
+    }
+
+    private void serve(List<String> fragments, IntSupplier status) {
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            int code = status.getAsInt();
+            if (code != 200) {
+                exchange.sendResponseHeaders(code, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (String fragment : fragments) {
+                    Object candidate = fragment.isEmpty()
+                            ? Map.of("finishReason", "STOP")
+                            : Map.of("content", Map.of("parts", List.of(Map.of("text", fragment))));
+                    String json = objectMapper.writeValueAsString(Map.of("candidates", List.of(candidate)));
+                    out.write(("data: " + json + "\n\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+            }
+        });
+    }
+
+    private GeminiStreamClient client() {
+        return client(1);
+    }
+
+    private GeminiStreamClient client(int maxAttempts) {
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + server.getAddress().getPort())
+                .build();
+        GeminiClientProperties properties = new GeminiClientProperties(
+                new GeminiClientProperties.Client(10_000, 30_000, 1_000),
+                new GeminiClientProperties.Retry(maxAttempts, 10, 10),
+                4,
+                new GeminiClientProperties.Limiter(1, 4, 10_000, 0.5),
+                new GeminiClientProperties.Circuit(20, 10, 0.5, 30_000),
+                new GeminiClientProperties.Quota(600, 10));
+        GeminiClient geminiClient = new GeminiClient(webClient, webClient, objectMapper, properties, new SimpleMeterRegistry());
+        return new GeminiStreamClient(geminiClient, objectMapper);
+    }
+}
@@ -0,0 +1,138 @@
+package com.locus.projectlocusprototype.AI;
+
+import com.locus.projectlocusprototype.Auth.AuthService;
+import com.locus.projectlocusprototype.Exceptions.AIUnavailableException;
+import com.locus.projectlocusprototype.Flashcard.FlashcardRepository;
+import com.locus.projectlocusprototype.Flashcard.FlashcardService;
+import com.locus.projectlocusprototype.Note.NoteRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+//  Jobs run on the service's worker threads, so outcomes are awaited with Mockito's timeout()/after()
+class GenerationJobServiceTests {
+    private static final Long USER = 7L;
+    private static final Long NOTE = 1L;
+    private static final GenerationJob.Status QUEUED = GenerationJob.Status.QUEUED;
+    private static final GenerationJob.Status RUNNING = GenerationJob.Status.RUNNING;
+
+    private final GenerationJobRepository jobRepository = mock(GenerationJobRepository.class);
+    private final AIService aiService = mock(AIService.class);
+    private final GenerationJobService service = new GenerationJobService(jobRepository, aiService, mock(AuthService.class),
+            mock(NoteRepository.class), mock(FlashcardRepository.class), mock(FlashcardService.class),
+            2, 60_000, 60_000, true, new SimpleMeterRegistry());
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void queuedJobRunsOnceEvenWhenDispatchedTwice() {
+        GenerationJob job = job(5L);
+        when(jobRepository.findGenerationJobsByStatusInOrderByIdAsc(List.of(QUEUED))).thenReturn(List.of(job, job));
+        when(jobRepository.updateStatusIfCurrent(5L, QUEUED, RUNNING)).thenReturn(1, 0);
+        when(jobRepository.findById(5L)).thenReturn(Optional.of(job));
+        when(aiService.generateFlashcardsForUser(eq(USER), any())).thenReturn(new AIGenerationResponse(List.of(), 2, 0));
+        when(jobRepository.save(job)).thenReturn(job);
+
+        service.resumeUnfinishedJobs();
+
+        verify(jobRepository, timeout(5_000).times(2)).updateStatusIfCurrent(5L, QUEUED, RUNNING);
+        verify(jobRepository, timeout(5_000)).save(job);
+        verify(aiService, after(200).times(1)).generateFlashcardsForUser(eq(USER), any());
+        assertThat(job.getStatus()).isEqualTo(GenerationJob.Status.SUCCEEDED);
+        assertThat(job.getDuplicatesSkipped()).isEqualTo(2);
+    }
+
+    @Test
+    void jobClaimedElsewhereIsNotRun() {
+        when(jobRepository.findGenerationJobsByStatusInOrderByIdAsc(List.of(QUEUED))).thenReturn(List.of(job(5L)));
+
+        service.resumeUnfinishedJobs();
+
+        verify(jobRepository, timeout(5_000)).updateStatusIfCurrent(5L, QUEUED, RUNNING);
+        verify(jobRepository, after(200).never()).findById(anyLong());
+        verify(aiService, never()).generateFlashcardsForUser(any(), any());
+    }
+
+    @Test
+    void failedGenerationIsStoredAsFailed() {
+        GenerationJob job = job(5L);
+        when(jobRepository.findGenerationJobsByStatusInOrderByIdAsc(List.of(QUEUED))).thenReturn(List.of(job));
+        when(jobRepository.updateStatusIfCurrent(5L, QUEUED, RUNNING)).thenReturn(1);
+        when(jobRepository.findById(5L)).thenReturn(Optional.of(job));
+        when(aiService.generateFlashcardsForUser(eq(USER), any())).thenThrow(new AIUnavailableException("model is down"));
+        when(jobRepository.save(job)).thenReturn(job);
+
+        service.resumeUnfinishedJobs();
+
+        ArgumentCaptor<GenerationJob> saved = ArgumentCaptor.forClass(GenerationJob.class);
+        verify(jobRepository, timeout(5_000)).save(saved.capture());
+        assertThat(saved.getValue().getStatus()).isEqualTo(GenerationJob.Status.FAILED);
+        assertThat(saved.getValue().getErrorMessage()).isEqualTo("model is down");
+    }
+
+    @Test
+    void staleRunningJobIsQueuedAgainAndDispatched() {
+        when(jobRepository.findGenerationJobIdsByStatusUpdatedBefore(eq(RUNNING), any())).thenReturn(List.of(5L, 6L));
+        when(jobRepository.updateStatusIfCurrent(5L, RUNNING, QUEUED)).thenReturn(1);
+        //  6 finished or was requeued by another instance in the meantime
+        when(jobRepository.updateStatusIfCurrent(6L, RUNNING, QUEUED)).thenReturn(0);
+
+        service.sweepStaleJobs();
+
+        verify(jobRepository, timeout(5_000)).updateStatusIfCurrent(5L, QUEUED, RUNNING);
+        verify(jobRepository, after(200).never()).updateStatusIfCurrent(6L, QUEUED, RUNNING);
+    }
+
+    @Test
+    void jobRunningOnThisInstanceIsNeverTreatedAsStale() throws InterruptedException {
+        GenerationJob job = job(5L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(jobRepository.findGenerationJobsByStatusInOrderByIdAsc(List.of(QUEUED))).thenReturn(List.of(job));
+        when(jobRepository.updateStatusIfCurrent(5L, QUEUED, RUNNING)).thenReturn(1);
+        when(jobRepository.findById(5L)).thenReturn(Optional.of(job));
+        when(jobRepository.save(job)).thenReturn(job);
+        when(aiService.generateFlashcardsForUser(eq(USER), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new AIGenerationResponse(List.of(), 0, 0);
+        });
+        when(jobRepository.findGenerationJobIdsByStatusUpdatedBefore(eq(RUNNING), any())).thenReturn(List.of(5L));
+        service.resumeUnfinishedJobs();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        service.sweepStaleJobs();
+        release.countDown();
+
+        verify(jobRepository, timeout(5_000)).save(job);
+        verify(jobRepository, never()).updateStatusIfCurrent(5L, RUNNING, QUEUED);
+    }
+
+    private static GenerationJob job(Long id) {
+        GenerationJob job = new GenerationJob(USER, NOTE, GenerationJob.Kind.GENERATE, 5);
+        ReflectionTestUtils.setField(job, "id", id);
+        return job;
+    }
+}
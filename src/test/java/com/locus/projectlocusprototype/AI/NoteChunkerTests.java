@@ -0,0 +1,99 @@
+package com.locus.projectlocusprototype.AI;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NoteChunkerTests {
+    private final NoteChunker chunker = new NoteChunker(1000, 300);
+
+    @Test
+    void insertingAParagraphOnlyChangesTheSectionsAroundIt() {
+        List<String> paragraphs = paragraphs(new Random(3), 40);
+        List<NoteSection> before = chunker.sections(String.join("\n\n", paragraphs));
+        assertThat(before).hasSizeGreaterThan(5);
+
+        List<String> edited = new ArrayList<>(paragraphs);
+        edited.add(20, "A freshly inserted paragraph about something else entirely, long enough to matter.");
+        List<NoteSection> after = chunker.sections(String.join("\n\n", edited));
+
+        Set<String> kept = fingerprints(after);
+        List<String> changed = before.stream().map(NoteSection::fingerprint).filter(f -> !kept.contains(f)).toList();
+        // the section holding the insert and at most the one after it, the rest keep their fingerprints
+        assertThat(changed).hasSizeBetween(1, 2);
+        assertThat(after.getFirst().fingerprint()).isEqualTo(before.getFirst().fingerprint());
+        assertThat(after.getLast().fingerprint()).isEqualTo(before.getLast().fingerprint());
+    }
+
+    @Test
+    void headingsStartSectionsAndReflowKeepsFingerprints() {
+        String note = "# One\n\nFirst paragraph.\n\n# Two\n\nSecond   paragraph\nwrapped.";
+
+        List<NoteSection> sections = chunker.sections(note);
+        List<NoteSection> reflowed = chunker.sections(note.replace("paragraph\nwrapped", "paragraph wrapped"));
+
+        assertThat(sections).extracting(NoteSection::text).containsExactly("# One\n\nFirst paragraph.", "# Two\n\nSecond   paragraph\nwrapped.");
+        assertThat(fingerprints(reflowed)).isEqualTo(fingerprints(sections));
+    }
+
+    @Test
+    void oversizedParagraphsAreSplitWithinTheChunkSize() {
+        String sentence = "This sentence is repeated until the paragraph is far longer than one chunk. ";
+        List<NoteSection> sections = chunker.sections(sentence.repeat(60));
+
+        assertThat(sections).hasSizeGreaterThan(1);
+        assertThat(sections).allSatisfy(section -> assertThat(section.text().length()).isLessThanOrEqualTo(1000));
+        assertThat(chunker.sections("  \n\n ")).isEmpty();
+    }
+
+    @Test
+    void distributeAlwaysSumsToCount() {
+        Random random = new Random(5);
+        for (int run = 0; run < 200; run++) {
+            List<String> chunks = new ArrayList<>();
+            for (int i = 1 + random.nextInt(12); i > 0; i--) {
+                chunks.add("x".repeat(1 + random.nextInt(5000)));
+            }
+            int count = 1 + random.nextInt(60);
+
+            int[] allocation = chunker.distribute(chunks, count);
+
+            assertThat(Arrays.stream(allocation).sum()).isEqualTo(count);
+            assertThat(Arrays.stream(allocation).min().orElse(0)).isNotNegative();
+        }
+    }
+
+    @Test
+    void distributeIsProportionalAndFavoursLongChunksWhenCardsAreScarce() {
+        assertThat(chunker.distribute(List.of("a".repeat(300), "b".repeat(100)), 8)).containsExactly(6, 2);
+        assertThat(chunker.distribute(List.of("a".repeat(10), "b".repeat(300), "c".repeat(200)), 2)).containsExactly(0, 1, 1);
+        assertThat(chunker.distribute(List.of(), 5)).isEmpty();
+        assertThat(chunker.distribute(List.of("a", "b"), 0)).containsExactly(0, 0);
+    }
+
+    private static Set<String> fingerprints(List<NoteSection> sections) {
+        Set<String> fingerprints = new HashSet<>();
+        sections.forEach(section -> fingerprints.add(section.fingerprint()));
+        return fingerprints;
+    }
+
+    private static List<String> paragraphs(Random random, int count) {
+        String[] words = {"cell", "energy", "protein", "membrane", "enzyme", "gene", "acid", "structure", "process", "signal"};
+        List<String> paragraphs = new ArrayList<>();
+        for (int p = 0; p < count; p++) {
+            StringBuilder paragraph = new StringBuilder("Paragraph " + p + ":");
+            for (int w = 10 + random.nextInt(20); w > 0; w--) {
+                paragraph.append(' ').append(words[random.nextInt(words.length)]);
+            }
+            paragraphs.add(paragraph.append('.').toString());
+        }
+        return paragraphs;
+    }
+}
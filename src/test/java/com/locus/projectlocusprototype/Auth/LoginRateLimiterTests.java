@@ -0,0 +1,72 @@
+package com.locus.projectlocusprototype.Auth;
+
+import com.locus.projectlocusprototype.Exceptions.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginRateLimiterTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void usernameIsLimitedCaseInsensitively() {
+        LoginRateLimiter limiter = new LoginRateLimiter(1, 2, 60, 20, meterRegistry);
+
+        limiter.checkUsername("alice");
+        limiter.checkUsername("ALICE");
+
+        assertThatThrownBy(() -> limiter.checkUsername("Alice")).isInstanceOf(RateLimitExceededException.class);
+        assertThatCode(() -> limiter.checkUsername("bob")).doesNotThrowAnyException();
+        assertThat(rejections("username")).isEqualTo(1);
+    }
+
+    @Test
+    void ipIsLimitedIndependentlyOfUsername() {
+        LoginRateLimiter limiter = new LoginRateLimiter(60, 20, 1, 1, meterRegistry);
+
+        limiter.checkIp("10.0.0.1");
+
+        assertThatThrownBy(() -> limiter.checkIp("10.0.0.1")).isInstanceOf(RateLimitExceededException.class);
+        assertThatCode(() -> limiter.checkIp("10.0.0.2")).doesNotThrowAnyException();
+        assertThatCode(() -> limiter.checkUsername("alice")).doesNotThrowAnyException();
+        assertThat(rejections("ip")).isEqualTo(1);
+    }
+
+    @Test
+    void missingKeysAreNotLimited() {
+        LoginRateLimiter limiter = new LoginRateLimiter(1, 1, 1, 1, meterRegistry);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.checkIp(null);
+            limiter.checkUsername(null);
+        }
+
+        assertThat(buckets()).isZero();
+    }
+
+    @Test
+    void idleBucketsAreEvictedAndBusyOnesKept() throws InterruptedException {
+        // one token every 10 microseconds for IPs, so their buckets are idle again almost immediately
+        LoginRateLimiter limiter = new LoginRateLimiter(1, 1, 6_000_000, 1, meterRegistry);
+        limiter.checkUsername("alice");
+        limiter.checkIp("10.0.0.1");
+        assertThat(buckets()).isEqualTo(2);
+
+        Thread.sleep(5);
+        limiter.evictIdleBuckets();
+
+        assertThat(buckets()).isEqualTo(1);
+        assertThatThrownBy(() -> limiter.checkUsername("alice")).isInstanceOf(RateLimitExceededException.class);
+    }
+
+    private double rejections(String key) {
+        return meterRegistry.get("locus.auth.rate-limit.rejections").tag("key", key).counter().count();
+    }
+
+    private double buckets() {
+        return meterRegistry.get("locus.auth.rate-limit.buckets").gauge().value();
+    }
+}
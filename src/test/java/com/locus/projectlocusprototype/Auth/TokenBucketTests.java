@@ -0,0 +1,71 @@
+package com.locus.projectlocusprototype.Auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTests {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void burstIsAvailableImmediatelyThenRejects() {
+        TokenBucket bucket = new TokenBucket(60, 3);
+        long now = 1_000 * SECOND;
+
+        assertThat(bucket.tryAcquire(now)).isTrue();
+        assertThat(bucket.tryAcquire(now)).isTrue();
+        assertThat(bucket.tryAcquire(now)).isTrue();
+        assertThat(bucket.tryAcquire(now)).isFalse();
+        assertThat(bucket.nanosUntilAvailable(now)).isEqualTo(SECOND);
+    }
+
+    @Test
+    void refillsAtTheConfiguredRate() {
+        TokenBucket bucket = new TokenBucket(60, 1);
+        long now = 1_000 * SECOND;
+
+        assertThat(bucket.tryAcquire(now)).isTrue();
+        assertThat(bucket.tryAcquire(now + SECOND / 2)).isFalse();
+        assertThat(bucket.tryAcquire(now + SECOND)).isTrue();
+        assertThat(bucket.tryAcquire(now + SECOND)).isFalse();
+    }
+
+    @Test
+    void longIdlePeriodsDoNotBankMoreThanTheBurst() {
+        TokenBucket bucket = new TokenBucket(60, 2);
+        long later = 1_000 * SECOND;
+        bucket.tryAcquire(0);
+
+        assertThat(bucket.isIdle(later)).isTrue();
+        assertThat(bucket.tryAcquire(later)).isTrue();
+        assertThat(bucket.tryAcquire(later)).isTrue();
+        assertThat(bucket.tryAcquire(later)).isFalse();
+    }
+
+    @Test
+    void releasedTokenCanBeTakenAgain() {
+        TokenBucket bucket = new TokenBucket(60, 1);
+        long now = 1_000 * SECOND;
+
+        assertThat(bucket.tryAcquire(now)).isTrue();
+        assertThat(bucket.isIdle(now)).isFalse();
+        bucket.release();
+
+        assertThat(bucket.nanosUntilAvailable(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isTrue();
+        assertThat(bucket.tryAcquire(now)).isFalse();
+    }
+
+    @Test
+    void newBucketIsIdleAndReleaseLeavesItUntouched() {
+        TokenBucket bucket = new TokenBucket(60, 1);
+        bucket.release();
+
+        assertThat(bucket.isIdle(0)).isTrue();
+        assertThat(bucket.nanosUntilAvailable(0)).isZero();
+        assertThat(bucket.tryAcquire(0)).isTrue();
+        assertThat(bucket.tryAcquire(0)).isFalse();
+    }
+}
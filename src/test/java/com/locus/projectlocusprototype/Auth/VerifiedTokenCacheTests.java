@@ -0,0 +1,99 @@
+package com.locus.projectlocusprototype.Auth;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void returnsCachedTokenAndCountsHitsAndMisses() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, 300, meterRegistry);
+        VerifiedToken token = token("alice", Instant.now().plusSeconds(3600));
+
+        assertThat(cache.get("raw-token")).isNull();
+        cache.put("raw-token", token);
+
+        assertThat(cache.get("raw-token")).isSameAs(token);
+        assertThat(cache.get("other-token")).isNull();
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(meterRegistry.get("locus.jwt.cache.requests").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("locus.jwt.cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void entryExpiresWithTheToken() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, 300, meterRegistry);
+        cache.put("expired", token("alice", Instant.now().minusSeconds(1)));
+
+        assertThat(cache.get("expired")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void entryExpiresAfterTheTtlEvenIfTheTokenLivesLonger() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, 0, meterRegistry);
+        cache.put("long-lived", token("alice", Instant.now().plusSeconds(3600)));
+
+        assertThat(cache.get("long-lived")).isNull();
+    }
+
+    @Test
+    void staysWithinMaxEntries() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(20, 300, meterRegistry);
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put("token-" + i, token("user" + i, expiresAt));
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(20);
+        assertThat(cache.get("token-99")).isNotNull();
+    }
+
+    @Test
+    void expiredEntriesAreEvictedBeforeLiveOnes() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(3, 300, meterRegistry);
+        Instant live = Instant.now().plusSeconds(3600);
+        cache.put("live-1", token("a", live));
+        cache.put("live-2", token("b", live));
+        cache.put("expired", token("c", Instant.now().minusSeconds(1)));
+
+        cache.put("live-3", token("d", live));
+
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(cache.get("live-1")).isNotNull();
+        assertThat(cache.get("live-2")).isNotNull();
+        assertThat(cache.get("live-3")).isNotNull();
+    }
+
+    @Test
+    void disabledCacheStoresNothing() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(0, 300, meterRegistry);
+        cache.put("raw-token", token("alice", Instant.now().plusSeconds(3600)));
+
+        assertThat(cache.get("raw-token")).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getMissCount()).isZero();
+    }
+
+    @Test
+    void clearDropsEverything() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100, 300, meterRegistry);
+        cache.put("raw-token", token("alice", Instant.now().plusSeconds(3600)));
+
+        cache.clear();
+
+        assertThat(cache.get("raw-token")).isNull();
+    }
+
+    private static VerifiedToken token(String username, Instant expiresAt) {
+        return new VerifiedToken(username, 1L, List.of("ROLE_USER"), 0, Instant.now(), expiresAt);
+    }
+}
@@ -0,0 +1,81 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import com.locus.projectlocusprototype.Auth.AuthService;
+import com.locus.projectlocusprototype.Auth.User;
+import com.locus.projectlocusprototype.Auth.UserPrincipal;
+import com.locus.projectlocusprototype.Exceptions.DuplicateFlashcardException;
+import com.locus.projectlocusprototype.Note.Note;
+import com.locus.projectlocusprototype.Note.NoteRepository;
+import com.locus.projectlocusprototype.Scheduling.SchedulerSettingsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+//  Edits run the same near-duplicate check as new cards, against the note's other cards only
+class FlashcardServiceTests {
+    private static final Long USER = 7L;
+    private static final Long NOTE = 1L;
+    private static final String FRONT = "What does the mitochondria produce in a eukaryotic cell";
+    private static final String BACK = "It produces ATP through cellular respiration";
+
+    private final FlashcardRepository flashcardRepository = mock(FlashcardRepository.class);
+    private final AuthService authService = mock(AuthService.class);
+    private final Authentication authentication = mock(Authentication.class);
+    private FlashcardSimilarityIndex similarityIndex;
+    private FlashcardService flashcardService;
+
+    @BeforeEach
+    void setUp() {
+        when(authService.getPrincipalFromAuthenticationObject(authentication)).thenReturn(new UserPrincipal(USER, "someone", null, List.of(), 0));
+        when(flashcardRepository.findFlashcardTextsByNoteId(NOTE)).thenReturn(List.of(
+                new FlashcardText(10L, FRONT, BACK),
+                new FlashcardText(11L, "Which organelle stores the genetic material of a cell", "The nucleus")));
+        when(flashcardRepository.updateFlashcardByIdAndUserId(anyLong(), any(), any(), any())).thenReturn(1);
+        similarityIndex = new FlashcardSimilarityIndex(flashcardRepository, 0.7, 10_000, 60, new SimpleMeterRegistry());
+        flashcardService = new FlashcardService(flashcardRepository, mock(SpacedRepetitionService.class), authService,
+                mock(NoteRepository.class), mock(ReviewLogWriter.class), similarityIndex, mock(DeckStatsService.class),
+                mock(SchedulerSettingsService.class), 20, 200);
+    }
+
+    @Test
+    void editThatCopiesASiblingIsRejected() {
+        card(11L, "Which organelle stores the genetic material of a cell", "The nucleus");
+
+        assertThatThrownBy(() -> flashcardService.updateFlashcard(11L, new FlashcardRequest(null, FRONT, BACK), authentication))
+                .isInstanceOf(DuplicateFlashcardException.class)
+                .hasMessageContaining("ID 10");
+        verify(flashcardRepository, never()).updateFlashcardByIdAndUserId(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void editThatOnlyRewordsTheCardItselfIsAccepted() {
+        card(10L, FRONT, BACK);
+
+        FlashcardResponse response = flashcardService.updateFlashcard(10L, new FlashcardRequest(null, null, BACK + " in the mitochondria"), authentication);
+
+        assertThat(response).isNotNull();
+        verify(flashcardRepository).updateFlashcardByIdAndUserId(10L, USER, null, BACK + " in the mitochondria");
+    }
+
+    private void card(Long id, String front, String back) {
+        Note note = mock(Note.class);
+        when(note.getId()).thenReturn(NOTE);
+        User user = mock(User.class);
+        when(user.getId()).thenReturn(USER);
+        Flashcard flashcard = new Flashcard(note, user, back, front);
+        when(flashcardRepository.findFlashcardByIdAndUserId(id, USER)).thenReturn(Optional.of(flashcard));
+    }
+}
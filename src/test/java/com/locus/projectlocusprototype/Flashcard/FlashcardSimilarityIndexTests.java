@@ -0,0 +1,173 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+//  Outside of a transaction the index applies changes right away. Changes only reach notes that are loaded, so the
+//  tests touch a note (loading it from the mocked repository) before adding cards to it
+class FlashcardSimilarityIndexTests {
+    private static final Long NOTE = 1L;
+    private static final String FRONT = "What does the mitochondria produce in a eukaryotic cell";
+    private static final String BACK = "It produces ATP through cellular respiration";
+
+    private final FlashcardRepository repository = mock(FlashcardRepository.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void findsNearDuplicatesAtTheThresholdButNotAboveIt() {
+        FlashcardSimilarityIndex.Signature existing = FlashcardSimilarityIndex.signature(FRONT, BACK);
+        FlashcardSimilarityIndex.Signature reworded = FlashcardSimilarityIndex.signature(
+                "What does the mitochondria produce in a eukaryotic cell?", "It makes ATP through cellular respiration");
+        double similarity = existing.similarity(reworded);
+        assertThat(similarity).isBetween(0.5, 1.0);
+
+        FlashcardSimilarityIndex atThreshold = loadedIndex(similarity, 60);
+        atThreshold.add(NOTE, 10L, existing);
+        assertThat(atThreshold.findDuplicate(NOTE, reworded)).contains(10L);
+
+        FlashcardSimilarityIndex aboveThreshold = loadedIndex(similarity + 0.01, 60);
+        aboveThreshold.add(NOTE, 10L, existing);
+        assertThat(aboveThreshold.findDuplicate(NOTE, reworded)).isEmpty();
+    }
+
+    @Test
+    void identicalWordsInAnotherOrderAreDuplicatesAndUnrelatedCardsAreNot() {
+        FlashcardSimilarityIndex index = loadedIndex(0.7, 60);
+        index.add(NOTE, 10L, FlashcardSimilarityIndex.signature(FRONT, BACK));
+
+        assertThat(index.findDuplicate(NOTE, FlashcardSimilarityIndex.signature(BACK.toUpperCase(), FRONT + "!"))).contains(10L);
+        assertThat(index.findDuplicate(NOTE, FlashcardSimilarityIndex.signature(
+                "Who wrote the Declaration of Independence", "Thomas Jefferson, in 1776"))).isEmpty();
+    }
+
+    @Test
+    void excludedCardsAreSkippedEvenWhenTheyAreTheClosestMatch() {
+        FlashcardSimilarityIndex.Signature candidate = FlashcardSimilarityIndex.signature(FRONT, BACK);
+        FlashcardSimilarityIndex.Signature staying = FlashcardSimilarityIndex.signature(FRONT, "It makes ATP through cellular respiration");
+        assertThat(candidate.similarity(staying)).isBetween(0.7, 1.0);
+        FlashcardSimilarityIndex index = loadedIndex(0.7, 60);
+        index.add(NOTE, 10L, candidate);
+        index.add(NOTE, 11L, staying);
+
+        assertThat(index.findDuplicate(NOTE, candidate)).contains(10L);
+        assertThat(index.findDuplicate(NOTE, candidate, Set.of(10L))).contains(11L);
+        assertThat(index.findDuplicate(NOTE, candidate, Set.of(10L, 11L))).isEmpty();
+    }
+
+    @Test
+    void cardsWithoutWordsAreNeverDuplicatesAndAreNotIndexed() {
+        FlashcardSimilarityIndex index = loadedIndex(0.7, 60);
+        FlashcardSimilarityIndex.Signature punctuation = FlashcardSimilarityIndex.signature("?", "...");
+        assertThat(punctuation.isEmpty()).isTrue();
+
+        index.add(NOTE, 10L, punctuation);
+
+        assertThat(cards()).isZero();
+        assertThat(index.findDuplicate(NOTE, FlashcardSimilarityIndex.signature("!", "-"))).isEmpty();
+        assertThat(index.isNearDuplicate(punctuation, FlashcardSimilarityIndex.signature("!", "-"))).isFalse();
+
+        //  an edit that removes every word drops the card's old entry
+        index.update(NOTE, 11L, FRONT, BACK);
+        assertThat(cards()).isEqualTo(1);
+        index.update(NOTE, 11L, "?", "?");
+        assertThat(cards()).isZero();
+        assertThat(index.findDuplicate(NOTE, FlashcardSimilarityIndex.signature(FRONT, BACK))).isEmpty();
+    }
+
+    @Test
+    void cardsOfOtherNotesAreNotCompared() {
+        FlashcardSimilarityIndex index = loadedIndex(0.7, 60);
+        index.add(NOTE, 10L, FlashcardSimilarityIndex.signature(FRONT, BACK));
+
+        assertThat(index.findDuplicate(2L, FlashcardSimilarityIndex.signature(FRONT, BACK))).isEmpty();
+    }
+
+    @Test
+    void loadsTheNoteFromTheDatabaseOnFirstUse() {
+        when(repository.findFlashcardTextsByNoteId(NOTE)).thenReturn(List.of(new FlashcardText(10L, FRONT, BACK)));
+        FlashcardSimilarityIndex index = index(0.7, 60);
+
+        assertThat(index.findDuplicate(NOTE, FlashcardSimilarityIndex.signature(FRONT, BACK))).contains(10L);
+        assertThat(index.findDuplicate(NOTE, FlashcardSimilarityIndex.signature(FRONT, BACK))).contains(10L);
+        verify(repository, times(1)).findFlashcardTextsByNoteId(NOTE);
+    }
+
+    @Test
+    void removeAndUpdateKeepTheBucketsConsistent() {
+        FlashcardSimilarityIndex index = loadedIndex(0.7, 60);
+        FlashcardSimilarityIndex.Signature original = FlashcardSimilarityIndex.signature(FRONT, BACK);
+        String newFront = "Which organelle stores the genetic material of a cell";
+        String newBack = "The nucleus, enclosed by the nuclear envelope";
+        index.add(NOTE, 10L, original);
+        index.add(NOTE, 11L, FlashcardSimilarityIndex.signature(FRONT, BACK));
+
+        index.remove(11L);
+        assertThat(index.findDuplicate(NOTE, original)).contains(10L);
+        assertThat(cards()).isEqualTo(1);
+
+        //  the old text is gone from every bucket, the new one is found
+        index.update(NOTE, 10L, newFront, newBack);
+        assertThat(index.findDuplicate(NOTE, original)).isEmpty();
+        assertThat(index.findDuplicate(NOTE, FlashcardSimilarityIndex.signature(newFront, newBack))).contains(10L);
+        assertThat(cards()).isEqualTo(1);
+
+        index.remove(10L);
+        assertThat(index.findDuplicate(NOTE, FlashcardSimilarityIndex.signature(newFront, newBack))).isEmpty();
+        assertThat(cards()).isZero();
+    }
+
+    @Test
+    void removeNoteForgetsItsCards() {
+        FlashcardSimilarityIndex index = loadedIndex(0.7, 60);
+        index.add(NOTE, 10L, FlashcardSimilarityIndex.signature(FRONT, BACK));
+
+        index.removeNote(NOTE);
+
+        assertThat(notes()).isZero();
+        assertThat(cards()).isZero();
+    }
+
+    @Test
+    void evictIdleDropsTheNoteAndItsCardsUntilTheNextUse() {
+        when(repository.findFlashcardTextsByNoteId(NOTE)).thenReturn(List.of(new FlashcardText(10L, FRONT, BACK)));
+        FlashcardSimilarityIndex index = index(0.7, 0);
+        index.findDuplicate(NOTE, FlashcardSimilarityIndex.signature(FRONT, BACK));
+        assertThat(notes()).isEqualTo(1);
+        assertThat(cards()).isEqualTo(1);
+
+        index.evictIdle();
+
+        assertThat(notes()).isZero();
+        assertThat(cards()).isZero();
+        assertThat(index.findDuplicate(NOTE, FlashcardSimilarityIndex.signature(FRONT, BACK))).contains(10L);
+        verify(repository, times(2)).findFlashcardTextsByNoteId(NOTE);
+    }
+
+    private FlashcardSimilarityIndex index(double threshold, long idleMinutes) {
+        return new FlashcardSimilarityIndex(repository, threshold, 10_000, idleMinutes, meterRegistry);
+    }
+
+    private FlashcardSimilarityIndex loadedIndex(double threshold, long idleMinutes) {
+        FlashcardSimilarityIndex index = index(threshold, idleMinutes);
+        index.findDuplicate(NOTE, FlashcardSimilarityIndex.signature("unrelated", "words"));
+        return index;
+    }
+
+    private double notes() {
+        return meterRegistry.get("locus.flashcards.similarity.notes").gauge().value();
+    }
+
+    private double cards() {
+        return meterRegistry.get("locus.flashcards.similarity.cards").gauge().value();
+    }
+}
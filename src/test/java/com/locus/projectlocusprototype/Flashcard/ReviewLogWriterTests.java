@@ -0,0 +1,135 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+//  The writer thread is only started where a test needs it, until then recorded events stay in the buffer
+class ReviewLogWriterTests {
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void clearTransaction() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void inATransactionEventsAreOnlyQueuedAfterCommit() {
+        ReviewLogWriter writer = writer(10, 50, true);
+        TransactionSynchronizationManager.initSynchronization();
+
+        writer.record(event());
+        writer.record(event());
+        assertThat(buffered()).isZero();
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        assertThat(buffered()).isEqualTo(2);
+    }
+
+    @Test
+    void rolledBackTransactionQueuesNothing() {
+        ReviewLogWriter writer = writer(10, 50, true);
+        TransactionSynchronizationManager.initSynchronization();
+
+        writer.record(event());
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertThat(buffered()).isZero();
+        assertThat(events("dropped")).isZero();
+    }
+
+    @Test
+    void fullBufferWaitsForTheOfferTimeoutThenDrops() {
+        ReviewLogWriter writer = writer(1, 100, true);
+        writer.record(event());
+
+        long start = System.nanoTime();
+        writer.record(event());
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(waitedMillis).isGreaterThanOrEqualTo(90);
+        assertThat(buffered()).isEqualTo(1);
+        assertThat(events("dropped")).isEqualTo(1);
+    }
+
+    @Test
+    void aTransactionWaitsOnceForAllItsEvents() {
+        ReviewLogWriter writer = writer(1, 100, true);
+        writer.record(event());
+        TransactionSynchronizationManager.initSynchronization();
+        for (int i = 0; i < 10; i++) {
+            writer.record(event());
+        }
+
+        long start = System.nanoTime();
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        //  one shared deadline, not 100 ms per event
+        assertThat(waitedMillis).isBetween(90L, 500L);
+        assertThat(events("dropped")).isEqualTo(10);
+    }
+
+    @Test
+    void stopWritesEverythingStillBufferedInBatches() throws InterruptedException {
+        ReviewLogWriter writer = writer(100, 50, true);
+        for (int i = 0; i < 7; i++) {
+            writer.record(event());
+        }
+
+        writer.start();
+        writer.stop();
+
+        assertThat(buffered()).isZero();
+        assertThat(events("written")).isEqualTo(7);
+        //  batches of 3, 3 and 1, whether the writer thread or stop() wrote them
+        verify(jdbcTemplate, times(3)).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    void writerThreadWritesWhileRunning() throws InterruptedException {
+        ReviewLogWriter writer = writer(100, 50, false);
+        writer.start();
+
+        writer.record(event());
+
+        verify(jdbcTemplate, timeout(5_000)).update(anyString(), any(Object[].class));
+        writer.stop();
+        assertThat(events("written")).isEqualTo(1);
+    }
+
+    private ReviewLogWriter writer(int capacity, long offerTimeoutMillis, boolean flushOnShutdown) {
+        return new ReviewLogWriter(jdbcTemplate, capacity, 3, 10, offerTimeoutMillis, flushOnShutdown, meterRegistry);
+    }
+
+    private static ReviewEvent event() {
+        Flashcard flashcard = new Flashcard();
+        return ReviewEvent.before(flashcard, 7L, 4, LocalDateTime.now()).after(flashcard);
+    }
+
+    private double buffered() {
+        return meterRegistry.get("locus.review-log.buffer.size").gauge().value();
+    }
+
+    private double events(String result) {
+        return meterRegistry.get("locus.review-log.events").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,161 @@
+package com.locus.projectlocusprototype.Flashcard;
+
+import com.locus.projectlocusprototype.Auth.AuthService;
+import com.locus.projectlocusprototype.Auth.UserPrincipal;
+import com.locus.projectlocusprototype.Exceptions.ResourceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.core.Authentication;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+//  Every session is opened over the same two due cards, the tests tell sessions apart by the quality they answer with
+class StudySessionServiceTests {
+    private static final Long USER = 7L;
+
+    private final FlashcardRepository flashcardRepository = mock(FlashcardRepository.class);
+    private final FlashcardService flashcardService = mock(FlashcardService.class);
+    private final AuthService authService = mock(AuthService.class);
+    private final Authentication authentication = mock(Authentication.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        when(authService.getPrincipalFromAuthenticationObject(authentication)).thenReturn(new UserPrincipal(USER, "someone", null, List.of(), 0));
+        Flashcard first = new Flashcard();
+        Flashcard second = new Flashcard();
+        when(flashcardRepository.findDueFlashcards(eq(USER), any(), any())).thenReturn(List.of(first, second));
+        when(flashcardService.flashcardToResponse(first)).thenReturn(response(100L));
+        when(flashcardService.flashcardToResponse(second)).thenReturn(response(101L));
+    }
+
+    @Test
+    void closeAppliesTheAnswersOnceAndEndsTheSession() {
+        StudySessionService service = service(10, 30);
+        String session = open(service);
+        service.answer(session, new StudySessionAnswer(100L, 2), authentication);
+        service.answer(session, new StudySessionAnswer(100L, 5), authentication);
+
+        service.close(session, authentication);
+
+        assertThat(flushedQualities()).containsExactly(List.of(5));
+        assertThat(service.size()).isZero();
+        assertThatThrownBy(() -> service.answer(session, new StudySessionAnswer(101L, 4), authentication))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void leastRecentlyUsedSessionIsFlushedWhenFull() {
+        StudySessionService service = service(2, 30);
+        String first = open(service);
+        String second = open(service);
+        service.answer(first, new StudySessionAnswer(100L, 1), authentication);
+        service.answer(second, new StudySessionAnswer(100L, 2), authentication);
+        //  reading a page counts as use, so the second session is now the least recently used
+        service.getCards(first, 0, 1, authentication);
+
+        open(service);
+
+        assertThat(flushedQualities()).containsExactly(List.of(2));
+        assertThat(service.size()).isEqualTo(2);
+        assertThat(expired()).isEqualTo(1);
+        assertThatThrownBy(() -> service.getCards(second, 0, 1, authentication)).isInstanceOf(ResourceNotFoundException.class);
+        assertThat(service.getCards(first, 0, 1, authentication).cards()).hasSize(1);
+    }
+
+    @Test
+    void idleSessionsAreFlushedAndActiveOnesKept() throws InterruptedException {
+        StudySessionService idle = service(10, 0);
+        String session = open(idle);
+        idle.answer(session, new StudySessionAnswer(101L, 3), authentication);
+        Thread.sleep(5);
+
+        idle.flushIdle();
+
+        assertThat(flushedQualities()).containsExactly(List.of(3));
+        assertThat(idle.size()).isZero();
+        assertThat(expired()).isEqualTo(1);
+
+        StudySessionService active = service(10, 30);
+        open(active);
+        active.flushIdle();
+        assertThat(active.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shutdownFlushesEverySessionEvenWhenOneFails() {
+        StudySessionService service = service(10, 30);
+        String failing = open(service);
+        String succeeding = open(service);
+        String unanswered = open(service);
+        service.answer(failing, new StudySessionAnswer(100L, 0), authentication);
+        service.answer(succeeding, new StudySessionAnswer(100L, 4), authentication);
+        when(flashcardService.reviewFlashcards(eq(USER), anyList())).thenAnswer(invocation -> {
+            List<BatchReviewItem> items = invocation.getArgument(1);
+            if (items.getFirst().qualityScore() == 0) {
+                throw new IllegalStateException("database is gone");
+            }
+            return List.of();
+        });
+
+        service.flushAll();
+
+        //  the session without answers doesn't cause a review at all
+        assertThat(flushedQualities()).containsExactlyInAnyOrder(List.of(0), List.of(4));
+        assertThat(service.size()).isZero();
+        assertThatThrownBy(() -> service.getCards(unanswered, 0, 1, authentication)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void nothingDueOpensNoSession() {
+        when(flashcardRepository.findDueFlashcards(eq(USER), any(), any())).thenReturn(List.of());
+        StudySessionService service = service(10, 30);
+
+        StudySessionResponse response = service.open(new StudySessionRequest(null, 10), authentication);
+
+        assertThat(response.sessionId()).isNull();
+        assertThat(service.size()).isZero();
+        service.flushAll();
+        verify(flashcardService, never()).reviewFlashcards(any(Long.class), anyList());
+    }
+
+    private StudySessionService service(int maxSessions, long idleMinutes) {
+        return new StudySessionService(flashcardRepository, flashcardService, authService, maxSessions, 50, 200, 20, idleMinutes, meterRegistry);
+    }
+
+    private String open(StudySessionService service) {
+        return service.open(new StudySessionRequest(null, 10), authentication).sessionId();
+    }
+
+    //  Qualities of every batch applied so far, one list per flushed session
+    @SuppressWarnings("unchecked")
+    private List<List<Integer>> flushedQualities() {
+        ArgumentCaptor<List<BatchReviewItem>> batches = ArgumentCaptor.forClass(List.class);
+        verify(flashcardService, atLeast(0)).reviewFlashcards(eq(USER), batches.capture());
+        return batches.getAllValues().stream()
+                .map(batch -> batch.stream().map(BatchReviewItem::qualityScore).toList())
+                .toList();
+    }
+
+    private double expired() {
+        return meterRegistry.get("locus.study.sessions.expired").counter().count();
+    }
+
+    private static FlashcardResponse response(Long id) {
+        return new FlashcardResponse(id, "front " + id, "back " + id, 2.5, 0, null, 0, "Note", USER);
+    }
+}
@@ -0,0 +1,74 @@
+package com.locus.projectlocusprototype.Scheduling;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class FsrsOptimizerTests {
+    private final FsrsOptimizer optimizer = new FsrsOptimizer(null, null, 2, 400, 8, new SimpleMeterRegistry());
+
+    @AfterEach
+    void shutdown() {
+        optimizer.shutdown();
+    }
+
+    @Test
+    void fitNeverEndsWorseThanTheDefaults() {
+        FsrsOptimizer.ReviewHistory history = simulate(new Random(7), 400, 8);
+
+        FsrsOptimizer.Fit fit = optimizer.fit(history);
+
+        assertThat(fit.defaultLoss()).isCloseTo(optimizer.loss(history, FsrsScheduler.defaultWeights()), within(1e-12));
+        assertThat(fit.loss()).isLessThanOrEqualTo(fit.defaultLoss());
+        assertThat(optimizer.loss(history, fit.weights())).isCloseTo(fit.loss(), within(1e-12));
+        for (int i = 0; i < FsrsScheduler.WEIGHT_COUNT; i++) {
+            assertThat(fit.weights()[i]).isBetween(FsrsScheduler.MIN_WEIGHTS[i], FsrsScheduler.MAX_WEIGHTS[i]);
+        }
+    }
+
+    @Test
+    void fitImprovesOnHistoryTheDefaultsDoNotMatch() {
+        FsrsOptimizer.ReviewHistory history = simulate(new Random(11), 400, 8);
+
+        FsrsOptimizer.Fit fit = optimizer.fit(history);
+
+        assertThat(fit.loss()).isLessThan(fit.defaultLoss());
+    }
+
+    @Test
+    void historyWithoutRepeatedReviewsKeepsTheDefaults() {
+        FsrsOptimizer.ReviewHistory history = new FsrsOptimizer.ReviewHistory(
+                new int[]{0, 1, 2}, new byte[]{FsrsScheduler.GOOD, FsrsScheduler.AGAIN}, new float[]{0, 0});
+
+        FsrsOptimizer.Fit fit = optimizer.fit(history);
+
+        assertThat(fit.loss()).isZero();
+        assertThat(fit.weights()).containsExactly(FsrsScheduler.defaultWeights());
+    }
+
+    //  Cards of a learner who forgets much faster than the default weights predict, reviewed at random delays
+    private static FsrsOptimizer.ReviewHistory simulate(Random random, int cards, int reviewsPerCard) {
+        int[] cardStart = new int[cards + 1];
+        byte[] grades = new byte[cards * reviewsPerCard];
+        float[] elapsedDays = new float[cards * reviewsPerCard];
+        for (int card = 0; card < cards; card++) {
+            cardStart[card] = card * reviewsPerCard;
+            double stability = 0.5;
+            for (int review = 0; review < reviewsPerCard; review++) {
+                int index = card * reviewsPerCard + review;
+                float elapsed = review == 0 ? 0 : 1 + random.nextInt(20);
+                boolean recalled = review == 0 || random.nextDouble() < FsrsScheduler.retrievability(elapsed, stability);
+                grades[index] = (byte) (recalled ? FsrsScheduler.GOOD : FsrsScheduler.AGAIN);
+                elapsedDays[index] = elapsed;
+                stability = recalled ? stability * 1.5 : 0.5;
+            }
+        }
+        cardStart[cards] = cards * reviewsPerCard;
+        return new FsrsOptimizer.ReviewHistory(cardStart, grades, elapsedDays);
+    }
+}
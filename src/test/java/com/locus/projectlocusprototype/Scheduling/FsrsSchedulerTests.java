@@ -0,0 +1,107 @@
+package com.locus.projectlocusprototype.Scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class FsrsSchedulerTests {
+    private static final double[] W = FsrsScheduler.defaultWeights();
+    private static final long DAY = ReviewScheduler.SECONDS_PER_DAY;
+
+    @Test
+    void initialStabilityIsTheWeightOfTheGrade() {
+        assertThat(FsrsScheduler.initialStability(W, FsrsScheduler.AGAIN)).isEqualTo(0.4872);
+        assertThat(FsrsScheduler.initialStability(W, FsrsScheduler.HARD)).isEqualTo(1.4003);
+        assertThat(FsrsScheduler.initialStability(W, FsrsScheduler.GOOD)).isEqualTo(3.7145);
+        assertThat(FsrsScheduler.initialStability(W, FsrsScheduler.EASY)).isEqualTo(13.8206);
+    }
+
+    @Test
+    void initialDifficultyFallsWithTheGrade() {
+        assertThat(FsrsScheduler.initialDifficulty(W, FsrsScheduler.AGAIN)).isCloseTo(7.6214, within(1e-9));
+        assertThat(FsrsScheduler.initialDifficulty(W, FsrsScheduler.GOOD)).isCloseTo(5.1618, within(1e-9));
+        assertThat(FsrsScheduler.initialDifficulty(W, FsrsScheduler.EASY)).isCloseTo(3.932, within(1e-9));
+    }
+
+    @Test
+    void retrievabilityIsNinetyPercentAfterStabilityDays() {
+        assertThat(FsrsScheduler.retrievability(10, 10)).isCloseTo(0.9, within(1e-12));
+        assertThat(FsrsScheduler.retrievability(0, 10)).isEqualTo(1.0);
+    }
+
+    @Test
+    void recallStabilityMatchesTheFormula() {
+        assertThat(FsrsScheduler.recallStability(W, 5, 10, 0.9, FsrsScheduler.GOOD)).isCloseTo(35.0839, within(1e-4));
+        assertThat(FsrsScheduler.recallStability(W, 5, 10, 0.9, FsrsScheduler.HARD)).isCloseTo(15.6991, within(1e-4));
+        assertThat(FsrsScheduler.recallStability(W, 5, 10, 0.9, FsrsScheduler.EASY)).isCloseTo(82.1287, within(1e-4));
+    }
+
+    @Test
+    void forgetStabilityMatchesTheFormulaAndNeverGrows() {
+        assertThat(FsrsScheduler.forgetStability(W, 5, 10, 0.9)).isCloseTo(2.5604, within(1e-4));
+        assertThat(FsrsScheduler.forgetStability(W, 1, 0.2, 0.1)).isLessThanOrEqualTo(0.2);
+    }
+
+    @Test
+    void firstGoodReviewIsDueAfterTheRoundedStability() {
+        SchedulingState state = new SchedulingState().reset(0);
+
+        scheduler(0.9).review(state, 4, 0);
+
+        assertThat(state.getStability()).isEqualTo(3.7145);
+        assertThat(state.getDifficulty()).isCloseTo(5.1618, within(1e-9));
+        assertThat(state.getIntervalDays()).isEqualTo(4);
+        assertThat(state.getRepetitions()).isEqualTo(1);
+        assertThat(state.getLastReviewSecond()).isZero();
+        assertThat(state.getDueSecond()).isEqualTo(4 * DAY);
+    }
+
+    @Test
+    void secondGoodReviewOnTheDueDateGrowsTheInterval() {
+        SchedulingState state = new SchedulingState().reset(0);
+        FsrsScheduler scheduler = scheduler(0.9);
+        scheduler.review(state, 4, 0);
+
+        scheduler.review(state, 4, 4 * DAY);
+
+        assertThat(state.getStability()).isCloseTo(14.8081, within(1e-4));
+        assertThat(state.getIntervalDays()).isEqualTo(15);
+        assertThat(state.getDueSecond()).isEqualTo(19 * DAY);
+    }
+
+    @Test
+    void lowerDesiredRetentionMeansLongerIntervals() {
+        SchedulingState state = new SchedulingState().reset(0);
+
+        scheduler(0.8).review(state, 4, 0);
+
+        // (0.8^-2 - 1) / (19/81) = 2.398 times the stability
+        assertThat(state.getIntervalDays()).isEqualTo(9);
+    }
+
+    @Test
+    void lapseResetsRepetitionsAndIntervalIsCapped() {
+        SchedulingState state = new SchedulingState().reset(0);
+        FsrsScheduler scheduler = new FsrsScheduler(W, 0.9, 10);
+        scheduler.review(state, 5, 0);
+        assertThat(state.getIntervalDays()).isEqualTo(10);
+
+        scheduler.review(state, 1, 10 * DAY);
+
+        assertThat(state.getRepetitions()).isZero();
+        assertThat(state.getIntervalDays()).isGreaterThanOrEqualTo(1);
+        assertThat(state.getStability()).isLessThan(13.8206);
+    }
+
+    @Test
+    void rejectsWrongNumberOfWeights() {
+        assertThatThrownBy(() -> new FsrsScheduler(new double[3], 0.9, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static FsrsScheduler scheduler(double desiredRetention) {
+        return new FsrsScheduler(W, desiredRetention, 36500);
+    }
+}
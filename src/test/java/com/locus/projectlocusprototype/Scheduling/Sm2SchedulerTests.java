@@ -0,0 +1,71 @@
+package com.locus.projectlocusprototype.Scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+//  Pins the SM-2 behaviour cards had before FSRS was added, it is still the default scheduler
+class Sm2SchedulerTests {
+    private static final long DAY = ReviewScheduler.SECONDS_PER_DAY;
+    private final Sm2Scheduler scheduler = new Sm2Scheduler();
+
+    @Test
+    void passesGoOneSixThenIntervalTimesEase() {
+        SchedulingState state = new SchedulingState().reset(0);
+
+        scheduler.review(state, 4, 0);
+        assertThat(state.getIntervalDays()).isEqualTo(1);
+        assertThat(state.getDueSecond()).isEqualTo(DAY);
+
+        scheduler.review(state, 4, DAY);
+        assertThat(state.getIntervalDays()).isEqualTo(6);
+        assertThat(state.getDueSecond()).isEqualTo(7 * DAY);
+
+        scheduler.review(state, 4, 7 * DAY);
+        assertThat(state.getIntervalDays()).isEqualTo(15);
+        assertThat(state.getDueSecond()).isEqualTo(22 * DAY);
+        assertThat(state.getRepetitions()).isEqualTo(3);
+        assertThat(state.getEaseFactor()).isCloseTo(2.5, within(1e-9));
+        assertThat(state.getLastReviewSecond()).isEqualTo(7 * DAY);
+    }
+
+    @Test
+    void passedCardIsScheduledFromItsPreviousDueDate() {
+        SchedulingState state = new SchedulingState().reset(0);
+
+        scheduler.review(state, 4, 3 * DAY);
+
+        assertThat(state.getDueSecond()).isEqualTo(DAY);
+        assertThat(state.getLastReviewSecond()).isEqualTo(3 * DAY);
+    }
+
+    @Test
+    void failedCardIsDueADayAfterTheReview() {
+        SchedulingState state = new SchedulingState().reset(0);
+        scheduler.review(state, 5, 0);
+        scheduler.review(state, 5, DAY);
+
+        scheduler.review(state, 2, 10 * DAY);
+
+        assertThat(state.getRepetitions()).isZero();
+        assertThat(state.getIntervalDays()).isEqualTo(1);
+        assertThat(state.getDueSecond()).isEqualTo(11 * DAY);
+        assertThat(state.getEaseFactor()).isCloseTo(2.7 - 0.32, within(1e-9));
+    }
+
+    @Test
+    void easeFactorFollowsTheQualityAndStaysAboveItsMinimum() {
+        SchedulingState state = new SchedulingState().reset(0);
+
+        scheduler.review(state, 5, 0);
+        assertThat(state.getEaseFactor()).isCloseTo(2.6, within(1e-9));
+        scheduler.review(state, 3, DAY);
+        assertThat(state.getEaseFactor()).isCloseTo(2.46, within(1e-9));
+
+        for (int i = 0; i < 10; i++) {
+            scheduler.review(state, 0, (2 + i) * DAY);
+        }
+        assertThat(state.getEaseFactor()).isEqualTo(1.3);
+    }
+}